@@ -17,6 +17,7 @@ import androidx.fragment.app.Fragment;
 
 import com.example.prm392pe.activities.UtilsDemoActivity;
 import com.example.prm392pe.activities.ServiceDemoActivity;
+import com.example.prm392pe.adapters.ProductViewPool;
 import com.example.prm392pe.fragments.ProductListFragment;
 import com.example.prm392pe.fragments.SettingsFragment;
 import com.example.prm392pe.utils.SharedPreferencesUtils;
@@ -33,12 +34,16 @@ import com.example.prm392pe.utils.UIUtils;
 public class MainActivity extends AppCompatActivity {
     
     private SharedPreferencesUtils prefsUtils;
+    // Held here for the activity's lifetime, the pool itself only references it weakly
+    private ProductViewPool viewPool;
     private ProductListFragment productListFragment;
     private SettingsFragment settingsFragment;
     
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        // Read the preferences file while the layout is inflated
+        SharedPreferencesUtils.preload(this);
         setContentView(R.layout.activity_main);
         
         ViewCompat.setOnApplyWindowInsetsListener(findViewById(R.id.main), (v, insets) -> {
@@ -48,6 +53,7 @@ public class MainActivity extends AppCompatActivity {
         });
         
         initUtils();
+        warmUpProductRows();
         setupClickListeners();
         showWelcomeMessage();
         
@@ -61,6 +67,12 @@ public class MainActivity extends AppCompatActivity {
         prefsUtils = new SharedPreferencesUtils(this);
     }
     
+    private void warmUpProductRows() {
+        // Inflate product rows while the main thread is idle so opening Products does not jank
+        viewPool = ProductViewPool.get(this);
+        viewPool.warmUp(ProductViewPool.DEFAULT_WARM_UP_COUNT);
+    }
+    
     private void setupClickListeners() {
         findViewById(R.id.btn_show_products).setOnClickListener(v -> showProductListFragment());
         findViewById(R.id.btn_show_settings).setOnClickListener(v -> showSettingsFragment());
@@ -246,6 +258,12 @@ public class MainActivity extends AppCompatActivity {
                 .show();
     }
     
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        ProductViewPool.release(this);
+    }
+    
     @Override
     public void onBackPressed() {
         if (getSupportFragmentManager().getBackStackEntryCount() > 0) {
@@ -213,10 +213,12 @@ public class UtilsDemoActivity extends AppCompatActivity {
     private void saveToPreferences() {
         String data = editTextData.getText().toString();
         if (ValidationUtils.isNotEmpty(data)) {
+            prefsUtils.beginBatch();
             prefsUtils.saveString("user_data", data);
             prefsUtils.saveInt("save_count", prefsUtils.getInt("save_count", 0) + 1);
             prefsUtils.saveLong("last_save_time", System.currentTimeMillis());
             prefsUtils.saveBoolean("has_data", true);
+            prefsUtils.commitBatch();
 
             UIUtils.showToast(this, "Saved to SharedPreferences");
             loadPreferencesData();
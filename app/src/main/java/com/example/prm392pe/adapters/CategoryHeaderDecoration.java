@@ -0,0 +1,152 @@
+package com.example.prm392pe.adapters;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.prm392pe.models.Product;
+
+/**
+ * Draws a category header above the first product of each category group
+ *
+ * Headers are derived from adjacent rows instead of being extra adapter items, so
+ * adapter positions stay product positions and a header moves with its group when
+ * products change category. Intended for lists sorted by category first.
+ */
+public class CategoryHeaderDecoration extends RecyclerView.ItemDecoration {
+
+    private static final int HEADER_HEIGHT_DP = 32;
+    private static final int TEXT_SIZE_DP = 14;
+    private static final int PADDING_DP = 12;
+
+    private final ProductAdapter adapter;
+    private final int headerHeight;
+    private final int padding;
+    private final Paint backgroundPaint = new Paint();
+    private final Paint textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+    private RecyclerView recyclerView;
+
+    // Any data change can turn a neighbouring row into a group start, so recompute all offsets
+    private final RecyclerView.AdapterDataObserver observer = new RecyclerView.AdapterDataObserver() {
+        @Override
+        public void onChanged() {
+            invalidate();
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount) {
+            invalidate();
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            invalidate();
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            invalidate();
+        }
+
+        @Override
+        public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+            invalidate();
+        }
+    };
+
+    public CategoryHeaderDecoration(Context context, ProductAdapter adapter) {
+        this.adapter = adapter;
+        float density = context.getResources().getDisplayMetrics().density;
+        headerHeight = Math.round(HEADER_HEIGHT_DP * density);
+        padding = Math.round(PADDING_DP * density);
+
+        backgroundPaint.setColor(0xFFEEEEEE);
+        textPaint.setColor(0xFF333333);
+        textPaint.setTextSize(TEXT_SIZE_DP * density);
+        textPaint.setFakeBoldText(true);
+    }
+
+    /**
+     * Add the headers to a list
+     */
+    public void attach(RecyclerView recyclerView) {
+        detach();
+        this.recyclerView = recyclerView;
+        recyclerView.addItemDecoration(this);
+        adapter.registerAdapterDataObserver(observer);
+    }
+
+    /**
+     * Remove the headers from the list
+     */
+    public void detach() {
+        if (recyclerView != null) {
+            recyclerView.removeItemDecoration(this);
+            adapter.unregisterAdapterDataObserver(observer);
+            recyclerView = null;
+        }
+    }
+
+    @Override
+    public void getItemOffsets(@NonNull Rect outRect, @NonNull View view,
+                               @NonNull RecyclerView parent, @NonNull RecyclerView.State state) {
+        int position = parent.getChildAdapterPosition(view);
+        if (position != RecyclerView.NO_POSITION && isGroupStart(position)) {
+            outRect.set(0, headerHeight, 0, 0);
+        } else {
+            outRect.set(0, 0, 0, 0);
+        }
+    }
+
+    @Override
+    public void onDraw(@NonNull Canvas canvas, @NonNull RecyclerView parent, @NonNull RecyclerView.State state) {
+        RecyclerView.LayoutManager layoutManager = parent.getLayoutManager();
+        if (layoutManager == null) {
+            return;
+        }
+
+        int left = parent.getPaddingLeft();
+        int right = parent.getWidth() - parent.getPaddingRight();
+        for (int i = 0; i < parent.getChildCount(); i++) {
+            View child = parent.getChildAt(i);
+            int position = parent.getChildAdapterPosition(child);
+            if (position == RecyclerView.NO_POSITION || !isGroupStart(position)) {
+                continue;
+            }
+
+            float top = layoutManager.getDecoratedTop(child) + child.getTranslationY();
+            canvas.drawRect(left, top, right, top + headerHeight, backgroundPaint);
+
+            float baseline = top + (headerHeight - textPaint.descent() - textPaint.ascent()) / 2;
+            canvas.drawText(categoryOf(adapter.getProduct(position)), left + padding, baseline, textPaint);
+        }
+    }
+
+    private boolean isGroupStart(int position) {
+        Product product = adapter.getProduct(position);
+        if (product == null) {
+            return false;
+        }
+        if (position == 0) {
+            return true;
+        }
+        Product previous = adapter.getProduct(position - 1);
+        return previous == null || !categoryOf(previous).equalsIgnoreCase(categoryOf(product));
+    }
+
+    private static String categoryOf(Product product) {
+        return product != null && product.getCategory() != null ? product.getCategory() : "";
+    }
+
+    private void invalidate() {
+        if (recyclerView != null) {
+            recyclerView.invalidateItemDecorations();
+        }
+    }
+}
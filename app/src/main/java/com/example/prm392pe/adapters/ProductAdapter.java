@@ -1,6 +1,9 @@
 package com.example.prm392pe.adapters;
 
 import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -8,91 +11,1010 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AdapterListUpdateCallback;
+import androidx.recyclerview.widget.BatchingListUpdateCallback;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListUpdateCallback;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
 import com.example.prm392pe.R;
+import com.example.prm392pe.data.InventoryEngine;
+import com.example.prm392pe.data.PagedProductSource;
+import com.example.prm392pe.data.ProductStore;
 import com.example.prm392pe.models.Product;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * RecyclerView adapter for displaying products
  */
 public class ProductAdapter extends RecyclerView.Adapter<ProductAdapter.ProductViewHolder> {
     
+    private static final String TAG = "ProductAdapter";
+    
+    public static final int VIEW_TYPE_PRODUCT = 0;
+    
+    // Single background thread shared by all adapters for diff computation
+    private static final ExecutorService DIFF_EXECUTOR = Executors.newSingleThreadExecutor();
+    // Above this many inserts plus removes, diffing costs more than rebinding the visible rows
+    private static final int MAX_DIFF_EDITS = 500;
+    
     private Context context;
     private List<Product> productList;
     private OnProductClickListener listener;
+    private final List<OnProductsChangedListener> changeListeners = new CopyOnWriteArrayList<>();
+    // Optional source of pre-inflated rows
+    private ProductViewPool viewPool;
+    // Optional create/bind timing, null unless enabled
+    private ProductListInstrumentation instrumentation;
+    // When set, products are read from the paged source instead of productList
+    private PagedProductSource pagedSource;
+    // When set, products are read from the columnar store instead of productList
+    private ProductStore productStore;
+    // Reused while binding from the store, rows read it immediately and do not keep it
+    private ProductStore.ProductView bindView;
+    // When set, productList is kept ordered by this comparator
+    private Comparator<Product> sortOrder;
+    // Optional stock source, rows are rebound when a product's availability flips
+    private InventoryEngine inventory;
+    
+    // Product id -> position in productList, kept up to date by every list mutation
+    private final ProductPositionIndex positionIndex;
+    
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final InventoryEngine.OnAvailabilityChangedListener availabilityListener =
+            (productId, available) -> mainHandler.post(() -> showStock(productId));
+    // Incremented by every list replacement; a diff result is only applied if it is still the latest
+    private volatile int diffGeneration;
+    // Incremented by every direct mutation; a diff computed against an older list must be redone
+    private int mutationCount;
     
     public interface OnProductClickListener {
         void onProductClick(Product product, int position);
         void onProductLongClick(Product product, int position);
     }
     
+    /**
+     * Notified after single products are added, updated or removed through the adapter
+     * Whole-list replacements (updateProducts, submitProducts, clearProducts) are not reported.
+     */
+    public interface OnProductsChangedListener {
+        void onProductAdded(Product product);
+        void onProductUpdated(Product product);
+        void onProductRemoved(Product product);
+    }
+    
     public ProductAdapter(Context context) {
         this.context = context;
         this.productList = new ArrayList<>();
+        this.positionIndex = new ProductPositionIndex(this.productList);
+        setHasStableIds(true);
     }
     
     public ProductAdapter(Context context, List<Product> productList) {
         this.context = context;
         this.productList = productList != null ? productList : new ArrayList<>();
+        this.positionIndex = new ProductPositionIndex(this.productList);
+        setHasStableIds(true);
     }
     
     @NonNull
     @Override
     public ProductViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
-        View view = LayoutInflater.from(context).inflate(R.layout.item_product, parent, false);
-        return new ProductViewHolder(view);
+        long start = instrumentation != null ? System.nanoTime() : 0;
+        
+        View view = viewPool != null ? viewPool.takePreInflatedView() : null;
+        if (view == null) {
+            view = LayoutInflater.from(context).inflate(R.layout.item_product, parent, false);
+        }
+        ProductViewHolder holder = new ProductViewHolder(view);
+        
+        if (instrumentation != null) {
+            instrumentation.recordCreate(System.nanoTime() - start);
+        }
+        return holder;
     }
     
     @Override
     public void onBindViewHolder(@NonNull ProductViewHolder holder, int position) {
-        Product product = productList.get(position);
-        holder.bind(product);
+        long start = instrumentation != null ? System.nanoTime() : 0;
+        
+        Product product = getProductForBind(position);
+        if (product == null) {
+            holder.bindPlaceholder();
+        } else {
+            holder.bind(product);
+        }
+        
+        if (instrumentation != null) {
+            instrumentation.recordBind(System.nanoTime() - start);
+        }
+    }
+    
+    @Override
+    public void onBindViewHolder(@NonNull ProductViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+            return;
+        }
+        
+        long start = instrumentation != null ? System.nanoTime() : 0;
+        
+        Product product = getProductForBind(position);
+        if (product == null) {
+            holder.bindPlaceholder();
+        } else {
+            holder.bindChanges(product, ProductPayload.merge(payloads));
+        }
+        
+        if (instrumentation != null) {
+            instrumentation.recordBind(System.nanoTime() - start);
+        }
+    }
+    
+    @Override
+    public void onViewRecycled(@NonNull ProductViewHolder holder) {
+        super.onViewRecycled(holder);
+        // Cancel the image request of a row that scrolled off screen
+        holder.clearImage();
     }
     
     @Override
     public int getItemCount() {
-        return productList.size();
+        if (pagedSource != null) {
+            return pagedSource.size();
+        }
+        return productStore != null ? productStore.size() : productList.size();
+    }
+    
+    @Override
+    public int getItemViewType(int position) {
+        return VIEW_TYPE_PRODUCT;
+    }
+    
+    @Override
+    public long getItemId(int position) {
+        if (productStore != null) {
+            return productStore.getId(position);
+        }
+        Product product = getProduct(position);
+        if (product == null) {
+            // Placeholder rows get ids outside the int range so they never collide with a product id
+            return (1L << 32) + position;
+        }
+        return product.getId();
     }
     
     public void setOnProductClickListener(OnProductClickListener listener) {
         this.listener = listener;
     }
     
+    public void addOnProductsChangedListener(OnProductsChangedListener changeListener) {
+        if (changeListener != null && !changeListeners.contains(changeListener)) {
+            changeListeners.add(changeListener);
+        }
+    }
+    
+    public void removeOnProductsChangedListener(OnProductsChangedListener changeListener) {
+        changeListeners.remove(changeListener);
+    }
+    
+    /**
+     * Take rows from a pool of pre-inflated views before inflating new ones
+     */
+    public void setViewPool(ProductViewPool viewPool) {
+        this.viewPool = viewPool;
+    }
+    
+    /**
+     * Record create and bind durations, pass null to stop recording
+     */
+    public void setInstrumentation(ProductListInstrumentation instrumentation) {
+        this.instrumentation = instrumentation;
+    }
+    
+    /**
+     * Display products from a paged source instead of the in-memory list
+     * Rows whose page is not loaded yet are bound as placeholders until the page arrives.
+     * Passing null, or replacing the list with updateProducts/submitProducts/clearProducts,
+     * switches back to the in-memory list.
+     * 
+     * @param source The paged source to display, or null
+     */
+    public void setPagedSource(PagedProductSource source) {
+        diffGeneration++;
+        mutationCount++;
+        if (pagedSource != null) {
+            pagedSource.setCallback(null);
+        }
+        productStore = null;
+        bindView = null;
+        productList.clear();
+        positionIndex.invalidate();
+        pagedSource = source;
+        
+        if (source != null) {
+            source.setCallback(new PagedProductSource.Callback() {
+                @Override
+                public void onCountChanged(int count) {
+                    notifyDataSetChanged();
+                }
+                
+                @Override
+                public void onRangeLoaded(int positionStart, int itemCount) {
+                    notifyItemRangeChanged(positionStart, itemCount);
+                }
+            });
+        }
+        notifyDataSetChanged();
+    }
+    
+    public PagedProductSource getPagedSource() {
+        return pagedSource;
+    }
+    
+    /**
+     * Display products from a columnar store instead of the in-memory list
+     * Rows are bound straight from the store's arrays through a reused view, so no Product
+     * objects are created per row. Single-product mutations and batches made through the
+     * adapter are applied to the store. Sorting is not supported in this mode.
+     * Passing null, or replacing the list with updateProducts/submitProducts/clearProducts,
+     * switches back to the in-memory list.
+     * 
+     * @param store The store to display, or null
+     */
+    public void setProductStore(ProductStore store) {
+        diffGeneration++;
+        mutationCount++;
+        if (pagedSource != null) {
+            pagedSource.setCallback(null);
+            pagedSource = null;
+        }
+        productList.clear();
+        positionIndex.invalidate();
+        productStore = store;
+        bindView = null;
+        notifyDataSetChanged();
+    }
+    
+    public ProductStore getProductStore() {
+        return productStore;
+    }
+    
+    /**
+     * Switch back to the in-memory list from a paged source or store
+     */
+    private void detachSources() {
+        if (pagedSource != null) {
+            int oldCount = pagedSource.size();
+            pagedSource.setCallback(null);
+            pagedSource = null;
+            notifyItemRangeRemoved(0, oldCount);
+        }
+        if (productStore != null) {
+            int oldCount = productStore.size();
+            productStore = null;
+            bindView = null;
+            notifyItemRangeRemoved(0, oldCount);
+        }
+    }
+    
+    private Product getProductForBind(int position) {
+        if (pagedSource != null) {
+            return pagedSource.get(position);
+        }
+        if (productStore != null) {
+            bindView = productStore.getView(position, bindView);
+            return bindView;
+        }
+        return productList.get(position);
+    }
+    
     public void updateProducts(List<Product> newProducts) {
+        detachSources();
+        diffGeneration++;
         this.productList.clear();
+        positionIndex.invalidate();
         if (newProducts != null) {
             this.productList.addAll(newProducts);
         }
+        if (sortOrder != null) {
+            Collections.sort(productList, sortOrder);
+        }
         notifyDataSetChanged();
     }
     
+    /**
+     * Keep products ordered by the given comparator, or pass null for insertion order
+     * The current list is sorted once; after that single adds and updates are placed with
+     * a binary search and dispatched as granular insert/move events instead of a resort.
+     * Use ProductComparators.of() to build a total order.
+     * 
+     * @param comparator The sort order, or null
+     */
+    public void setSortOrder(Comparator<Product> comparator) {
+        if (pagedSource != null || productStore != null) {
+            Log.w(TAG, "Sorting is not supported while a paged source or store is displayed");
+            return;
+        }
+        sortOrder = comparator;
+        if (comparator != null && productList.size() > 1) {
+            diffGeneration++;
+            mutationCount++;
+            Collections.sort(productList, comparator);
+            positionIndex.invalidate();
+            notifyDataSetChanged();
+        }
+    }
+    
+    public Comparator<Product> getSortOrder() {
+        return sortOrder;
+    }
+    
+    /**
+     * Find where a product belongs in the sorted list
+     */
+    private int findInsertionPoint(Product product) {
+        int index = Collections.binarySearch(productList, product, sortOrder);
+        return index >= 0 ? index : -index - 1;
+    }
+    
+    /**
+     * Replace the product list using a diff computed on a background thread
+     * Items are matched by product id and granular insert/move/remove/change events
+     * are dispatched on the main thread. Calling this again before a pending diff
+     * finishes discards the older result.
+     * When more than MAX_DIFF_EDITS products are inserted or removed, e.g. a search narrowing
+     * a large catalog, the list is swapped with notifyDataSetChanged() instead, since the
+     * diff's cost grows with the square of that number.
+     * 
+     * @param newProducts The new list of products to display
+     */
+    public void submitProducts(List<Product> newProducts) {
+        detachSources();
+        final List<Product> oldSnapshot = new ArrayList<>(productList);
+        final List<Product> newSnapshot = newProducts != null ? new ArrayList<>(newProducts) : new ArrayList<>();
+        final Comparator<Product> order = sortOrder;
+        final int generation = ++diffGeneration;
+        final int expectedMutationCount = mutationCount;
+        
+        // Nothing to compare against, apply as a single range event
+        if (oldSnapshot.isEmpty() || newSnapshot.isEmpty()) {
+            if (order != null) {
+                Collections.sort(newSnapshot, order);
+            }
+            productList.clear();
+            productList.addAll(newSnapshot);
+            positionIndex.invalidate();
+            if (!oldSnapshot.isEmpty()) {
+                notifyItemRangeRemoved(0, oldSnapshot.size());
+            }
+            if (!newSnapshot.isEmpty()) {
+                notifyItemRangeInserted(0, newSnapshot.size());
+            }
+            return;
+        }
+        
+        DIFF_EXECUTOR.execute(() -> {
+            // Skip the work entirely if a newer list arrived while this one was queued
+            if (generation != diffGeneration) {
+                return;
+            }
+            if (order != null) {
+                Collections.sort(newSnapshot, order);
+            }
+            
+            if (ProductDiffCallback.countInsertsAndRemoves(oldSnapshot, newSnapshot) > MAX_DIFF_EDITS) {
+                mainHandler.post(() -> {
+                    if (generation != diffGeneration) {
+                        return;
+                    }
+                    productList.clear();
+                    productList.addAll(newSnapshot);
+                    positionIndex.invalidate();
+                    notifyDataSetChanged();
+                });
+                return;
+            }
+            
+            final DiffUtil.DiffResult result = DiffUtil.calculateDiff(
+                    new ProductDiffCallback(oldSnapshot, newSnapshot));
+            
+            mainHandler.post(() -> {
+                if (generation != diffGeneration) {
+                    return;
+                }
+                if (expectedMutationCount != mutationCount) {
+                    // The list changed under the diff, compute it again from the current state
+                    submitProducts(newSnapshot);
+                    return;
+                }
+                productList.clear();
+                productList.addAll(newSnapshot);
+                positionIndex.invalidate();
+                result.dispatchUpdatesTo(this);
+            });
+        });
+    }
+    
     public void addProduct(Product product) {
+        if (pagedSource != null) {
+            Log.w(TAG, "addProduct is not supported while a paged source is displayed");
+            return;
+        }
+        if (productStore != null) {
+            addToStore(product);
+            return;
+        }
         if (product != null) {
-            productList.add(product);
-            notifyItemInserted(productList.size() - 1);
+            int existing = getPositionById(product.getId());
+            if (existing != RecyclerView.NO_POSITION) {
+                // Stable ids must be unique, so replace the displayed product instead
+                Log.w(TAG, "Product " + product.getId() + " is already displayed, updating it");
+                updateProduct(existing, product);
+                return;
+            }
+            mutationCount++;
+            int position;
+            if (sortOrder != null) {
+                position = findInsertionPoint(product);
+                productList.add(position, product);
+            } else {
+                productList.add(product);
+                position = productList.size() - 1;
+            }
+            positionIndex.onInserted(position, product.getId());
+            notifyItemInserted(position);
+            for (OnProductsChangedListener changeListener : changeListeners) {
+                changeListener.onProductAdded(product);
+            }
         }
     }
     
     public void removeProduct(int position) {
+        if (pagedSource != null) {
+            Log.w(TAG, "removeProduct is not supported while a paged source is displayed");
+            return;
+        }
+        if (productStore != null) {
+            if (position >= 0 && position < productStore.size()) {
+                mutationCount++;
+                Product removed = productStore.remove(position);
+                notifyItemRemoved(position);
+                for (OnProductsChangedListener changeListener : changeListeners) {
+                    changeListener.onProductRemoved(removed);
+                }
+            }
+            return;
+        }
         if (position >= 0 && position < productList.size()) {
-            productList.remove(position);
+            mutationCount++;
+            Product removed = productList.remove(position);
+            positionIndex.onRemoved(position, removed.getId());
             notifyItemRemoved(position);
+            for (OnProductsChangedListener changeListener : changeListeners) {
+                changeListener.onProductRemoved(removed);
+            }
         }
     }
     
     public void updateProduct(int position, Product product) {
+        if (pagedSource != null) {
+            updateProduct(position, product, ProductPayload.ALL);
+            return;
+        }
+        if (position >= 0 && position < getItemCount() && product != null) {
+            Product oldProduct = getProduct(position);
+            if (oldProduct == product || product instanceof ProductStore.ProductView) {
+                // Mutated in place or through a store view, the changed fields are unknown
+                updateProduct(position, product, ProductPayload.ALL);
+            } else {
+                updateProduct(position, product, ProductPayload.diff(oldProduct, product));
+            }
+        }
+    }
+    
+    /**
+     * Update a product and rebind only the views for the given fields
+     * 
+     * @param position Adapter position of the product
+     * @param product The updated product
+     * @param changedFields Bitmask of ProductPayload field flags
+     */
+    public void updateProduct(int position, Product product, int changedFields) {
+        if (pagedSource != null) {
+            // Paged products can only be mutated in place
+            if (product != null && product == pagedSource.peek(position)) {
+                notifyItemChanged(position, new ProductPayload(changedFields));
+            }
+            return;
+        }
+        if (productStore != null) {
+            updateInStore(position, product, changedFields);
+            return;
+        }
         if (position >= 0 && position < productList.size() && product != null) {
-            productList.set(position, product);
+            int oldId = productList.get(position).getId();
+            if (oldId != product.getId() && getPositionById(product.getId()) != RecyclerView.NO_POSITION) {
+                Log.w(TAG, "Product " + product.getId() + " is already displayed at another position");
+                return;
+            }
+            mutationCount++;
+            Product oldProduct = productList.set(position, product);
+            boolean replaced = oldId != product.getId();
+            if (replaced) {
+                positionIndex.onReplaced(position, oldId, product.getId());
+            }
+            if (sortOrder != null && !isInOrder(position)) {
+                // Move to the new sorted position instead of resorting the list
+                productList.remove(position);
+                int newPosition = findInsertionPoint(product);
+                productList.add(newPosition, product);
+                positionIndex.onMoved(position, newPosition, product.getId());
+                notifyItemMoved(position, newPosition);
+                position = newPosition;
+            }
+            notifyProductChanged(position, changedFields);
+            for (OnProductsChangedListener changeListener : changeListeners) {
+                if (replaced) {
+                    changeListener.onProductRemoved(oldProduct);
+                }
+                changeListener.onProductUpdated(product);
+            }
+        }
+    }
+    
+    private void notifyProductChanged(int position, int changedFields) {
+        if (changedFields == ProductPayload.ALL) {
             notifyItemChanged(position);
+        } else if (changedFields != 0) {
+            notifyItemChanged(position, new ProductPayload(changedFields));
+        }
+    }
+    
+    private void addToStore(Product product) {
+        if (product == null) {
+            return;
+        }
+        mutationCount++;
+        int oldSize = productStore.size();
+        int slot = productStore.add(product);
+        if (productStore.size() > oldSize) {
+            notifyItemInserted(slot);
+            for (OnProductsChangedListener changeListener : changeListeners) {
+                changeListener.onProductAdded(product);
+            }
+        } else {
+            // The store already held this id and overwrote it
+            notifyItemChanged(slot);
+            for (OnProductsChangedListener changeListener : changeListeners) {
+                changeListener.onProductUpdated(product);
+            }
+        }
+    }
+    
+    private void updateInStore(int position, Product product, int changedFields) {
+        if (position < 0 || position >= productStore.size() || product == null) {
+            return;
+        }
+        int oldId = productStore.getId(position);
+        if (oldId != product.getId() && productStore.contains(product.getId())) {
+            Log.w(TAG, "Product " + product.getId() + " is already displayed at another position");
+            return;
+        }
+        mutationCount++;
+        Product oldProduct = oldId != product.getId() ? productStore.copy(position) : null;
+        productStore.set(position, product);
+        notifyProductChanged(position, changedFields);
+        for (OnProductsChangedListener changeListener : changeListeners) {
+            if (oldProduct != null) {
+                changeListener.onProductRemoved(oldProduct);
+            }
+            changeListener.onProductUpdated(product);
+        }
+    }
+    
+    /**
+     * Check if the product at a position is still ordered relative to its neighbours
+     */
+    private boolean isInOrder(int position) {
+        Product product = productList.get(position);
+        if (position > 0 && sortOrder.compare(productList.get(position - 1), product) > 0) {
+            return false;
+        }
+        return position >= productList.size() - 1
+                || sortOrder.compare(product, productList.get(position + 1)) <= 0;
+    }
+    
+    /**
+     * Find the adapter position of a product by its id
+     * Backed by an id -> position index that mutations keep current, so lookups do not
+     * scan the list; see ProductPositionIndex.
+     * 
+     * @param productId The product id
+     * @return The position, or RecyclerView.NO_POSITION if the product is not displayed
+     */
+    public int getPositionById(int productId) {
+        if (pagedSource != null) {
+            return pagedSource.findLoadedPosition(productId);
+        }
+        if (productStore != null) {
+            int slot = productStore.indexOf(productId);
+            return slot >= 0 ? slot : RecyclerView.NO_POSITION;
+        }
+        
+        int position = positionIndex.get(productId);
+        if (position == ProductPositionIndex.NO_POSITION) {
+            return RecyclerView.NO_POSITION;
+        }
+        if (!positionIndex.isCurrent(position, productId)) {
+            // The list was edited or shrunk without telling the index, e.g. through the list passed in
+            Log.w(TAG, "Product position index out of date, rebuilding");
+            positionIndex.invalidate();
+            position = positionIndex.get(productId);
+        }
+        return position;
+    }
+    
+    /**
+     * Show stock changes from an inventory, e.g. one updated by a background sync
+     * The engine may change on any thread; rows are rebound on the main thread when a
+     * displayed product's availability flips. Pass null to stop listening.
+     */
+    public void setInventory(InventoryEngine inventory) {
+        if (this.inventory != null) {
+            this.inventory.removeOnAvailabilityChangedListener(availabilityListener);
+        }
+        this.inventory = inventory;
+        if (inventory != null) {
+            inventory.addOnAvailabilityChangedListener(availabilityListener);
+        }
+    }
+    
+    private void showStock(int productId) {
+        if (inventory == null) {
+            return;
+        }
+        int position = getPositionById(productId);
+        if (position == RecyclerView.NO_POSITION) {
+            return;
+        }
+        Product product = getProduct(position);
+        if (product != null && inventory.applyTo(product)) {
+            updateProduct(position, product, ProductPayload.QUANTITY | ProductPayload.AVAILABILITY);
+        }
+    }
+    
+    /**
+     * Replace the displayed product with the same id
+     * 
+     * @return true if a product with that id was found
+     */
+    public boolean updateProductById(Product product) {
+        return product != null && updateProductById(product, ProductPayload.ALL);
+    }
+    
+    /**
+     * Replace the displayed product with the same id, rebinding only the given fields
+     * 
+     * @param product The updated product
+     * @param changedFields Bitmask of ProductPayload field flags
+     * @return true if a product with that id was found
+     */
+    public boolean updateProductById(Product product, int changedFields) {
+        if (product == null) {
+            return false;
+        }
+        int position = getPositionById(product.getId());
+        if (position == RecyclerView.NO_POSITION) {
+            return false;
+        }
+        updateProduct(position, product, changedFields);
+        return true;
+    }
+    
+    /**
+     * Remove the displayed product with the given id
+     * 
+     * @return true if a product with that id was found
+     */
+    public boolean removeProductById(int productId) {
+        int position = getPositionById(productId);
+        if (position == RecyclerView.NO_POSITION) {
+            return false;
+        }
+        removeProduct(position);
+        return true;
+    }
+    
+    /**
+     * Start a batch of adds, removes and updates that is applied in one go
+     * Use for bulk syncs instead of many single-product calls: see applyBatch().
+     */
+    public ProductBatch beginBatch() {
+        return new ProductBatch(this);
+    }
+    
+    /**
+     * Apply a committed batch
+     * Removals go first, then updates in place, then insertions. Adjacent events are merged
+     * into range notifications and all of them are sent within this call, so RecyclerView
+     * handles the whole batch in a single layout pass. Listeners are notified afterwards.
+     */
+    void applyBatch(ProductBatch batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        if (pagedSource != null) {
+            // Paged products can only be mutated in place
+            boolean unsupported = !batch.removes.isEmpty();
+            for (Product product : batch.adds.values()) {
+                unsupported |= !updateProductById(product, ProductPayload.ALL);
+            }
+            if (unsupported) {
+                Log.w(TAG, "Batch adds and removes are not supported while a paged source is displayed");
+            }
+            for (Product product : batch.updates.values()) {
+                updateProductById(product, batch.updateFields.get(product.getId()));
+            }
+            return;
+        }
+        
+        mutationCount++;
+        BatchingListUpdateCallback callback = new BatchingListUpdateCallback(new AdapterListUpdateCallback(this));
+        if (productStore != null) {
+            applyBatchToStore(batch, callback);
+            return;
+        }
+        
+        // Remove from the end so the remaining positions stay valid
+        int[] removePositions = new int[batch.removes.size()];
+        int removeCount = 0;
+        for (int productId : batch.removes) {
+            int position = getPositionById(productId);
+            if (position != RecyclerView.NO_POSITION) {
+                removePositions[removeCount++] = position;
+            }
+        }
+        Arrays.sort(removePositions, 0, removeCount);
+        List<Product> removed = new ArrayList<>(removeCount);
+        for (int i = removeCount - 1; i >= 0; i--) {
+            Product product = productList.remove(removePositions[i]);
+            positionIndex.onRemoved(removePositions[i], product.getId());
+            removed.add(product);
+            callback.onRemoved(removePositions[i], 1);
+        }
+        
+        // Adding a product that is still displayed replaces it, so no id is shown twice
+        List<Product> inserts = new ArrayList<>(batch.adds.size());
+        for (Product product : batch.adds.values()) {
+            if (getPositionById(product.getId()) != RecyclerView.NO_POSITION) {
+                batch.updates.put(product.getId(), product);
+                batch.updateFields.put(product.getId(), ProductPayload.ALL);
+            } else {
+                inserts.add(product);
+            }
+        }
+        List<Product> added = new ArrayList<>(inserts);
+        
+        int[] updatePositions = new int[batch.updates.size()];
+        int updateCount = 0;
+        List<Product> updated = new ArrayList<>(batch.updates.size());
+        for (Product product : batch.updates.values()) {
+            int position = getPositionById(product.getId());
+            if (position != RecyclerView.NO_POSITION) {
+                productList.set(position, product);
+                updatePositions[updateCount++] = position;
+                updated.add(product);
+            }
+        }
+        Arrays.sort(updatePositions, 0, updateCount);
+        
+        List<Product> changed;
+        if (sortOrder != null && updateCount > 0) {
+            changed = removeMisplaced(updatePositions, updateCount, inserts, callback);
+        } else {
+            changed = updated;
+        }
+        
+        if (!inserts.isEmpty()) {
+            if (sortOrder != null) {
+                // Ascending, so neighbouring insertions merge into ranges
+                Collections.sort(inserts, sortOrder);
+                for (Product product : inserts) {
+                    int position = findInsertionPoint(product);
+                    productList.add(position, product);
+                    positionIndex.onInserted(position, product.getId());
+                    callback.onInserted(position, 1);
+                }
+            } else {
+                int start = productList.size();
+                for (Product product : inserts) {
+                    productList.add(product);
+                    positionIndex.onInserted(productList.size() - 1, product.getId());
+                }
+                callback.onInserted(start, inserts.size());
+            }
+        }
+        
+        dispatchBatchChanges(batch, changed, callback);
+        callback.dispatchLastEvent();
+        notifyBatchListeners(removed, updated, added);
+    }
+    
+    private void applyBatchToStore(ProductBatch batch, BatchingListUpdateCallback callback) {
+        // Removed slots are compacted in a single pass over the store
+        int[] removeSlots = new int[batch.removes.size()];
+        int removeCount = 0;
+        for (int productId : batch.removes) {
+            int slot = productStore.indexOf(productId);
+            if (slot >= 0) {
+                removeSlots[removeCount++] = slot;
+            }
+        }
+        Arrays.sort(removeSlots, 0, removeCount);
+        List<Product> removed = new ArrayList<>(removeCount);
+        for (int i = removeCount - 1; i >= 0; i--) {
+            removed.add(productStore.copy(removeSlots[i]));
+            callback.onRemoved(removeSlots[i], 1);
+        }
+        productStore.removeSlots(removeSlots, removeCount);
+        
+        List<Product> updated = new ArrayList<>(batch.updates.size());
+        for (Product product : batch.updates.values()) {
+            int slot = productStore.indexOf(product.getId());
+            if (slot >= 0) {
+                productStore.set(slot, product);
+                updated.add(product);
+            }
+        }
+        
+        List<Product> added = new ArrayList<>(batch.adds.size());
+        int start = productStore.size();
+        for (Product product : batch.adds.values()) {
+            if (productStore.contains(product.getId())) {
+                // Already stored, overwrite it in place
+                productStore.add(product);
+                updated.add(product);
+                batch.updateFields.put(product.getId(), ProductPayload.ALL);
+            } else {
+                productStore.add(product);
+                added.add(product);
+            }
+        }
+        if (!added.isEmpty()) {
+            callback.onInserted(start, added.size());
+        }
+        
+        dispatchBatchChanges(batch, updated, callback);
+        callback.dispatchLastEvent();
+        notifyBatchListeners(removed, updated, added);
+    }
+    
+    private void notifyBatchListeners(List<Product> removed, List<Product> updated, Collection<Product> added) {
+        for (OnProductsChangedListener changeListener : changeListeners) {
+            for (Product product : removed) {
+                changeListener.onProductRemoved(product);
+            }
+            for (Product product : updated) {
+                changeListener.onProductUpdated(product);
+            }
+            for (Product product : added) {
+                changeListener.onProductAdded(product);
+            }
+        }
+    }
+    
+    /**
+     * Take updated products whose sorted position changed out of the list
+     * Products that were not updated are still sorted, so an updated product can stay if it
+     * belongs between the same two of them as before and is in order with the updated
+     * products next to it. The others are removed and queued for re-insertion.
+     * 
+     * @param positions Sorted positions of the updated products
+     * @param count Number of valid entries in positions
+     * @param reinserts Receives the removed products
+     * @return The updated products left in place
+     */
+    private List<Product> removeMisplaced(int[] positions, int count, List<Product> reinserts,
+                                          ListUpdateCallback callback) {
+        List<Product> unchanged = new ArrayList<>(productList.size() - count);
+        // Number of unchanged products before each updated one
+        int[] slots = new int[count];
+        int next = 0;
+        for (int i = 0; i < productList.size(); i++) {
+            if (next < count && positions[next] == i) {
+                slots[next++] = unchanged.size();
+            } else {
+                unchanged.add(productList.get(i));
+            }
+        }
+        
+        boolean[] moving = new boolean[count];
+        for (int i = 0; i < count; i++) {
+            int index = Collections.binarySearch(unchanged, productList.get(positions[i]), sortOrder);
+            moving[i] = (index >= 0 ? index : -index - 1) != slots[i];
+        }
+        // Products staying in the same slot must also be in order among themselves
+        int groupStart = 0;
+        for (int i = 1; i <= count; i++) {
+            if (i < count && slots[i] == slots[groupStart]) {
+                continue;
+            }
+            Product previous = null;
+            boolean ordered = true;
+            for (int j = groupStart; j < i && ordered; j++) {
+                if (moving[j]) continue;
+                Product product = productList.get(positions[j]);
+                ordered = previous == null || sortOrder.compare(previous, product) <= 0;
+                previous = product;
+            }
+            if (!ordered) {
+                Arrays.fill(moving, groupStart, i, true);
+            }
+            groupStart = i;
+        }
+        
+        List<Product> staying = new ArrayList<>(count);
+        for (int i = count - 1; i >= 0; i--) {
+            if (moving[i]) {
+                Product product = productList.remove(positions[i]);
+                positionIndex.onRemoved(positions[i], product.getId());
+                reinserts.add(product);
+                callback.onRemoved(positions[i], 1);
+            } else {
+                staying.add(productList.get(positions[i]));
+            }
+        }
+        return staying;
+    }
+    
+    /**
+     * Send change events for updated products at their final positions
+     * Runs of adjacent products with the same changed fields share one range event.
+     */
+    private void dispatchBatchChanges(ProductBatch batch, List<Product> changed, ListUpdateCallback callback) {
+        // Position in the high half, changed fields in the low half, so sorting orders by position
+        long[] changes = new long[changed.size()];
+        int count = 0;
+        for (Product product : changed) {
+            int fields = batch.updateFields.get(product.getId());
+            int position = getPositionById(product.getId());
+            if (fields != 0 && position != RecyclerView.NO_POSITION) {
+                changes[count++] = ((long) position << 32) | (fields & 0xFFFFFFFFL);
+            }
+        }
+        Arrays.sort(changes, 0, count);
+        
+        int i = 0;
+        while (i < count) {
+            int start = (int) (changes[i] >>> 32);
+            int fields = (int) changes[i];
+            int end = i + 1;
+            while (end < count && (int) (changes[end] >>> 32) == start + (end - i) && (int) changes[end] == fields) {
+                end++;
+            }
+            callback.onChanged(start, end - i, fields == ProductPayload.ALL ? null : new ProductPayload(fields));
+            i = end;
         }
     }
     
     public Product getProduct(int position) {
+        if (pagedSource != null) {
+            return pagedSource.peek(position);
+        }
+        if (productStore != null) {
+            return position >= 0 && position < productStore.size() ? productStore.get(position) : null;
+        }
         if (position >= 0 && position < productList.size()) {
             return productList.get(position);
         }
@@ -100,11 +1022,17 @@ public class ProductAdapter extends RecyclerView.Adapter<ProductAdapter.ProductV
     }
     
     public void clearProducts() {
+        detachSources();
+        diffGeneration++;
         productList.clear();
+        positionIndex.invalidate();
         notifyDataSetChanged();
     }
     
-    public class ProductViewHolder extends RecyclerView.ViewHolder {
+    /**
+     * Static so holders kept in a shared RecycledViewPool can be bound by any ProductAdapter
+     */
+    public static class ProductViewHolder extends RecyclerView.ViewHolder {
         
         private ImageView productImage;
         private TextView productName;
@@ -112,6 +1040,9 @@ public class ProductAdapter extends RecyclerView.Adapter<ProductAdapter.ProductV
         private TextView productPrice;
         private TextView productCategory;
         private TextView productQuantity;
+        // Pixel size of img_product, requested from Glide so it never decodes full-size images
+        private final int imageWidth;
+        private final int imageHeight;
         
         public ProductViewHolder(@NonNull View itemView) {
             super(itemView);
@@ -122,17 +1053,31 @@ public class ProductAdapter extends RecyclerView.Adapter<ProductAdapter.ProductV
             productPrice = itemView.findViewById(R.id.tv_product_price);
             productCategory = itemView.findViewById(R.id.tv_product_category);
             productQuantity = itemView.findViewById(R.id.tv_product_quantity);
+            imageWidth = productImage.getLayoutParams().width;
+            imageHeight = productImage.getLayoutParams().height;
             
             // Set click listeners
             itemView.setOnClickListener(v -> {
-                if (listener != null && getAdapterPosition() != RecyclerView.NO_POSITION) {
-                    listener.onProductClick(productList.get(getAdapterPosition()), getAdapterPosition());
+                ProductAdapter adapter = (ProductAdapter) getBindingAdapter();
+                int position = getBindingAdapterPosition();
+                if (adapter == null || adapter.listener == null || position == RecyclerView.NO_POSITION) {
+                    return;
+                }
+                Product product = adapter.getProduct(position);
+                if (product != null) {
+                    adapter.listener.onProductClick(product, position);
                 }
             });
             
             itemView.setOnLongClickListener(v -> {
-                if (listener != null && getAdapterPosition() != RecyclerView.NO_POSITION) {
-                    listener.onProductLongClick(productList.get(getAdapterPosition()), getAdapterPosition());
+                ProductAdapter adapter = (ProductAdapter) getBindingAdapter();
+                int position = getBindingAdapterPosition();
+                if (adapter == null || adapter.listener == null || position == RecyclerView.NO_POSITION) {
+                    return false;
+                }
+                Product product = adapter.getProduct(position);
+                if (product != null) {
+                    adapter.listener.onProductLongClick(product, position);
                     return true;
                 }
                 return false;
@@ -140,26 +1085,73 @@ public class ProductAdapter extends RecyclerView.Adapter<ProductAdapter.ProductV
         }
         
         public void bind(Product product) {
-            productName.setText(product.getName());
-            productDescription.setText(product.getDescription());
-            productPrice.setText(product.getFormattedPrice());
-            productCategory.setText(product.getCategory());
-            productQuantity.setText("Qty: " + product.getQuantity());
-            
+            bindChanges(product, ProductPayload.ALL);
+        }
+        
+        /**
+         * Bind an empty row for a product whose page is still loading
+         */
+        public void bindPlaceholder() {
+            productName.setText("Loading...");
+            productDescription.setText("");
+            productPrice.setText("");
+            productCategory.setText("");
+            productQuantity.setText("");
+            clearImage();
+            productImage.setImageResource(R.drawable.ic_launcher_foreground);
+            itemView.setAlpha(0.5f);
+        }
+        
+        /**
+         * Rebind only the views affected by the given ProductPayload flags
+         */
+        public void bindChanges(Product product, int changes) {
+            if ((changes & ProductPayload.NAME) != 0) {
+                productName.setText(product.getName());
+            }
+            if ((changes & ProductPayload.DESCRIPTION) != 0) {
+                productDescription.setText(product.getDescription());
+            }
+            if ((changes & ProductPayload.PRICE) != 0) {
+                productPrice.setText(ProductRowFormatter.getDefault().formatPrice(product.getPrice()));
+            }
+            if ((changes & ProductPayload.CATEGORY) != 0) {
+                productCategory.setText(product.getCategory());
+            }
+            if ((changes & ProductPayload.QUANTITY) != 0) {
+                productQuantity.setText(ProductRowFormatter.getDefault().formatQuantity(product.getQuantity()));
+            }
+            if ((changes & ProductPayload.IMAGE) != 0) {
+                bindImage(product);
+            }
+            if ((changes & ProductPayload.AVAILABILITY) != 0) {
+                // Set alpha based on availability
+                float alpha = product.isAvailable() ? 1.0f : 0.5f;
+                itemView.setAlpha(alpha);
+            }
+        }
+        
+        private void bindImage(Product product) {
             // Load image using Glide
             if (product.getImageUrl() != null && !product.getImageUrl().isEmpty()) {
-                Glide.with(context)
+                Glide.with(itemView)
                         .load(product.getImageUrl())
+                        .centerCrop()
+                        .override(imageWidth, imageHeight)
                         .placeholder(R.drawable.ic_launcher_foreground) // Default placeholder
                         .error(R.drawable.ic_launcher_foreground) // Error image
                         .into(productImage);
             } else {
+                clearImage();
                 productImage.setImageResource(R.drawable.ic_launcher_foreground);
             }
-            
-            // Set alpha based on availability
-            float alpha = product.isAvailable() ? 1.0f : 0.5f;
-            itemView.setAlpha(alpha);
+        }
+        
+        /**
+         * Cancel any image request for this row
+         */
+        public void clearImage() {
+            Glide.with(itemView).clear(productImage);
         }
     }
 }
@@ -0,0 +1,104 @@
+package com.example.prm392pe.adapters;
+
+import com.example.prm392pe.models.Product;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A set of product adds, removes and updates applied to a ProductAdapter at once
+ *
+ * Obtain one with ProductAdapter.beginBatch(), queue changes, then call commit() on the
+ * main thread. Products are addressed by id, so queued changes do not depend on positions
+ * shifting as earlier ones are applied. Changes to the same id are merged: removing a
+ * product drops any add or update queued for it, and adding one removed in the same
+ * batch cancels the removal. Adding a product that is displayed replaces it.
+ */
+public class ProductBatch {
+
+    private final ProductAdapter adapter;
+
+    // Keyed by product id, in the order the changes were queued
+    final Map<Integer, Product> adds = new LinkedHashMap<>();
+    final Map<Integer, Product> updates = new LinkedHashMap<>();
+    final Map<Integer, Integer> updateFields = new LinkedHashMap<>();
+    final Set<Integer> removes = new LinkedHashSet<>();
+
+    private boolean committed;
+
+    ProductBatch(ProductAdapter adapter) {
+        this.adapter = adapter;
+    }
+
+    public void add(Product product) {
+        if (product == null) return;
+        int id = product.getId();
+        // Removed and added again cancels the removal. Whether the add replaces a displayed
+        // product or inserts a new one is decided at commit, as for any other add
+        removes.remove(id);
+        adds.put(id, product);
+    }
+
+    public void update(Product product) {
+        update(product, ProductPayload.ALL);
+    }
+
+    /**
+     * Queue an update of the displayed product with the same id
+     *
+     * @param product The updated product
+     * @param changedFields Bitmask of ProductPayload field flags
+     */
+    public void update(Product product, int changedFields) {
+        if (product == null) return;
+        int id = product.getId();
+        if (adds.containsKey(id)) {
+            // Not displayed yet, the add will bind it fully
+            adds.put(id, product);
+            return;
+        }
+        updates.put(id, product);
+        Integer previous = updateFields.get(id);
+        updateFields.put(id, previous != null ? previous | changedFields : changedFields);
+    }
+
+    public void remove(int productId) {
+        // A cancelled add may have been replacing a displayed product, so the removal is
+        // still queued; commit skips ids that are not displayed
+        adds.remove(productId);
+        updates.remove(productId);
+        updateFields.remove(productId);
+        removes.add(productId);
+    }
+
+    public void remove(Product product) {
+        if (product != null) {
+            remove(product.getId());
+        }
+    }
+
+    /**
+     * Get the number of queued changes after merging
+     */
+    public int size() {
+        return adds.size() + updates.size() + removes.size();
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Apply every queued change to the adapter
+     * Must be called on the main thread. A batch can only be committed once.
+     */
+    public void commit() {
+        if (committed) {
+            throw new IllegalStateException("Batch already committed");
+        }
+        committed = true;
+        adapter.applyBatch(this);
+    }
+}
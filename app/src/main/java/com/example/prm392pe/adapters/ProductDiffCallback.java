@@ -0,0 +1,85 @@
+package com.example.prm392pe.adapters;
+
+import androidx.recyclerview.widget.DiffUtil;
+
+import com.example.prm392pe.data.IntIntHashMap;
+import com.example.prm392pe.models.Product;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * DiffUtil callback comparing two product lists
+ * Items are matched by product id, contents by the fields shown in a row
+ */
+public class ProductDiffCallback extends DiffUtil.Callback {
+
+    private final List<Product> oldList;
+    private final List<Product> newList;
+
+    public ProductDiffCallback(List<Product> oldList, List<Product> newList) {
+        this.oldList = oldList;
+        this.newList = newList;
+    }
+
+    @Override
+    public int getOldListSize() {
+        return oldList.size();
+    }
+
+    @Override
+    public int getNewListSize() {
+        return newList.size();
+    }
+
+    @Override
+    public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+        return oldList.get(oldItemPosition).getId() == newList.get(newItemPosition).getId();
+    }
+
+    @Override
+    public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+        return sameContents(oldList.get(oldItemPosition), newList.get(newItemPosition));
+    }
+
+    @Override
+    public Object getChangePayload(int oldItemPosition, int newItemPosition) {
+        int changes = ProductPayload.diff(oldList.get(oldItemPosition), newList.get(newItemPosition));
+        return changes != 0 ? new ProductPayload(changes) : null;
+    }
+
+    /**
+     * Check if two products would render the same row
+     */
+    public static boolean sameContents(Product oldProduct, Product newProduct) {
+        if (oldProduct == newProduct) return true;
+
+        return Double.compare(oldProduct.getPrice(), newProduct.getPrice()) == 0
+                && oldProduct.getQuantity() == newProduct.getQuantity()
+                && oldProduct.isAvailable() == newProduct.isAvailable()
+                && Objects.equals(oldProduct.getName(), newProduct.getName())
+                && Objects.equals(oldProduct.getDescription(), newProduct.getDescription())
+                && Objects.equals(oldProduct.getCategory(), newProduct.getCategory())
+                && Objects.equals(oldProduct.getImageUrl(), newProduct.getImageUrl());
+    }
+
+    /**
+     * Count the ids found in only one of the lists, in one pass over each list
+     * This is a lower bound on the inserts plus removes DiffUtil would find, and Myers'
+     * algorithm costs O(N + D^2) in that number D.
+     */
+    public static int countInsertsAndRemoves(List<Product> oldList, List<Product> newList) {
+        IntIntHashMap oldIds = new IntIntHashMap(oldList.size());
+        for (Product product : oldList) {
+            oldIds.put(product.getId(), 0);
+        }
+        int inserts = 0;
+        for (Product product : newList) {
+            if (!oldIds.remove(product.getId())) {
+                inserts++;
+            }
+        }
+        // Whatever is left was not matched by the new list
+        return inserts + oldIds.size();
+    }
+}
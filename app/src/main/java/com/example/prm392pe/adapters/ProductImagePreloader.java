@@ -0,0 +1,116 @@
+package com.example.prm392pe.adapters;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.RequestManager;
+import com.bumptech.glide.request.target.Target;
+import com.example.prm392pe.R;
+import com.example.prm392pe.models.Product;
+
+/**
+ * Scroll listener that preloads product images for the rows about to come into view
+ *
+ * Images for the next preloadCount rows in the scroll direction are requested at the
+ * exact pixel size of img_product, so the later bind hits Glide's memory cache. Only
+ * preloadCount requests are kept in flight; older ones, and all of them when the
+ * scroll direction flips, are cancelled so fast flings do not queue obsolete loads.
+ */
+public class ProductImagePreloader extends RecyclerView.OnScrollListener {
+
+    public static final int DEFAULT_PRELOAD_COUNT = 6;
+
+    private final ProductAdapter adapter;
+    private final RequestManager requestManager;
+    private final int preloadCount;
+    private final int imageSize;
+
+    // Ring of in-flight preload targets, cleared as they are replaced
+    private final Target<?>[] targets;
+    private int nextTarget;
+
+    private boolean scrollingDown = true;
+    // Last position a preload was issued for in the current direction
+    private int lastPreloadedPosition = RecyclerView.NO_POSITION;
+
+    public ProductImagePreloader(Context context, ProductAdapter adapter) {
+        this(context, adapter, DEFAULT_PRELOAD_COUNT);
+    }
+
+    public ProductImagePreloader(Context context, ProductAdapter adapter, int preloadCount) {
+        this.adapter = adapter;
+        this.requestManager = Glide.with(context);
+        this.preloadCount = Math.max(1, preloadCount);
+        this.imageSize = context.getResources().getDimensionPixelSize(R.dimen.product_image_size);
+        this.targets = new Target<?>[this.preloadCount];
+    }
+
+    @Override
+    public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+        if (dy == 0 || !(recyclerView.getLayoutManager() instanceof LinearLayoutManager)) {
+            return;
+        }
+
+        boolean down = dy > 0;
+        if (down != scrollingDown) {
+            scrollingDown = down;
+            lastPreloadedPosition = RecyclerView.NO_POSITION;
+            cancelAll();
+        }
+
+        LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+        if (down) {
+            int last = layoutManager.findLastVisibleItemPosition();
+            if (last == RecyclerView.NO_POSITION) return;
+            int from = Math.max(last + 1, lastPreloadedPosition + 1);
+            int to = Math.min(adapter.getItemCount() - 1, last + preloadCount);
+            for (int position = from; position <= to; position++) {
+                preload(position);
+            }
+        } else {
+            int first = layoutManager.findFirstVisibleItemPosition();
+            if (first == RecyclerView.NO_POSITION) return;
+            int from = lastPreloadedPosition == RecyclerView.NO_POSITION
+                    ? first - 1 : Math.min(first - 1, lastPreloadedPosition - 1);
+            int to = Math.max(0, first - preloadCount);
+            for (int position = from; position >= to; position--) {
+                preload(position);
+            }
+        }
+    }
+
+    /**
+     * Cancel every preload still in flight
+     */
+    public void cancelAll() {
+        for (int i = 0; i < targets.length; i++) {
+            if (targets[i] != null) {
+                requestManager.clear(targets[i]);
+                targets[i] = null;
+            }
+        }
+    }
+
+    private void preload(int position) {
+        lastPreloadedPosition = position;
+
+        Product product = adapter.getProduct(position);
+        if (product == null || product.getImageUrl() == null || product.getImageUrl().isEmpty()) {
+            return;
+        }
+
+        // Reuse the oldest slot, cancelling its request if it is still running
+        if (targets[nextTarget] != null) {
+            requestManager.clear(targets[nextTarget]);
+        }
+        // Same size and transformation as the bind so the request hits the memory cache
+        targets[nextTarget] = requestManager.load(product.getImageUrl())
+                .centerCrop()
+                .preload(imageSize, imageSize);
+        nextTarget = (nextTarget + 1) % targets.length;
+    }
+}
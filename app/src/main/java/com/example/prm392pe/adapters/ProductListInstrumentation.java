@@ -0,0 +1,227 @@
+package com.example.prm392pe.adapters;
+
+import android.util.Log;
+import android.view.Choreographer;
+import android.view.Display;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.prm392pe.utils.LatencyHistogram;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Opt-in performance instrumentation for the product list
+ *
+ * Records onCreateViewHolder and onBindViewHolder durations of a ProductAdapter in
+ * latency histograms, and counts slow and frozen frames while the attached
+ * RecyclerView is scrolling. Results are read through snapshot() or written with
+ * dumpToFile() so they can be compared between builds.
+ */
+public class ProductListInstrumentation {
+
+    private static final String TAG = "ProductListInstrumentation";
+
+    private static final double DEFAULT_FRAME_MILLIS = 1000.0 / 60;
+    // A frame taking longer than this many frame intervals counts as slow
+    private static final double SLOW_FRAME_FACTOR = 1.5;
+    private static final long FROZEN_FRAME_NANOS = 700_000_000L;
+
+    private final LatencyHistogram createHistogram = new LatencyHistogram();
+    private final LatencyHistogram bindHistogram = new LatencyHistogram();
+    private final LatencyHistogram frameHistogram = new LatencyHistogram();
+
+    private long slowFrameNanos = (long) (DEFAULT_FRAME_MILLIS * SLOW_FRAME_FACTOR * 1_000_000);
+    private long scrollFrames;
+    private long slowFrames;
+    private long frozenFrames;
+
+    private RecyclerView recyclerView;
+    private boolean scrolling;
+    private long lastFrameTimeNanos;
+
+    private final Choreographer.FrameCallback frameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            if (!scrolling) {
+                lastFrameTimeNanos = 0;
+                return;
+            }
+            if (lastFrameTimeNanos != 0) {
+                recordFrame(frameTimeNanos - lastFrameTimeNanos);
+            }
+            lastFrameTimeNanos = frameTimeNanos;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    };
+
+    private final RecyclerView.OnScrollListener scrollListener = new RecyclerView.OnScrollListener() {
+        @Override
+        public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
+            boolean nowScrolling = newState != RecyclerView.SCROLL_STATE_IDLE;
+            if (nowScrolling && !scrolling) {
+                scrolling = true;
+                lastFrameTimeNanos = 0;
+                Choreographer.getInstance().postFrameCallback(frameCallback);
+            } else if (!nowScrolling && scrolling) {
+                scrolling = false;
+                Choreographer.getInstance().removeFrameCallback(frameCallback);
+            }
+        }
+    };
+
+    /**
+     * Start counting frames while the given list scrolls
+     */
+    public void attach(RecyclerView recyclerView) {
+        detach();
+        this.recyclerView = recyclerView;
+
+        Display display = recyclerView.getDisplay();
+        if (display != null && display.getRefreshRate() > 0) {
+            double frameMillis = 1000.0 / display.getRefreshRate();
+            slowFrameNanos = (long) (frameMillis * SLOW_FRAME_FACTOR * 1_000_000);
+        }
+        recyclerView.addOnScrollListener(scrollListener);
+    }
+
+    /**
+     * Stop counting frames
+     */
+    public void detach() {
+        if (recyclerView != null) {
+            recyclerView.removeOnScrollListener(scrollListener);
+            recyclerView = null;
+        }
+        scrolling = false;
+        Choreographer.getInstance().removeFrameCallback(frameCallback);
+    }
+
+    public void recordCreate(long nanos) {
+        createHistogram.record(nanos);
+    }
+
+    public void recordBind(long nanos) {
+        bindHistogram.record(nanos);
+    }
+
+    private synchronized void recordFrame(long frameNanos) {
+        frameHistogram.record(frameNanos);
+        scrollFrames++;
+        if (frameNanos > slowFrameNanos) {
+            slowFrames++;
+        }
+        if (frameNanos > FROZEN_FRAME_NANOS) {
+            frozenFrames++;
+        }
+    }
+
+    /**
+     * Discard everything recorded so far
+     */
+    public synchronized void reset() {
+        createHistogram.reset();
+        bindHistogram.reset();
+        frameHistogram.reset();
+        scrollFrames = 0;
+        slowFrames = 0;
+        frozenFrames = 0;
+    }
+
+    /**
+     * Take an immutable copy of the current statistics
+     */
+    public synchronized Snapshot snapshot() {
+        return new Snapshot(this);
+    }
+
+    /**
+     * Write the current statistics as text to a file
+     *
+     * @return true if successful, false if failed
+     */
+    public boolean dumpToFile(File file) {
+        String report = snapshot().toString();
+        try (FileOutputStream fos = new FileOutputStream(file)) {
+            fos.write(report.getBytes(StandardCharsets.UTF_8));
+            Log.d(TAG, "Instrumentation report written to: " + file.getAbsolutePath());
+            return true;
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to write instrumentation report", e);
+            return false;
+        }
+    }
+
+    /**
+     * Point-in-time copy of the recorded statistics, durations in milliseconds
+     */
+    public static class Snapshot {
+        public final long createCount;
+        public final double createP50;
+        public final double createP95;
+        public final double createP99;
+        public final double createMax;
+
+        public final long bindCount;
+        public final double bindP50;
+        public final double bindP95;
+        public final double bindP99;
+        public final double bindMax;
+
+        public final long scrollFrames;
+        public final long slowFrames;
+        public final long frozenFrames;
+        public final double frameP50;
+        public final double frameP95;
+        public final double frameP99;
+
+        private Snapshot(ProductListInstrumentation source) {
+            LatencyHistogram create = source.createHistogram;
+            createCount = create.getCount();
+            createP50 = create.getPercentileMillis(50);
+            createP95 = create.getPercentileMillis(95);
+            createP99 = create.getPercentileMillis(99);
+            createMax = create.getMaxMillis();
+
+            LatencyHistogram bind = source.bindHistogram;
+            bindCount = bind.getCount();
+            bindP50 = bind.getPercentileMillis(50);
+            bindP95 = bind.getPercentileMillis(95);
+            bindP99 = bind.getPercentileMillis(99);
+            bindMax = bind.getMaxMillis();
+
+            LatencyHistogram frames = source.frameHistogram;
+            scrollFrames = source.scrollFrames;
+            slowFrames = source.slowFrames;
+            frozenFrames = source.frozenFrames;
+            frameP50 = frames.getPercentileMillis(50);
+            frameP95 = frames.getPercentileMillis(95);
+            frameP99 = frames.getPercentileMillis(99);
+        }
+
+        /**
+         * Share of scroll frames that were slow, between 0 and 1
+         */
+        public double getSlowFrameRatio() {
+            return scrollFrames == 0 ? 0 : (double) slowFrames / scrollFrames;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US,
+                    "=== PRODUCT LIST PERFORMANCE ===\n" +
+                    "onCreateViewHolder: count=%d p50=%.3fms p95=%.3fms p99=%.3fms max=%.3fms\n" +
+                    "onBindViewHolder: count=%d p50=%.3fms p95=%.3fms p99=%.3fms max=%.3fms\n" +
+                    "Scroll frames: count=%d slow=%d (%.1f%%) frozen=%d p50=%.2fms p95=%.2fms p99=%.2fms\n",
+                    createCount, createP50, createP95, createP99, createMax,
+                    bindCount, bindP50, bindP95, bindP99, bindMax,
+                    scrollFrames, slowFrames, getSlowFrameRatio() * 100, frozenFrames,
+                    frameP50, frameP95, frameP99);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.prm392pe.adapters;
+
+import com.example.prm392pe.models.Product;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Change payload describing which fields of a product row changed
+ * Passed to notifyItemChanged so only the affected views are rebound
+ */
+public final class ProductPayload {
+
+    public static final int NAME = 1;
+    public static final int DESCRIPTION = 1 << 1;
+    public static final int PRICE = 1 << 2;
+    public static final int QUANTITY = 1 << 3;
+    public static final int AVAILABILITY = 1 << 4;
+    public static final int IMAGE = 1 << 5;
+    public static final int CATEGORY = 1 << 6;
+    public static final int ALL = NAME | DESCRIPTION | PRICE | QUANTITY | AVAILABILITY | IMAGE | CATEGORY;
+
+    private final int changes;
+
+    public ProductPayload(int changes) {
+        this.changes = changes;
+    }
+
+    public int getChanges() {
+        return changes;
+    }
+
+    /**
+     * Check if the given field flag is part of this change
+     */
+    public boolean has(int field) {
+        return (changes & field) != 0;
+    }
+
+    /**
+     * Compute the field flags that differ between two versions of a product
+     *
+     * @return Bitmask of changed fields, 0 if the rows would render the same
+     */
+    public static int diff(Product oldProduct, Product newProduct) {
+        int changes = 0;
+        if (!Objects.equals(oldProduct.getName(), newProduct.getName())) changes |= NAME;
+        if (!Objects.equals(oldProduct.getDescription(), newProduct.getDescription())) changes |= DESCRIPTION;
+        if (Double.compare(oldProduct.getPrice(), newProduct.getPrice()) != 0) changes |= PRICE;
+        if (oldProduct.getQuantity() != newProduct.getQuantity()) changes |= QUANTITY;
+        if (oldProduct.isAvailable() != newProduct.isAvailable()) changes |= AVAILABILITY;
+        if (!Objects.equals(oldProduct.getImageUrl(), newProduct.getImageUrl())) changes |= IMAGE;
+        if (!Objects.equals(oldProduct.getCategory(), newProduct.getCategory())) changes |= CATEGORY;
+        return changes;
+    }
+
+    /**
+     * Merge the payloads RecyclerView collected for one bind into a single bitmask
+     * Unknown payload types fall back to a full rebind
+     */
+    public static int merge(List<Object> payloads) {
+        int changes = 0;
+        for (Object payload : payloads) {
+            if (payload instanceof ProductPayload) {
+                changes |= ((ProductPayload) payload).changes;
+            } else {
+                return ALL;
+            }
+        }
+        return changes;
+    }
+}
@@ -0,0 +1,215 @@
+package com.example.prm392pe.adapters;
+
+import com.example.prm392pe.data.IntIntHashMap;
+import com.example.prm392pe.models.Product;
+
+import java.util.List;
+
+/**
+ * Product id -> position index over a list that is edited in place
+ *
+ * Inserting or removing a row shifts every row after it. Instead of rewriting those
+ * entries, each shift goes into a short log. An entry remembers how much of the log it
+ * has already seen, and a lookup applies only the newer shifts before saving the result
+ * back. Lookups therefore cost at most MAX_SHIFTS steps, and a mutation costs O(1) plus
+ * one O(n) rebuild per MAX_SHIFTS shifts, which is less than the list's own array copy.
+ * Appending or removing the last row shifts nothing and is not logged.
+ *
+ * Ids are expected to be unique. For a duplicate, only the first occurrence is indexed.
+ * Supports up to 2^25 rows. Not thread-safe.
+ */
+class ProductPositionIndex {
+
+    static final int NO_POSITION = -1;
+
+    // Shifts kept before the index is rebuilt, the log index fits in the low bits of an entry
+    static final int MAX_SHIFTS = 63;
+    private static final int SHIFT_BITS = 6;
+
+    private final List<Product> products;
+    // id -> position << SHIFT_BITS | number of shifts already applied to that position
+    private final IntIntHashMap entries = new IntIntHashMap();
+    // A removal at p moves later rows up, an insertion at p moves rows from p on down
+    private final int[] shiftPositions = new int[MAX_SHIFTS];
+    private final boolean[] shiftInserts = new boolean[MAX_SHIFTS];
+    private int shiftCount;
+    private boolean stale = true;
+    private int duplicateCount;
+    private int rebuildCount;
+
+    ProductPositionIndex(List<Product> products) {
+        this.products = products;
+    }
+
+    /**
+     * @return The position of the product, or NO_POSITION if it is not in the list
+     */
+    int get(int productId) {
+        if (stale) {
+            rebuild();
+        }
+        int entry = entries.get(productId);
+        if (entry == IntIntHashMap.MISSING) {
+            return NO_POSITION;
+        }
+        int position = entry >>> SHIFT_BITS;
+        int seen = entry & MAX_SHIFTS;
+        if (seen < shiftCount) {
+            position = applyShifts(position, seen);
+            entries.put(productId, position << SHIFT_BITS | shiftCount);
+        }
+        return position;
+    }
+
+    /**
+     * Check a position from get() against the list, which may have been edited or shrunk
+     * without telling the index
+     */
+    boolean isCurrent(int position, int productId) {
+        return position >= 0 && position < products.size() && products.get(position).getId() == productId;
+    }
+
+    boolean contains(int productId) {
+        return get(productId) != NO_POSITION;
+    }
+
+    /**
+     * Rebuild on the next lookup, after the list was replaced or reordered
+     */
+    void invalidate() {
+        stale = true;
+        entries.clear();
+        shiftCount = 0;
+    }
+
+    /**
+     * Record a product inserted into the list at a position
+     */
+    void onInserted(int position, int productId) {
+        if (stale) {
+            return;
+        }
+        if (position < products.size() - 1 && !logShift(position, true)) {
+            return;
+        }
+        if (!entries.containsKey(productId)) {
+            entries.put(productId, position << SHIFT_BITS | shiftCount);
+        } else {
+            duplicateCount++;
+        }
+    }
+
+    /**
+     * Record a product removed from the list at a position
+     */
+    void onRemoved(int position, int productId) {
+        if (stale) {
+            return;
+        }
+        // A duplicate further down keeps the entry of the first occurrence
+        if (get(productId) == position) {
+            entries.remove(productId);
+            if (duplicateCount > 0) {
+                // The second occurrence, if any, is no longer indexed
+                invalidate();
+                return;
+            }
+        }
+        if (position < products.size()) {
+            logShift(position, false);
+        }
+    }
+
+    /**
+     * Record the product at a position replaced by another one
+     */
+    void onReplaced(int position, int oldProductId, int newProductId) {
+        if (stale || oldProductId == newProductId) {
+            return;
+        }
+        if (get(oldProductId) == position) {
+            entries.remove(oldProductId);
+        }
+        if (duplicateCount > 0 || entries.containsKey(newProductId)) {
+            invalidate();
+            return;
+        }
+        entries.put(newProductId, position << SHIFT_BITS | shiftCount);
+    }
+
+    /**
+     * Record a product moved from one position to another
+     */
+    void onMoved(int fromPosition, int toPosition, int productId) {
+        if (stale || fromPosition == toPosition) {
+            return;
+        }
+        entries.remove(productId);
+        if (!logShift(fromPosition, false) || !logShift(toPosition, true)) {
+            return;
+        }
+        entries.put(productId, toPosition << SHIFT_BITS | shiftCount);
+    }
+
+    /**
+     * Get the number of duplicate ids found by the last rebuild and later inserts
+     */
+    int getDuplicateCount() {
+        if (stale) {
+            rebuild();
+        }
+        return duplicateCount;
+    }
+
+    /**
+     * Get the number of full rebuilds, each costing one pass over the list
+     */
+    int getRebuildCount() {
+        return rebuildCount;
+    }
+
+    /**
+     * @return false if the log was full and the index is now stale
+     */
+    private boolean logShift(int position, boolean insert) {
+        if (shiftCount == MAX_SHIFTS) {
+            // Rebuilt on the next lookup, so a burst of changes pays for one rebuild
+            invalidate();
+            return false;
+        }
+        shiftPositions[shiftCount] = position;
+        shiftInserts[shiftCount] = insert;
+        shiftCount++;
+        return true;
+    }
+
+    private int applyShifts(int position, int from) {
+        for (int i = from; i < shiftCount; i++) {
+            if (shiftInserts[i]) {
+                if (position >= shiftPositions[i]) {
+                    position++;
+                }
+            } else if (position > shiftPositions[i]) {
+                position--;
+            }
+        }
+        return position;
+    }
+
+    private void rebuild() {
+        entries.clear();
+        entries.ensureCapacity(products.size());
+        shiftCount = 0;
+        duplicateCount = 0;
+        for (int i = 0; i < products.size(); i++) {
+            int id = products.get(i).getId();
+            if (entries.containsKey(id)) {
+                duplicateCount++;
+            } else {
+                entries.put(id, i << SHIFT_BITS);
+            }
+        }
+        stale = false;
+        rebuildCount++;
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.prm392pe.adapters;
+
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+/**
+ * Price and quantity text for product rows without per-bind allocation
+ *
+ * Prices are formatted by hand into a reused char buffer using the locale's decimal and
+ * grouping separators, and the resulting strings are memoized in a small direct-mapped
+ * cache keyed by the price in cents. Quantity labels are cached per value. Scrolling a
+ * list whose rows repeat prices and quantities therefore produces no garbage.
+ *
+ * Not thread-safe; intended for use on the main thread during binding.
+ */
+public class ProductRowFormatter {
+
+    private static final int PRICE_CACHE_SIZE = 256;
+    private static final int QUANTITY_CACHE_SIZE = 1024;
+    private static final String QUANTITY_PREFIX = "Qty: ";
+
+    private static ProductRowFormatter defaultInstance;
+
+    private final String currencySymbol;
+    private final char decimalSeparator;
+    private final char groupingSeparator;
+    private final boolean useGrouping;
+    private final Locale locale;
+
+    private final char[] buffer = new char[48];
+    private final long[] priceKeys = new long[PRICE_CACHE_SIZE];
+    private final String[] priceValues = new String[PRICE_CACHE_SIZE];
+    private final String[] quantityValues = new String[QUANTITY_CACHE_SIZE];
+
+    public ProductRowFormatter(Locale locale) {
+        this(locale, "$", false);
+    }
+
+    /**
+     * @param locale Locale supplying the decimal and grouping separators
+     * @param currencySymbol Symbol prepended to every price
+     * @param useGrouping Whether to separate thousands
+     */
+    public ProductRowFormatter(Locale locale, String currencySymbol, boolean useGrouping) {
+        DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(locale);
+        this.currencySymbol = currencySymbol;
+        this.decimalSeparator = symbols.getDecimalSeparator();
+        this.groupingSeparator = symbols.getGroupingSeparator();
+        this.useGrouping = useGrouping;
+        this.locale = locale;
+    }
+
+    /**
+     * Get the shared formatter for the current default locale
+     * Matches the "$%.2f" output of Product.getFormattedPrice()
+     */
+    public static ProductRowFormatter getDefault() {
+        Locale locale = Locale.getDefault();
+        if (defaultInstance == null || !locale.equals(defaultInstance.locale)) {
+            defaultInstance = new ProductRowFormatter(locale);
+        }
+        return defaultInstance;
+    }
+
+    /**
+     * Format a price, rounded to cents
+     */
+    public String formatPrice(double price) {
+        long cents = Math.round(price * 100);
+        int slot = (int) ((cents ^ (cents >>> 32)) * 0x9E3779B1L >>> 24) & (PRICE_CACHE_SIZE - 1);
+
+        String cached = priceValues[slot];
+        if (cached != null && priceKeys[slot] == cents) {
+            return cached;
+        }
+
+        String formatted = formatCents(cents);
+        priceKeys[slot] = cents;
+        priceValues[slot] = formatted;
+        return formatted;
+    }
+
+    /**
+     * Format a quantity label such as "Qty: 12"
+     */
+    public String formatQuantity(int quantity) {
+        if (quantity >= 0 && quantity < QUANTITY_CACHE_SIZE) {
+            String cached = quantityValues[quantity];
+            if (cached == null) {
+                cached = QUANTITY_PREFIX + quantity;
+                quantityValues[quantity] = cached;
+            }
+            return cached;
+        }
+        return QUANTITY_PREFIX + quantity;
+    }
+
+    private String formatCents(long cents) {
+        boolean negative = cents < 0;
+        long value = Math.abs(cents);
+
+        // Fill the buffer from the end: cents, separator, then grouped whole units
+        int pos = buffer.length;
+        buffer[--pos] = (char) ('0' + value % 10);
+        value /= 10;
+        buffer[--pos] = (char) ('0' + value % 10);
+        value /= 10;
+        buffer[--pos] = decimalSeparator;
+
+        int digits = 0;
+        do {
+            if (useGrouping && digits > 0 && digits % 3 == 0) {
+                buffer[--pos] = groupingSeparator;
+            }
+            buffer[--pos] = (char) ('0' + value % 10);
+            value /= 10;
+            digits++;
+        } while (value > 0);
+
+        // Sign after the symbol, as String.format("$%.2f") does
+        if (negative) {
+            buffer[--pos] = '-';
+        }
+        for (int i = currencySymbol.length() - 1; i >= 0; i--) {
+            buffer[--pos] = currencySymbol.charAt(i);
+        }
+        return new String(buffer, pos, buffer.length - pos);
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.prm392pe.adapters;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.example.prm392pe.data.ProductSearchIndex;
+import com.example.prm392pe.models.Product;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Incremental product search driving a ProductAdapter
+ *
+ * Keystrokes are debounced, queries run against the ProductSearchIndex on a background
+ * thread, and results are published with submitProducts(), which animates small changes
+ * with granular diffs and swaps the list outright when a query adds or drops many rows.
+ * Results of a query superseded by newer input are dropped.
+ *
+ * The controller keeps the index in sync with single-product changes made through the
+ * adapter. Call setQuery() and release() on the main thread.
+ */
+public class ProductSearchController implements ProductAdapter.OnProductsChangedListener {
+
+    public static final long DEFAULT_DEBOUNCE_MILLIS = 150;
+
+    private final ProductAdapter adapter;
+    private final ProductSearchIndex index;
+    private final long debounceMillis;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable runQuery = this::runQuery;
+
+    private String query = "";
+    // Incremented per query so only the latest result is published
+    private int generation;
+
+    public ProductSearchController(ProductAdapter adapter, ProductSearchIndex index) {
+        this(adapter, index, DEFAULT_DEBOUNCE_MILLIS);
+    }
+
+    public ProductSearchController(ProductAdapter adapter, ProductSearchIndex index, long debounceMillis) {
+        this.adapter = adapter;
+        this.index = index;
+        this.debounceMillis = debounceMillis;
+        adapter.addOnProductsChangedListener(this);
+    }
+
+    /**
+     * Set the search text, running the query once typing pauses
+     */
+    public void setQuery(String newQuery) {
+        String normalized = newQuery != null ? newQuery.trim() : "";
+        if (normalized.equals(query)) {
+            return;
+        }
+        query = normalized;
+        mainHandler.removeCallbacks(runQuery);
+        mainHandler.postDelayed(runQuery, debounceMillis);
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    /**
+     * Stop listening to the adapter and cancel pending queries
+     */
+    public void release() {
+        generation++;
+        mainHandler.removeCallbacks(runQuery);
+        adapter.removeOnProductsChangedListener(this);
+        executor.shutdownNow();
+    }
+
+    private void runQuery() {
+        final int queryGeneration = ++generation;
+        final String queryText = query;
+
+        executor.execute(() -> {
+            final List<Product> results = index.search(queryText);
+            mainHandler.post(() -> {
+                if (queryGeneration == generation) {
+                    adapter.submitProducts(results);
+                }
+            });
+        });
+    }
+
+    @Override
+    public void onProductAdded(Product product) {
+        index.add(product);
+    }
+
+    @Override
+    public void onProductUpdated(Product product) {
+        index.update(product);
+    }
+
+    @Override
+    public void onProductRemoved(Product product) {
+        index.remove(product);
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.prm392pe.adapters;
+
+import android.content.Context;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.util.Log;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.widget.FrameLayout;
+
+import androidx.annotation.MainThread;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.prm392pe.R;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+
+/**
+ * Pre-inflated product rows and a RecycledViewPool shared by every product list of an activity
+ *
+ * warmUp() inflates item views on the main thread while it is idle, one row per idle pass,
+ * before the list is shown. ProductAdapter takes those views instead of inflating in
+ * onCreateViewHolder. The RecycledViewPool outlives fragment replacement, so returning to
+ * the product list reuses the rows it had before instead of inflating new ones.
+ *
+ * One pool is kept per activity. The activity should hold on to the pool it gets, since
+ * neither the shared instance nor the pool itself keeps the activity alive; call release()
+ * from onDestroy to drop the rows early. Main thread only.
+ */
+public class ProductViewPool {
+
+    private static final String TAG = "ProductViewPool";
+
+    public static final int DEFAULT_WARM_UP_COUNT = 10;
+    private static final int MAX_RECYCLED_VIEWS = 20;
+
+    private static WeakReference<ProductViewPool> instance = new WeakReference<>(null);
+
+    // Rows are themed with the activity, which is only referenced weakly
+    private final WeakReference<Context> contextRef;
+    private final RecyclerView.RecycledViewPool recycledViewPool = new RecyclerView.RecycledViewPool();
+    private final ArrayDeque<View> preInflatedViews = new ArrayDeque<>();
+    // Rows still to be inflated; the idle handler is registered while this is above 0
+    private int toInflate;
+    private boolean released;
+    private final MessageQueue.IdleHandler idleInflater = this::inflateOneRow;
+
+    private ProductViewPool(Context context) {
+        this.contextRef = new WeakReference<>(context);
+        recycledViewPool.setMaxRecycledViews(ProductAdapter.VIEW_TYPE_PRODUCT, MAX_RECYCLED_VIEWS);
+    }
+
+    /**
+     * Get the pool for an activity, replacing the pool of any previous activity
+     *
+     * @param context The activity context the rows are themed with
+     */
+    @MainThread
+    public static ProductViewPool get(Context context) {
+        ProductViewPool pool = instance.get();
+        if (pool == null || pool.contextRef.get() != context) {
+            if (pool != null) {
+                pool.shutdown();
+            }
+            pool = new ProductViewPool(context);
+            instance = new WeakReference<>(pool);
+        }
+        return pool;
+    }
+
+    /**
+     * Drop the pool of an activity that is being destroyed
+     */
+    @MainThread
+    public static void release(Context context) {
+        ProductViewPool pool = instance.get();
+        if (pool != null && pool.contextRef.get() == context) {
+            pool.shutdown();
+            instance.clear();
+        }
+    }
+
+    /**
+     * Inflate product rows while the main thread is idle until count views are ready
+     *
+     * @param count Number of pre-inflated views to keep ready
+     */
+    @MainThread
+    public void warmUp(int count) {
+        int missing = count - preInflatedViews.size() - toInflate;
+        if (released || missing <= 0) {
+            return;
+        }
+        if (toInflate == 0) {
+            Looper.getMainLooper().getQueue().addIdleHandler(idleInflater);
+        }
+        toInflate += missing;
+    }
+
+    /**
+     * Inflate a single row, so input or a frame arriving meanwhile waits for one row at most
+     *
+     * @return Whether to run again at the next idle time
+     */
+    private boolean inflateOneRow() {
+        Context context = contextRef.get();
+        if (released || context == null) {
+            toInflate = 0;
+            return false;
+        }
+        try {
+            // A throwaway parent gives the row proper layout params without attaching it
+            FrameLayout parent = new FrameLayout(context);
+            preInflatedViews.add(LayoutInflater.from(context).inflate(R.layout.item_product, parent, false));
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Failed to pre-inflate product row", e);
+            toInflate = 0;
+            return false;
+        }
+        if (--toInflate == 0) {
+            Log.d(TAG, "Pre-inflated product rows ready: " + preInflatedViews.size());
+        }
+        return toInflate > 0;
+    }
+
+    /**
+     * Take a pre-inflated product row
+     *
+     * @return A detached row view, or null if none is ready
+     */
+    @MainThread
+    public View takePreInflatedView() {
+        return preInflatedViews.poll();
+    }
+
+    public int getPreInflatedCount() {
+        return preInflatedViews.size();
+    }
+
+    public RecyclerView.RecycledViewPool getRecycledViewPool() {
+        return recycledViewPool;
+    }
+
+    private void shutdown() {
+        released = true;
+        if (toInflate > 0) {
+            Looper.getMainLooper().getQueue().removeIdleHandler(idleInflater);
+            toInflate = 0;
+        }
+        preInflatedViews.clear();
+        recycledViewPool.clear();
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.prm392pe.data;
+
+import com.example.prm392pe.models.Product;
+import com.example.prm392pe.utils.StringDictionary;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Page loader reading products from a tab-separated file, one product per line:
+ * id, name, description, price, imageUrl, category, quantity, available
+ *
+ * The file is scanned once to record line offsets, after which pages are read
+ * with random access so only the requested lines are ever held in memory.
+ */
+public class FileProductPageLoader implements ProductPageLoader {
+
+    private static final int FIELD_COUNT = 8;
+    // Distinct categories shared between pages
+    private static final int MAX_CATEGORIES = 1024;
+    // Repeated image URLs, such as placeholders; most are unique, so the dictionary is capped
+    private static final int MAX_IMAGE_URLS = 4096;
+
+    private final File file;
+    private final StringDictionary categories = new StringDictionary(MAX_CATEGORIES);
+    private final StringDictionary imageUrls = new StringDictionary(MAX_IMAGE_URLS);
+    private long[] lineOffsets;
+    private int lineCount;
+
+    public FileProductPageLoader(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Get the dictionary sharing category strings between loaded pages, e.g. for its statistics
+     */
+    public StringDictionary getCategoryDictionary() {
+        return categories;
+    }
+
+    /**
+     * Get the dictionary sharing repeated image URLs between loaded pages
+     */
+    public StringDictionary getImageUrlDictionary() {
+        return imageUrls;
+    }
+
+    @Override
+    public synchronized int getTotalCount() throws IOException {
+        ensureIndexed();
+        return lineCount;
+    }
+
+    @Override
+    public synchronized List<Product> loadPage(int offset, int limit) throws IOException {
+        ensureIndexed();
+
+        int end = Math.min(lineCount, offset + limit);
+        List<Product> page = new ArrayList<>(Math.max(0, end - offset));
+        if (offset >= end) {
+            return page;
+        }
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            long start = lineOffsets[offset];
+            long stop = end < lineCount ? lineOffsets[end] : raf.length();
+            byte[] bytes = new byte[(int) (stop - start)];
+            raf.seek(start);
+            raf.readFully(bytes);
+
+            String[] lines = new String(bytes, StandardCharsets.UTF_8).split("\n");
+            for (String line : lines) {
+                Product product = parseLine(line);
+                if (product != null) {
+                    page.add(product);
+                }
+            }
+        }
+        return page;
+    }
+
+    private void ensureIndexed() throws IOException {
+        if (lineOffsets != null) {
+            return;
+        }
+
+        long[] offsets = new long[1024];
+        int count = 0;
+        long position = 0;
+        boolean lineHasContent = false;
+        long lineStart = 0;
+
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file), 64 * 1024)) {
+            int b;
+            while ((b = in.read()) != -1) {
+                if (b == '\n') {
+                    if (lineHasContent) {
+                        if (count == offsets.length) {
+                            offsets = Arrays.copyOf(offsets, count * 2);
+                        }
+                        offsets[count++] = lineStart;
+                    }
+                    lineHasContent = false;
+                    lineStart = position + 1;
+                } else if (b != '\r') {
+                    lineHasContent = true;
+                }
+                position++;
+            }
+        }
+        if (lineHasContent) {
+            if (count == offsets.length) {
+                offsets = Arrays.copyOf(offsets, count + 1);
+            }
+            offsets[count++] = lineStart;
+        }
+
+        lineOffsets = offsets;
+        lineCount = count;
+    }
+
+    private Product parseLine(String line) {
+        if (line.endsWith("\r")) {
+            line = line.substring(0, line.length() - 1);
+        }
+        String[] fields = line.split("\t", -1);
+        if (fields.length < FIELD_COUNT) {
+            return null;
+        }
+
+        try {
+            return new Product(
+                    Integer.parseInt(fields[0]),
+                    fields[1],
+                    fields[2],
+                    Double.parseDouble(fields[3]),
+                    imageUrls.intern(fields[4]),
+                    categories.intern(fields[5]),
+                    Integer.parseInt(fields[6]),
+                    Boolean.parseBoolean(fields[7]));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Write products in the format understood by this loader
+     */
+    public static void writeProducts(File file, List<Product> products) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (FileOutputStream fos = new FileOutputStream(file)) {
+            for (Product product : products) {
+                String line = product.getId() + "\t" +
+                        clean(product.getName()) + "\t" +
+                        clean(product.getDescription()) + "\t" +
+                        product.getPrice() + "\t" +
+                        clean(product.getImageUrl()) + "\t" +
+                        clean(product.getCategory()) + "\t" +
+                        product.getQuantity() + "\t" +
+                        product.isAvailable() + "\n";
+                buffer.write(line.getBytes(StandardCharsets.UTF_8));
+                if (buffer.size() >= 64 * 1024) {
+                    buffer.writeTo(fos);
+                    buffer.reset();
+                }
+            }
+            buffer.writeTo(fos);
+        }
+    }
+
+    private static String clean(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.prm392pe.data;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing map from int keys to non-negative int values, such as array slots
+ *
+ * Keys and values live in two primitive arrays with linear probing and no per-entry
+ * objects, about 16 bytes per entry at the maximum load of one half. Removal shifts later
+ * entries of the probe run back instead of leaving tombstones, so lookups stay short
+ * under heavy churn. Not thread-safe.
+ */
+public class IntIntHashMap {
+
+    public static final int MISSING = -1;
+
+    private int[] keys;
+    // Values are stored + 1 so 0 marks an empty bucket
+    private int[] values;
+    private int mask;
+    private int size;
+
+    public IntIntHashMap() {
+        this(16);
+    }
+
+    public IntIntHashMap(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    /**
+     * @return The value, or MISSING if the key is absent
+     */
+    public int get(int key) {
+        int i = hash(key);
+        while (true) {
+            int value = values[i];
+            if (value == 0) {
+                return MISSING;
+            }
+            if (keys[i] == key) {
+                return value - 1;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    public boolean containsKey(int key) {
+        return get(key) != MISSING;
+    }
+
+    /**
+     * @param value A non-negative value
+     */
+    public void put(int key, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative value: " + value);
+        }
+        int i = hash(key);
+        while (values[i] != 0 && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        if (values[i] == 0) {
+            if ((size + 1) * 2 > keys.length) {
+                rehash(keys.length * 2);
+                put(key, value);
+                return;
+            }
+            size++;
+        }
+        keys[i] = key;
+        values[i] = value + 1;
+    }
+
+    /**
+     * @return true if the key was present
+     */
+    public boolean remove(int key) {
+        int i = hash(key);
+        while (values[i] != 0 && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        if (values[i] == 0) {
+            return false;
+        }
+
+        // Shift later entries of the probe run back so lookups never stop at the hole
+        int gap = i;
+        int j = (i + 1) & mask;
+        while (values[j] != 0) {
+            int home = hash(keys[j]);
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                keys[gap] = keys[j];
+                values[gap] = values[j];
+                gap = j;
+            }
+            j = (j + 1) & mask;
+        }
+        values[gap] = 0;
+        size--;
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(values, 0);
+        size = 0;
+    }
+
+    /**
+     * Grow ahead of a known number of entries to avoid repeated rehashing
+     */
+    public void ensureCapacity(int expectedSize) {
+        int capacity = capacityFor(expectedSize);
+        if (capacity > keys.length) {
+            rehash(capacity);
+        }
+    }
+
+    private static int capacityFor(int entries) {
+        return Integer.highestOneBit(Math.max(entries, 2) * 2 - 1) << 1;
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != 0) {
+                put(oldKeys[i], oldValues[i] - 1);
+            }
+        }
+    }
+
+    private int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+}
@@ -0,0 +1,277 @@
+package com.example.prm392pe.data;
+
+import com.example.prm392pe.models.Product;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread-safe stock levels for products
+ *
+ * Each product's on-hand and reserved counts are packed into one AtomicLong and changed
+ * with compare-and-set, so concurrent checkouts never oversell and never block each
+ * other; threads only contend when they touch the same product.
+ *
+ * A checkout reserves units, then commits the reservation (the units leave stock) or
+ * releases it. purchase() reserves and commits in one step. A product is available while
+ * on-hand minus reserved is positive, and listeners are told when that flips.
+ */
+public class InventoryEngine {
+
+    public interface OnAvailabilityChangedListener {
+        /**
+         * Called on the thread whose change flipped the availability
+         */
+        void onAvailabilityChanged(int productId, boolean available);
+    }
+
+    // Product id -> on-hand count in the high 32 bits, reserved count in the low 32 bits
+    private final ConcurrentHashMap<Integer, AtomicLong> stock = new ConcurrentHashMap<>();
+    private final List<OnAvailabilityChangedListener> listeners = new CopyOnWriteArrayList<>();
+
+    public void addOnAvailabilityChangedListener(OnAvailabilityChangedListener listener) {
+        if (listener != null && !listeners.contains(listener)) {
+            listeners.add(listener);
+        }
+    }
+
+    public void removeOnAvailabilityChangedListener(OnAvailabilityChangedListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Set the on-hand stock of a product, e.g. from a sync
+     * Outstanding reservations are kept.
+     */
+    public void setStock(int productId, int onHand) {
+        if (onHand < 0) {
+            throw new IllegalArgumentException("Negative stock: " + onHand);
+        }
+        AtomicLong state = stock.computeIfAbsent(productId, id -> new AtomicLong(pack(0, 0)));
+        while (true) {
+            long current = state.get();
+            long next = pack(onHand, reserved(current));
+            if (state.compareAndSet(current, next)) {
+                notifyIfFlipped(productId, current, next);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Start tracking a product with its current quantity, unless it is already tracked
+     */
+    public void track(Product product) {
+        if (product != null && !stock.containsKey(product.getId())) {
+            AtomicLong state = new AtomicLong(pack(Math.max(product.getQuantity(), 0), 0));
+            stock.putIfAbsent(product.getId(), state);
+        }
+    }
+
+    /**
+     * Add units to the on-hand stock
+     *
+     * @return The new available count, or -1 if the product is not tracked
+     */
+    public int restock(int productId, int amount) {
+        checkAmount(amount);
+        AtomicLong state = stock.get(productId);
+        if (state == null) {
+            return -1;
+        }
+        while (true) {
+            long current = state.get();
+            long onHand = Math.min((long) onHand(current) + amount, Integer.MAX_VALUE);
+            long next = pack((int) onHand, reserved(current));
+            if (state.compareAndSet(current, next)) {
+                notifyIfFlipped(productId, current, next);
+                return available(next);
+            }
+        }
+    }
+
+    /**
+     * Hold units for a checkout
+     *
+     * @return true if enough unreserved stock was available; nothing is held otherwise
+     */
+    public boolean reserve(int productId, int amount) {
+        checkAmount(amount);
+        AtomicLong state = stock.get(productId);
+        if (state == null) {
+            return false;
+        }
+        while (true) {
+            long current = state.get();
+            if (available(current) < amount) {
+                return false;
+            }
+            long next = pack(onHand(current), reserved(current) + amount);
+            if (state.compareAndSet(current, next)) {
+                notifyIfFlipped(productId, current, next);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Return reserved units to the available stock
+     *
+     * @return false if fewer units than amount are reserved
+     */
+    public boolean release(int productId, int amount) {
+        checkAmount(amount);
+        AtomicLong state = stock.get(productId);
+        if (state == null) {
+            return false;
+        }
+        while (true) {
+            long current = state.get();
+            if (reserved(current) < amount) {
+                return false;
+            }
+            long next = pack(onHand(current), reserved(current) - amount);
+            if (state.compareAndSet(current, next)) {
+                notifyIfFlipped(productId, current, next);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Complete a checkout: reserved units leave the on-hand stock
+     *
+     * @return false if fewer units than amount are reserved
+     */
+    public boolean commit(int productId, int amount) {
+        checkAmount(amount);
+        AtomicLong state = stock.get(productId);
+        if (state == null) {
+            return false;
+        }
+        while (true) {
+            long current = state.get();
+            if (reserved(current) < amount) {
+                return false;
+            }
+            // On-hand can be below reserved after a sync lowered it
+            long next = pack(Math.max(onHand(current) - amount, 0), reserved(current) - amount);
+            if (state.compareAndSet(current, next)) {
+                notifyIfFlipped(productId, current, next);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Reserve and commit in one step
+     *
+     * @return true if the units were available and have left the stock
+     */
+    public boolean purchase(int productId, int amount) {
+        checkAmount(amount);
+        AtomicLong state = stock.get(productId);
+        if (state == null) {
+            return false;
+        }
+        while (true) {
+            long current = state.get();
+            if (available(current) < amount) {
+                return false;
+            }
+            long next = pack(onHand(current) - amount, reserved(current));
+            if (state.compareAndSet(current, next)) {
+                notifyIfFlipped(productId, current, next);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Get the units that can still be reserved, or 0 if the product is not tracked
+     */
+    public int getAvailable(int productId) {
+        AtomicLong state = stock.get(productId);
+        return state != null ? Math.max(available(state.get()), 0) : 0;
+    }
+
+    public int getOnHand(int productId) {
+        AtomicLong state = stock.get(productId);
+        return state != null ? onHand(state.get()) : 0;
+    }
+
+    public int getReserved(int productId) {
+        AtomicLong state = stock.get(productId);
+        return state != null ? reserved(state.get()) : 0;
+    }
+
+    public boolean isTracked(int productId) {
+        return stock.containsKey(productId);
+    }
+
+    public boolean isAvailable(int productId) {
+        return getAvailable(productId) > 0;
+    }
+
+    /**
+     * Copy the available count and availability onto a product for display
+     *
+     * @return true if the product changed
+     */
+    public boolean applyTo(Product product) {
+        AtomicLong state = stock.get(product.getId());
+        if (state == null) {
+            return false;
+        }
+        int available = Math.max(available(state.get()), 0);
+        boolean isAvailable = available > 0;
+        if (product.getQuantity() == available && product.isAvailable() == isAvailable) {
+            return false;
+        }
+        product.setQuantity(available);
+        product.setAvailable(isAvailable);
+        return true;
+    }
+
+    public void remove(int productId) {
+        stock.remove(productId);
+    }
+
+    public void clear() {
+        stock.clear();
+    }
+
+    private void notifyIfFlipped(int productId, long before, long after) {
+        boolean wasAvailable = available(before) > 0;
+        boolean isAvailable = available(after) > 0;
+        if (wasAvailable != isAvailable) {
+            for (OnAvailabilityChangedListener listener : listeners) {
+                listener.onAvailabilityChanged(productId, isAvailable);
+            }
+        }
+    }
+
+    private static void checkAmount(int amount) {
+        if (amount <= 0) {
+            throw new IllegalArgumentException("Amount must be positive: " + amount);
+        }
+    }
+
+    private static long pack(int onHand, int reserved) {
+        return ((long) onHand << 32) | (reserved & 0xFFFFFFFFL);
+    }
+
+    private static int onHand(long state) {
+        return (int) (state >>> 32);
+    }
+
+    private static int reserved(long state) {
+        return (int) state;
+    }
+
+    private static int available(long state) {
+        return onHand(state) - reserved(state);
+    }
+}
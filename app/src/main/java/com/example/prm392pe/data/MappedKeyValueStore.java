@@ -0,0 +1,685 @@
+package com.example.prm392pe.data;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.CRC32;
+
+/**
+ * Key-value store kept in a memory-mapped, append-only log
+ *
+ * Every change appends one record to the mapped file, so a write costs the size of its
+ * value instead of rewriting the whole store as SharedPreferences' XML does. Current
+ * values live in an in-memory hash map, so reads never touch the file.
+ *
+ * Records carry a CRC32 and their length is written last. After a crash, open() replays
+ * the log up to the last complete record and drops any torn tail. apply() writes its
+ * changes between begin and end records, and replay applies them only if the end record
+ * made it, so a crash never leaves half of an editor's commit. Once overwritten and
+ * removed records take more space than live ones, the log is compacted on a background
+ * thread. Writes continue meanwhile and are carried over to the compacted file.
+ *
+ * Values are String, Integer, Long, Float, Boolean or Set of String. Pure Java, so it
+ * runs on the plain JVM. Thread-safe.
+ */
+public class MappedKeyValueStore implements Closeable {
+
+    private static final int MAGIC = 0x4D4B5631; // "MKV1"
+    private static final int HEADER_SIZE = 8;
+    // Record: int payload length, int CRC32 of the payload, payload
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final int INITIAL_CAPACITY = 64 * 1024;
+    // Dead space below this is never worth compacting
+    private static final long MIN_COMPACT_BYTES = 32 * 1024;
+
+    private static final byte OP_PUT = 1;
+    private static final byte OP_REMOVE = 2;
+    private static final byte OP_CLEAR = 3;
+    private static final byte OP_BEGIN = 4;
+    private static final byte OP_END = 5;
+
+    private static final byte TYPE_NONE = 0;
+    private static final byte TYPE_STRING = 1;
+    private static final byte TYPE_INT = 2;
+    private static final byte TYPE_LONG = 3;
+    private static final byte TYPE_FLOAT = 4;
+    private static final byte TYPE_BOOLEAN = 5;
+    private static final byte TYPE_STRING_SET = 6;
+
+    private static final ExecutorService compactor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "MappedKeyValueStore-compact");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final File file;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int end;
+
+    private final Map<String, Entry> entries = new HashMap<>();
+    private long liveBytes;
+    private boolean compacting;
+    private int compactionCount;
+    private boolean closed;
+
+    private final CRC32 crc = new CRC32();
+    private final RecordEncoder encoder = new RecordEncoder();
+
+    private static class Entry {
+        final Object value;
+        // Size of the record holding the value, dead once the key changes
+        final int recordSize;
+
+        Entry(Object value, int recordSize) {
+            this.value = value;
+            this.recordSize = recordSize;
+        }
+    }
+
+    /**
+     * Encodes record payloads into a reusable array
+     */
+    private static class RecordEncoder {
+        private final CRC32 crc = new CRC32();
+        byte[] bytes = new byte[256];
+        int length;
+
+        /**
+         * Encode a record payload: op, type, key length, key, value
+         *
+         * @return The payload length
+         */
+        int encode(byte op, String key, Object value) {
+            byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+            byte type;
+            byte[] valueBytes = null;
+            int valueLength;
+            if (value == null) {
+                type = TYPE_NONE;
+                valueLength = 0;
+            } else if (value instanceof String) {
+                type = TYPE_STRING;
+                valueBytes = ((String) value).getBytes(StandardCharsets.UTF_8);
+                valueLength = valueBytes.length;
+            } else if (value instanceof Integer) {
+                type = TYPE_INT;
+                valueLength = 4;
+            } else if (value instanceof Long) {
+                type = TYPE_LONG;
+                valueLength = 8;
+            } else if (value instanceof Float) {
+                type = TYPE_FLOAT;
+                valueLength = 4;
+            } else if (value instanceof Boolean) {
+                type = TYPE_BOOLEAN;
+                valueLength = 1;
+            } else if (value instanceof Set) {
+                type = TYPE_STRING_SET;
+                valueBytes = encodeStringSet((Set<?>) value);
+                valueLength = valueBytes.length;
+            } else {
+                throw new IllegalArgumentException("Unsupported value type: " + value.getClass().getName());
+            }
+
+            int length = 6 + keyBytes.length + valueLength;
+            if (bytes.length < length) {
+                bytes = new byte[Math.max(length, bytes.length * 2)];
+            }
+            ByteBuffer out = ByteBuffer.wrap(bytes, 0, length);
+            out.put(op);
+            out.put(type);
+            out.putInt(keyBytes.length);
+            out.put(keyBytes);
+            switch (type) {
+                case TYPE_STRING:
+                case TYPE_STRING_SET:
+                    out.put(valueBytes);
+                    break;
+                case TYPE_INT:
+                    out.putInt((Integer) value);
+                    break;
+                case TYPE_LONG:
+                    out.putLong((Long) value);
+                    break;
+                case TYPE_FLOAT:
+                    out.putFloat((Float) value);
+                    break;
+                case TYPE_BOOLEAN:
+                    out.put((byte) ((Boolean) value ? 1 : 0));
+                    break;
+                default:
+                    break;
+            }
+            this.length = length;
+            return length;
+        }
+
+        int checksum() {
+            crc.reset();
+            crc.update(bytes, 0, length);
+            return (int) crc.getValue();
+        }
+    }
+
+    private MappedKeyValueStore(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Open a store, creating the file if needed and replaying its log
+     */
+    public static MappedKeyValueStore open(File file) throws IOException {
+        MappedKeyValueStore store = new MappedKeyValueStore(file);
+        store.load();
+        return store;
+    }
+
+    // Reads
+
+    /**
+     * @return The value, or null if the key is absent
+     */
+    public synchronized Object get(String key) {
+        Entry entry = entries.get(key);
+        return entry != null ? entry.value : null;
+    }
+
+    public synchronized boolean contains(String key) {
+        return entries.containsKey(key);
+    }
+
+    public synchronized Map<String, Object> getAll() {
+        Map<String, Object> all = new HashMap<>(entries.size() * 2);
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            all.put(entry.getKey(), entry.getValue().value);
+        }
+        return all;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    // Writes
+
+    /**
+     * Set a value; null removes the key
+     *
+     * @throws IllegalArgumentException for an unsupported value type
+     */
+    public synchronized void put(String key, Object value) throws IOException {
+        checkOpen();
+        if (value == null) {
+            remove(key);
+            return;
+        }
+        value = checkValue(value);
+        int recordSize = append(OP_PUT, key, value);
+        Entry previous = entries.put(key, new Entry(value, recordSize));
+        liveBytes += recordSize - (previous != null ? previous.recordSize : 0);
+        maybeCompact();
+    }
+
+    public synchronized void remove(String key) throws IOException {
+        checkOpen();
+        if (!entries.containsKey(key)) {
+            return;
+        }
+        append(OP_REMOVE, key, null);
+        liveBytes -= entries.remove(key).recordSize;
+        maybeCompact();
+    }
+
+    public synchronized void clear() throws IOException {
+        checkOpen();
+        append(OP_CLEAR, "", null);
+        entries.clear();
+        liveBytes = 0;
+        maybeCompact();
+    }
+
+    /**
+     * Apply a group of changes, as committed by one editor
+     *
+     * Replay after a crash sees either all of the changes or none of them.
+     *
+     * @param changes Values to set, null removing the key
+     * @param clearFirst Whether to remove every key before applying the changes
+     * @throws IllegalArgumentException for an unsupported value type, before anything is written
+     */
+    public synchronized void apply(Map<String, ?> changes, boolean clearFirst) throws IOException {
+        checkOpen();
+        Map<String, Object> checked = new HashMap<>(changes.size() * 2);
+        for (Map.Entry<String, ?> change : changes.entrySet()) {
+            Object value = change.getValue();
+            checked.put(change.getKey(), value != null ? checkValue(value) : null);
+        }
+        // A single record is complete or dropped on its own
+        boolean group = clearFirst || checked.size() > 1;
+        if (group) {
+            append(OP_BEGIN, "", null);
+        }
+        if (clearFirst) {
+            clear();
+        }
+        for (Map.Entry<String, Object> change : checked.entrySet()) {
+            put(change.getKey(), change.getValue());
+        }
+        if (group) {
+            append(OP_END, "", null);
+        }
+    }
+
+    /**
+     * Force written records to the storage device
+     * Records already survive a process crash without this, it guards against power loss.
+     */
+    public synchronized void sync() {
+        if (!closed) {
+            buffer.force();
+        }
+    }
+
+    // Statistics
+
+    /**
+     * Get the bytes used by the log, header included
+     */
+    public synchronized long getLogSize() {
+        return end;
+    }
+
+    public synchronized long getLiveBytes() {
+        return liveBytes;
+    }
+
+    /**
+     * Get the bytes of overwritten and removed records, reclaimed by compaction
+     */
+    public synchronized long getDeadBytes() {
+        return end - HEADER_SIZE - liveBytes;
+    }
+
+    public synchronized int getCompactionCount() {
+        return compactionCount;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        buffer.force();
+        channel.close();
+    }
+
+    // Log
+
+    private void load() throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Cannot create " + parent);
+        }
+        channel = new RandomAccessFile(file, "rw").getChannel();
+        long length = channel.size();
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Store too large: " + file);
+        }
+        map((int) Math.max(length, INITIAL_CAPACITY));
+        if (length < HEADER_SIZE) {
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, 0);
+            end = HEADER_SIZE;
+            return;
+        }
+        if (buffer.getInt(0) != MAGIC) {
+            channel.close();
+            throw new IOException("Not a key-value store: " + file);
+        }
+        replay();
+    }
+
+    /**
+     * Rebuild the map from the log, stopping at the first incomplete or corrupt record
+     * A group without its end record is dropped along with everything after it.
+     */
+    private void replay() {
+        int position = HEADER_SIZE;
+        // End of the last record applied, and the records of the group being read
+        int committed = HEADER_SIZE;
+        List<Integer> group = null;
+        while (true) {
+            int length = recordLength(position);
+            if (length < 0) {
+                break;
+            }
+            byte op = buffer.get(position + RECORD_HEADER_SIZE);
+            int next = position + RECORD_HEADER_SIZE + length;
+            if (op == OP_BEGIN) {
+                if (group != null) {
+                    break;
+                }
+                group = new ArrayList<>();
+            } else if (op == OP_END) {
+                if (group == null) {
+                    break;
+                }
+                for (int record : group) {
+                    applyRecord(record);
+                }
+                group = null;
+                committed = next;
+            } else if (group != null) {
+                group.add(position);
+            } else {
+                applyRecord(position);
+                committed = next;
+            }
+            position = next;
+        }
+        end = committed;
+
+        // Zero a torn tail so it cannot be mistaken for records later
+        for (int i = end; i < Math.min(buffer.capacity(), end + RECORD_HEADER_SIZE); i++) {
+            buffer.put(i, (byte) 0);
+        }
+    }
+
+    /**
+     * Get the payload length of the record at a position, or -1 if it is torn or corrupt
+     */
+    private int recordLength(int position) {
+        int capacity = buffer.capacity();
+        if (position + RECORD_HEADER_SIZE > capacity) {
+            return -1;
+        }
+        int length = buffer.getInt(position);
+        if (length < 6 || length > capacity - position - RECORD_HEADER_SIZE) {
+            return -1;
+        }
+        int payload = position + RECORD_HEADER_SIZE;
+        if (checksum(payload, length) != buffer.getInt(position + 4)) {
+            return -1;
+        }
+        return length;
+    }
+
+    private void applyRecord(int position) {
+        int length = buffer.getInt(position);
+        int payload = position + RECORD_HEADER_SIZE;
+        int recordSize = RECORD_HEADER_SIZE + length;
+        byte op = buffer.get(payload);
+        byte type = buffer.get(payload + 1);
+        int keyLength = buffer.getInt(payload + 2);
+        String key = readString(payload + 6, keyLength);
+        int valueStart = payload + 6 + keyLength;
+        int valueLength = length - 6 - keyLength;
+
+        if (op == OP_CLEAR) {
+            entries.clear();
+            liveBytes = 0;
+        } else if (op == OP_REMOVE) {
+            Entry removed = entries.remove(key);
+            if (removed != null) {
+                liveBytes -= removed.recordSize;
+            }
+        } else if (op == OP_PUT) {
+            Object value = readValue(type, valueStart, valueLength);
+            Entry previous = entries.put(key, new Entry(value, recordSize));
+            liveBytes += recordSize - (previous != null ? previous.recordSize : 0);
+        }
+    }
+
+    /**
+     * Append one record; the length goes in last so a torn write reads as the end of the log
+     *
+     * @return The size of the record
+     */
+    private int append(byte op, String key, Object value) throws IOException {
+        int length = encoder.encode(op, key, value);
+        int recordSize = RECORD_HEADER_SIZE + length;
+        // Keep a zero length after the record to terminate the log
+        ensureCapacity(end + recordSize + 4);
+
+        int payload = end + RECORD_HEADER_SIZE;
+        buffer.position(payload);
+        buffer.put(encoder.bytes, 0, length);
+        buffer.putInt(payload + length, 0);
+        buffer.putInt(end + 4, encoder.checksum());
+        buffer.putInt(end, length);
+        end += recordSize;
+        return recordSize;
+    }
+
+    private Object readValue(byte type, int start, int length) {
+        switch (type) {
+            case TYPE_STRING:
+                return readString(start, length);
+            case TYPE_INT:
+                return buffer.getInt(start);
+            case TYPE_LONG:
+                return buffer.getLong(start);
+            case TYPE_FLOAT:
+                return buffer.getFloat(start);
+            case TYPE_BOOLEAN:
+                return buffer.get(start) != 0;
+            case TYPE_STRING_SET:
+                int count = buffer.getInt(start);
+                Set<String> set = new HashSet<>(count * 2);
+                int position = start + 4;
+                for (int i = 0; i < count; i++) {
+                    int itemLength = buffer.getInt(position);
+                    set.add(readString(position + 4, itemLength));
+                    position += 4 + itemLength;
+                }
+                return Collections.unmodifiableSet(set);
+            default:
+                return null;
+        }
+    }
+
+    private static byte[] encodeStringSet(Set<?> set) {
+        byte[][] items = new byte[set.size()][];
+        int length = 4;
+        int i = 0;
+        for (Object item : set) {
+            items[i] = ((String) item).getBytes(StandardCharsets.UTF_8);
+            length += 4 + items[i].length;
+            i++;
+        }
+        ByteBuffer out = ByteBuffer.allocate(length);
+        out.putInt(items.length);
+        for (byte[] item : items) {
+            out.putInt(item.length);
+            out.put(item);
+        }
+        return out.array();
+    }
+
+    /**
+     * Check a value's type, copying a set so later changes to it do not reach the store
+     */
+    private static Object checkValue(Object value) {
+        if (value instanceof Set) {
+            return copyStringSet((Set<?>) value);
+        }
+        if (!(value instanceof String || value instanceof Integer || value instanceof Long
+                || value instanceof Float || value instanceof Boolean)) {
+            throw new IllegalArgumentException("Unsupported value type: " + value.getClass().getName());
+        }
+        return value;
+    }
+
+    private static Set<String> copyStringSet(Set<?> set) {
+        Set<String> copy = new HashSet<>(set.size() * 2);
+        for (Object item : set) {
+            if (!(item instanceof String)) {
+                throw new IllegalArgumentException("Sets may only hold strings");
+            }
+            copy.add((String) item);
+        }
+        return Collections.unmodifiableSet(copy);
+    }
+
+    private String readString(int start, int length) {
+        byte[] bytes = new byte[length];
+        ByteBuffer view = buffer.duplicate();
+        view.position(start);
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int checksum(int start, int length) {
+        ByteBuffer view = buffer.duplicate();
+        view.limit(start + length);
+        view.position(start);
+        crc.reset();
+        crc.update(view);
+        return (int) crc.getValue();
+    }
+
+    // Mapping
+
+    private void map(int capacity) throws IOException {
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+    }
+
+    private void ensureCapacity(int needed) throws IOException {
+        if (needed <= buffer.capacity()) {
+            return;
+        }
+        long capacity = buffer.capacity();
+        while (capacity < needed) {
+            capacity *= 2;
+        }
+        if (capacity > Integer.MAX_VALUE) {
+            throw new IOException("Store too large: " + file);
+        }
+        map((int) capacity);
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Store is closed");
+        }
+    }
+
+    // Compaction
+
+    private void maybeCompact() {
+        long dead = end - HEADER_SIZE - liveBytes;
+        if (!compacting && dead > MIN_COMPACT_BYTES && dead > liveBytes) {
+            compacting = true;
+            compactor.execute(this::compactInBackground);
+        }
+    }
+
+    /**
+     * Compact now on the calling thread, e.g. before backing the file up
+     */
+    public void compact() throws IOException {
+        synchronized (this) {
+            checkOpen();
+            if (compacting) {
+                return;
+            }
+            compacting = true;
+        }
+        compactOrThrow();
+    }
+
+    private void compactInBackground() {
+        try {
+            compactOrThrow();
+        } catch (IOException | RuntimeException e) {
+            // The current log is still intact, so the next write simply tries again
+        }
+    }
+
+    /**
+     * Write the live entries to a new file without holding the lock, then copy over the
+     * records appended meanwhile and swap the files under the lock
+     */
+    private void compactOrThrow() throws IOException {
+        File compacted = new File(file.getPath() + ".compact");
+        try {
+            Map<String, Object> snapshot;
+            int snapshotEnd;
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                snapshot = getAll();
+                snapshotEnd = end;
+            }
+
+            RecordEncoder compactEncoder = new RecordEncoder();
+            try (RandomAccessFile out = new RandomAccessFile(compacted, "rw")) {
+                out.setLength(0);
+                FileChannel targetChannel = out.getChannel();
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.putInt(MAGIC).putInt(0).flip();
+                targetChannel.write(header);
+                for (Map.Entry<String, Object> entry : snapshot.entrySet()) {
+                    int length = compactEncoder.encode(OP_PUT, entry.getKey(), entry.getValue());
+                    ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + length);
+                    record.putInt(length).putInt(compactEncoder.checksum())
+                            .put(compactEncoder.bytes, 0, length).flip();
+                    targetChannel.write(record);
+                }
+            }
+
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                // Carry over what was written while the snapshot was saved; the file is
+                // closed again before it is renamed
+                try (RandomAccessFile out = new RandomAccessFile(compacted, "rw")) {
+                    FileChannel targetChannel = out.getChannel();
+                    targetChannel.position(targetChannel.size());
+                    ByteBuffer tail = buffer.duplicate();
+                    tail.limit(end);
+                    tail.position(snapshotEnd);
+                    targetChannel.write(tail);
+                    targetChannel.force(true);
+                }
+
+                // Renamed while the old file is still open, so a failure leaves it in use
+                if (!compacted.renameTo(file)) {
+                    throw new IOException("Cannot replace " + file);
+                }
+                channel.close();
+                channel = new RandomAccessFile(file, "rw").getChannel();
+                int size = (int) channel.size();
+                map(Math.max(INITIAL_CAPACITY, Integer.highestOneBit(Math.max(size, 1)) * 2));
+                end = size;
+                // Room for the zero length that terminates the log
+                ensureCapacity(end + 4);
+                buffer.putInt(end, 0);
+                compactionCount++;
+            }
+        } finally {
+            synchronized (this) {
+                compacting = false;
+            }
+            compacted.delete();
+        }
+    }
+}
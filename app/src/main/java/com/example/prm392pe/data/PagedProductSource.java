@@ -0,0 +1,254 @@
+package com.example.prm392pe.data;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.prm392pe.models.Product;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Windowed, paged view over a product catalog
+ *
+ * Products are loaded in pages from a ProductPageLoader on a background thread.
+ * Accessing a position prefetches the pages within the prefetch distance, and pages
+ * farthest from the last accessed position are evicted once more than
+ * maxLoadedPages are held, so memory stays flat regardless of catalog size.
+ *
+ * All public methods must be called on the main thread.
+ */
+public class PagedProductSource {
+
+    private static final String TAG = "PagedProductSource";
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int DEFAULT_PREFETCH_DISTANCE = 25;
+    public static final int DEFAULT_MAX_LOADED_PAGES = 8;
+
+    /**
+     * Notified on the main thread when the source content changes
+     */
+    public interface Callback {
+        void onCountChanged(int count);
+        void onRangeLoaded(int positionStart, int itemCount);
+    }
+
+    private final ProductPageLoader loader;
+    private final int pageSize;
+    private final int prefetchDistance;
+    private final int maxLoadedPages;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private final Map<Integer, List<Product>> pages = new HashMap<>();
+    private final Set<Integer> loadingPages = new HashSet<>();
+    private Callback callback;
+    private int count;
+    // Read by the loader thread to skip pages the user has already scrolled away from
+    private volatile int lastAccessedPage;
+    // Bumped by invalidate() so loads started before it are dropped
+    private int generation;
+    private boolean released;
+
+    public PagedProductSource(ProductPageLoader loader) {
+        this(loader, DEFAULT_PAGE_SIZE, DEFAULT_PREFETCH_DISTANCE, DEFAULT_MAX_LOADED_PAGES);
+    }
+
+    /**
+     * @param loader Backend serving the pages
+     * @param pageSize Number of products per page
+     * @param prefetchDistance Number of positions ahead of and behind the accessed position to keep loaded
+     * @param maxLoadedPages Maximum number of pages kept in memory
+     */
+    public PagedProductSource(ProductPageLoader loader, int pageSize, int prefetchDistance, int maxLoadedPages) {
+        this.loader = loader;
+        this.pageSize = Math.max(1, pageSize);
+        this.prefetchDistance = Math.max(0, prefetchDistance);
+        // The window must at least cover the pages a single access can request
+        int pagesPerAccess = 2 * ((this.prefetchDistance + this.pageSize - 1) / this.pageSize) + 1;
+        this.maxLoadedPages = Math.max(maxLoadedPages, pagesPerAccess);
+    }
+
+    public void setCallback(Callback callback) {
+        this.callback = callback;
+    }
+
+    /**
+     * Start loading the catalog size
+     */
+    public void start() {
+        loadCount(generation);
+    }
+
+    /**
+     * Drop all loaded pages and reload the catalog from the backend
+     */
+    public void invalidate() {
+        generation++;
+        pages.clear();
+        loadingPages.clear();
+        loadCount(generation);
+    }
+
+    /**
+     * Stop background loading and release loaded pages
+     */
+    public void release() {
+        released = true;
+        generation++;
+        pages.clear();
+        loadingPages.clear();
+        executor.shutdownNow();
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public int getLoadedPageCount() {
+        return pages.size();
+    }
+
+    /**
+     * Get the product at a position, scheduling loads around it
+     *
+     * @return The product, or null if its page is not loaded yet and a placeholder should be shown
+     */
+    public Product get(int position) {
+        if (position < 0 || position >= count) {
+            return null;
+        }
+
+        int pageIndex = position / pageSize;
+        lastAccessedPage = pageIndex;
+        prefetchAround(position);
+
+        return peek(position);
+    }
+
+    /**
+     * Get the product at a position without triggering any load
+     */
+    public Product peek(int position) {
+        if (position < 0 || position >= count) {
+            return null;
+        }
+
+        List<Product> page = pages.get(position / pageSize);
+        if (page == null) {
+            return null;
+        }
+        int index = position % pageSize;
+        return index < page.size() ? page.get(index) : null;
+    }
+
+    /**
+     * Find the position of a product among the currently loaded pages
+     *
+     * @return The position, or -1 if no loaded page contains the product
+     */
+    public int findLoadedPosition(int productId) {
+        for (Map.Entry<Integer, List<Product>> entry : pages.entrySet()) {
+            List<Product> page = entry.getValue();
+            for (int i = 0; i < page.size(); i++) {
+                if (page.get(i).getId() == productId) {
+                    return entry.getKey() * pageSize + i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private void prefetchAround(int position) {
+        int firstPage = Math.max(0, position - prefetchDistance) / pageSize;
+        int lastPage = Math.min(count - 1, position + prefetchDistance) / pageSize;
+        for (int pageIndex = firstPage; pageIndex <= lastPage; pageIndex++) {
+            loadPage(pageIndex);
+        }
+    }
+
+    private void loadCount(final int requestGeneration) {
+        if (released) {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                final int total = loader.getTotalCount();
+                mainHandler.post(() -> {
+                    if (requestGeneration != generation) {
+                        return;
+                    }
+                    count = total;
+                    if (callback != null) {
+                        callback.onCountChanged(total);
+                    }
+                });
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to load catalog size", e);
+            }
+        });
+    }
+
+    private void loadPage(final int pageIndex) {
+        if (released || pages.containsKey(pageIndex) || !loadingPages.add(pageIndex)) {
+            return;
+        }
+
+        final int requestGeneration = generation;
+        final int offset = pageIndex * pageSize;
+        executor.execute(() -> {
+            List<Product> page = null;
+            try {
+                if (Math.abs(pageIndex - lastAccessedPage) <= maxLoadedPages) {
+                    page = loader.loadPage(offset, pageSize);
+                }
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to load page " + pageIndex, e);
+            }
+
+            final List<Product> loadedPage = page;
+            mainHandler.post(() -> {
+                if (requestGeneration != generation) {
+                    return;
+                }
+                loadingPages.remove(pageIndex);
+                if (loadedPage == null) {
+                    return;
+                }
+                pages.put(pageIndex, loadedPage);
+                evictDistantPages();
+                if (callback != null && pages.containsKey(pageIndex)) {
+                    callback.onRangeLoaded(offset, loadedPage.size());
+                }
+            });
+        });
+    }
+
+    private void evictDistantPages() {
+        while (pages.size() > maxLoadedPages) {
+            int farthestPage = -1;
+            int farthestDistance = -1;
+            for (Integer pageIndex : pages.keySet()) {
+                int distance = Math.abs(pageIndex - lastAccessedPage);
+                if (distance > farthestDistance) {
+                    farthestDistance = distance;
+                    farthestPage = pageIndex;
+                }
+            }
+            pages.remove(farthestPage);
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package com.example.prm392pe.data;
+
+import com.example.prm392pe.models.Product;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Group-by aggregation of price and quantity over product collections
+ *
+ * One pass over the products fills a Stats per group with count, sum, min, max and
+ * average of price and quantity, plus the available count and stock value. Large lists
+ * are split across the common fork/join pool and the partial results merged. For
+ * collections that keep changing, ProductAggregator maintains the same stats incrementally.
+ */
+public class ProductAggregates {
+
+    // Below this many products, splitting costs more than it saves
+    private static final int PARALLEL_THRESHOLD = 8192;
+
+    /**
+     * Extracts the group of a product; null is a valid group
+     */
+    public interface GroupKey<K> {
+        K keyOf(Product product);
+    }
+
+    public static final GroupKey<String> BY_CATEGORY = Product::getCategory;
+    public static final GroupKey<Boolean> BY_AVAILABILITY = Product::isAvailable;
+
+    /**
+     * Aggregates of one group
+     */
+    public static final class Stats {
+        private int count;
+        private int availableCount;
+        private double priceSum;
+        private double priceMin = Double.NaN;
+        private double priceMax = Double.NaN;
+        private long quantitySum;
+        private int quantityMin;
+        private int quantityMax;
+        private double stockValue;
+
+        Stats() {
+        }
+
+        Stats(Stats other) {
+            merge(other);
+        }
+
+        void add(Product product) {
+            add(product.getPrice(), product.getQuantity(), product.isAvailable());
+        }
+
+        void add(double price, int quantity, boolean available) {
+            if (count == 0) {
+                priceMin = priceMax = price;
+                quantityMin = quantityMax = quantity;
+            } else {
+                priceMin = Math.min(priceMin, price);
+                priceMax = Math.max(priceMax, price);
+                quantityMin = Math.min(quantityMin, quantity);
+                quantityMax = Math.max(quantityMax, quantity);
+            }
+            count++;
+            if (available) {
+                availableCount++;
+            }
+            priceSum += price;
+            quantitySum += quantity;
+            stockValue += price * quantity;
+        }
+
+        /**
+         * Take a product out of the sums
+         *
+         * @return false if min or max may now be stale and need a rescan
+         */
+        boolean subtract(double price, int quantity, boolean available) {
+            count--;
+            if (available) {
+                availableCount--;
+            }
+            priceSum -= price;
+            quantitySum -= quantity;
+            stockValue -= price * quantity;
+            if (count == 0) {
+                reset();
+                return true;
+            }
+            return price != priceMin && price != priceMax
+                    && quantity != quantityMin && quantity != quantityMax;
+        }
+
+        void merge(Stats other) {
+            if (other.count == 0) {
+                return;
+            }
+            if (count == 0) {
+                priceMin = other.priceMin;
+                priceMax = other.priceMax;
+                quantityMin = other.quantityMin;
+                quantityMax = other.quantityMax;
+            } else {
+                priceMin = Math.min(priceMin, other.priceMin);
+                priceMax = Math.max(priceMax, other.priceMax);
+                quantityMin = Math.min(quantityMin, other.quantityMin);
+                quantityMax = Math.max(quantityMax, other.quantityMax);
+            }
+            count += other.count;
+            availableCount += other.availableCount;
+            priceSum += other.priceSum;
+            quantitySum += other.quantitySum;
+            stockValue += other.stockValue;
+        }
+
+        void reset() {
+            count = 0;
+            availableCount = 0;
+            priceSum = 0;
+            priceMin = Double.NaN;
+            priceMax = Double.NaN;
+            quantitySum = 0;
+            quantityMin = 0;
+            quantityMax = 0;
+            stockValue = 0;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public int getAvailableCount() {
+            return availableCount;
+        }
+
+        public double getPriceSum() {
+            return priceSum;
+        }
+
+        /**
+         * @return The lowest price, or NaN for an empty group
+         */
+        public double getPriceMin() {
+            return priceMin;
+        }
+
+        /**
+         * @return The highest price, or NaN for an empty group
+         */
+        public double getPriceMax() {
+            return priceMax;
+        }
+
+        /**
+         * @return The mean price, or NaN for an empty group
+         */
+        public double getPriceAverage() {
+            return count > 0 ? priceSum / count : Double.NaN;
+        }
+
+        public long getQuantitySum() {
+            return quantitySum;
+        }
+
+        public int getQuantityMin() {
+            return quantityMin;
+        }
+
+        public int getQuantityMax() {
+            return quantityMax;
+        }
+
+        /**
+         * @return The mean quantity, or NaN for an empty group
+         */
+        public double getQuantityAverage() {
+            return count > 0 ? (double) quantitySum / count : Double.NaN;
+        }
+
+        /**
+         * Get the sum of price times quantity
+         */
+        public double getStockValue() {
+            return stockValue;
+        }
+
+        @Override
+        public String toString() {
+            return "Stats{" +
+                    "count=" + count +
+                    ", availableCount=" + availableCount +
+                    ", price=[" + priceMin + ".." + priceMax + "] avg " + getPriceAverage() +
+                    ", quantity=[" + quantityMin + ".." + quantityMax + "] sum " + quantitySum +
+                    ", stockValue=" + stockValue +
+                    '}';
+        }
+    }
+
+    /**
+     * Aggregate a whole collection as one group
+     */
+    public static Stats total(List<? extends Product> products) {
+        Map<Boolean, Stats> groups = groupBy(products, product -> Boolean.TRUE);
+        Stats total = groups.get(Boolean.TRUE);
+        return total != null ? total : new Stats();
+    }
+
+    public static Map<String, Stats> byCategory(List<? extends Product> products) {
+        return groupBy(products, BY_CATEGORY);
+    }
+
+    public static Map<Boolean, Stats> byAvailability(List<? extends Product> products) {
+        return groupBy(products, BY_AVAILABILITY);
+    }
+
+    /**
+     * Aggregate products per group in a single pass
+     * Lists with random access above a few thousand items are aggregated in parallel.
+     * Null items are skipped.
+     */
+    public static <K> Map<K, Stats> groupBy(List<? extends Product> products, GroupKey<K> key) {
+        if (products == null || products.isEmpty()) {
+            return new HashMap<>();
+        }
+        if (products.size() >= PARALLEL_THRESHOLD * 2 && products instanceof RandomAccess
+                && ForkJoinPool.getCommonPoolParallelism() > 1) {
+            return ForkJoinPool.commonPool().invoke(new GroupTask<>(products, key, 0, products.size()));
+        }
+        return aggregateRange(products, key, 0, products.size());
+    }
+
+    private static <K> Map<K, Stats> aggregateRange(List<? extends Product> products, GroupKey<K> key,
+                                                    int from, int to) {
+        Map<K, Stats> groups = new HashMap<>();
+        // The last group is cached since lists are often ordered by the grouping field
+        K lastKey = null;
+        Stats lastStats = null;
+        for (int i = from; i < to; i++) {
+            Product product = products.get(i);
+            if (product == null) {
+                continue;
+            }
+            K k = key.keyOf(product);
+            if (lastStats == null || !equalKeys(k, lastKey)) {
+                lastKey = k;
+                lastStats = groups.get(k);
+                if (lastStats == null) {
+                    lastStats = new Stats();
+                    groups.put(k, lastStats);
+                }
+            }
+            lastStats.add(product);
+        }
+        return groups;
+    }
+
+    private static boolean equalKeys(Object a, Object b) {
+        return a == b || (a != null && a.equals(b));
+    }
+
+    private static class GroupTask<K> extends RecursiveTask<Map<K, Stats>> {
+        private final List<? extends Product> products;
+        private final GroupKey<K> key;
+        private final int from;
+        private final int to;
+
+        GroupTask(List<? extends Product> products, GroupKey<K> key, int from, int to) {
+            this.products = products;
+            this.key = key;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Map<K, Stats> compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                return aggregateRange(products, key, from, to);
+            }
+            int mid = (from + to) >>> 1;
+            GroupTask<K> left = new GroupTask<>(products, key, from, mid);
+            left.fork();
+            Map<K, Stats> right = new GroupTask<>(products, key, mid, to).compute();
+            Map<K, Stats> merged = left.join();
+            for (Map.Entry<K, Stats> entry : right.entrySet()) {
+                Stats stats = merged.get(entry.getKey());
+                if (stats == null) {
+                    merged.put(entry.getKey(), entry.getValue());
+                } else {
+                    stats.merge(entry.getValue());
+                }
+            }
+            return merged;
+        }
+    }
+}
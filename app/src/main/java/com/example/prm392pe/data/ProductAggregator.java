@@ -0,0 +1,234 @@
+package com.example.prm392pe.data;
+
+import com.example.prm392pe.models.Product;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Group aggregates kept up to date as products are added, updated and removed
+ *
+ * Each change adjusts only the sums of the groups it touches, so stats stay current
+ * without rescanning the catalog, e.g. when fed from ProductAdapter's
+ * OnProductsChangedListener. Removing a product that held a group's min or max marks the
+ * group stale, and that group alone is rebuilt from its own members on its next read, so
+ * the rebuild costs the size of the group rather than of the catalog. The total is
+ * rebuilt by merging the groups. Products are tracked by id. Thread-safe.
+ */
+public class ProductAggregator<K> {
+
+    private final ProductAggregates.GroupKey<K> groupKey;
+    private final Map<Integer, Entry<K>> entries = new HashMap<>();
+    private final Map<K, ProductAggregates.Stats> groups = new HashMap<>();
+    // The entries of each group, for rebuilding one group without scanning the others
+    private final Map<K, Set<Entry<K>>> members = new HashMap<>();
+    private final Set<K> staleGroups = new HashSet<>();
+    private final ProductAggregates.Stats total = new ProductAggregates.Stats();
+    private boolean totalStale;
+
+    // What a product contributed, so the same amounts can be taken out again; compared by identity
+    private static class Entry<K> {
+        final K key;
+        final double price;
+        final int quantity;
+        final boolean available;
+
+        Entry(K key, Product product) {
+            this.key = key;
+            this.price = product.getPrice();
+            this.quantity = product.getQuantity();
+            this.available = product.isAvailable();
+        }
+    }
+
+    public ProductAggregator(ProductAggregates.GroupKey<K> groupKey) {
+        this.groupKey = groupKey;
+    }
+
+    /**
+     * Replace the tracked products, aggregating them in one pass
+     */
+    public synchronized void setAll(List<? extends Product> products) {
+        entries.clear();
+        groups.clear();
+        members.clear();
+        staleGroups.clear();
+        total.reset();
+        totalStale = false;
+        if (products == null) {
+            return;
+        }
+        groups.putAll(ProductAggregates.groupBy(products, groupKey));
+        for (Product product : products) {
+            if (product != null) {
+                Entry<K> entry = new Entry<>(groupKey.keyOf(product), product);
+                Entry<K> previous = entries.put(product.getId(), entry);
+                if (previous != null) {
+                    members.get(previous.key).remove(previous);
+                }
+                addMember(entry);
+            }
+        }
+        for (ProductAggregates.Stats stats : groups.values()) {
+            total.merge(stats);
+        }
+        if (entries.size() != total.getCount()) {
+            // Duplicate ids: only the last of each is tracked, so rebuild from the entries
+            rebuildAll();
+        }
+    }
+
+    /**
+     * Track a product, replacing any product with the same id
+     */
+    public synchronized void add(Product product) {
+        if (product == null) return;
+        Entry<K> entry = new Entry<>(groupKey.keyOf(product), product);
+        Entry<K> previous = entries.put(product.getId(), entry);
+        if (previous != null) {
+            subtract(previous);
+        }
+        ProductAggregates.Stats stats = groups.get(entry.key);
+        if (stats == null) {
+            stats = new ProductAggregates.Stats();
+            groups.put(entry.key, stats);
+        }
+        stats.add(entry.price, entry.quantity, entry.available);
+        total.add(entry.price, entry.quantity, entry.available);
+        addMember(entry);
+    }
+
+    public synchronized void addAll(Collection<? extends Product> products) {
+        if (products == null) return;
+        for (Product product : products) {
+            add(product);
+        }
+    }
+
+    /**
+     * Re-aggregate a product whose price, quantity, availability or group changed
+     */
+    public synchronized void update(Product product) {
+        add(product);
+    }
+
+    public synchronized void remove(Product product) {
+        if (product == null) return;
+        remove(product.getId());
+    }
+
+    public synchronized void remove(int productId) {
+        Entry<K> entry = entries.remove(productId);
+        if (entry != null) {
+            subtract(entry);
+        }
+    }
+
+    public synchronized void clear() {
+        setAll(null);
+    }
+
+    /**
+     * @return A copy of the group's stats, or null if no tracked product is in the group
+     */
+    public synchronized ProductAggregates.Stats getStats(K key) {
+        ProductAggregates.Stats stats = groups.get(key);
+        if (stats == null) {
+            return null;
+        }
+        if (staleGroups.remove(key)) {
+            rebuildGroup(key, stats);
+        }
+        return new ProductAggregates.Stats(stats);
+    }
+
+    /**
+     * Get a copy of every group's stats
+     */
+    public synchronized Map<K, ProductAggregates.Stats> getGroups() {
+        for (K key : staleGroups) {
+            rebuildGroup(key, groups.get(key));
+        }
+        staleGroups.clear();
+        Map<K, ProductAggregates.Stats> copy = new HashMap<>(groups.size() * 2);
+        for (Map.Entry<K, ProductAggregates.Stats> group : groups.entrySet()) {
+            copy.put(group.getKey(), new ProductAggregates.Stats(group.getValue()));
+        }
+        return copy;
+    }
+
+    /**
+     * Get a copy of the stats over all tracked products
+     */
+    public synchronized ProductAggregates.Stats getTotal() {
+        if (totalStale) {
+            for (K key : staleGroups) {
+                rebuildGroup(key, groups.get(key));
+            }
+            staleGroups.clear();
+            total.reset();
+            for (ProductAggregates.Stats stats : groups.values()) {
+                total.merge(stats);
+            }
+            totalStale = false;
+        }
+        return new ProductAggregates.Stats(total);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private void addMember(Entry<K> entry) {
+        Set<Entry<K>> group = members.get(entry.key);
+        if (group == null) {
+            group = new HashSet<>();
+            members.put(entry.key, group);
+        }
+        group.add(entry);
+    }
+
+    private void subtract(Entry<K> entry) {
+        Set<Entry<K>> group = members.get(entry.key);
+        group.remove(entry);
+        if (group.isEmpty()) {
+            members.remove(entry.key);
+        }
+        ProductAggregates.Stats stats = groups.get(entry.key);
+        if (!stats.subtract(entry.price, entry.quantity, entry.available)) {
+            staleGroups.add(entry.key);
+        }
+        if (stats.getCount() == 0) {
+            groups.remove(entry.key);
+            staleGroups.remove(entry.key);
+        }
+        if (!total.subtract(entry.price, entry.quantity, entry.available)) {
+            totalStale = true;
+        }
+    }
+
+    private void rebuildGroup(K key, ProductAggregates.Stats stats) {
+        stats.reset();
+        for (Entry<K> entry : members.get(key)) {
+            stats.add(entry.price, entry.quantity, entry.available);
+        }
+    }
+
+    private void rebuildAll() {
+        groups.clear();
+        total.reset();
+        for (Entry<K> entry : entries.values()) {
+            ProductAggregates.Stats stats = groups.get(entry.key);
+            if (stats == null) {
+                stats = new ProductAggregates.Stats();
+                groups.put(entry.key, stats);
+            }
+            stats.add(entry.price, entry.quantity, entry.available);
+            total.add(entry.price, entry.quantity, entry.available);
+        }
+    }
+}
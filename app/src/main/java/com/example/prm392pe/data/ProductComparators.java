@@ -0,0 +1,53 @@
+package com.example.prm392pe.data;
+
+import com.example.prm392pe.models.Product;
+
+import java.util.Comparator;
+
+/**
+ * Sort keys for products, combinable into multi-key orders
+ */
+public class ProductComparators {
+
+    public static final Comparator<Product> BY_PRICE =
+            (a, b) -> Double.compare(a.getPrice(), b.getPrice());
+
+    public static final Comparator<Product> BY_QUANTITY =
+            (a, b) -> Integer.compare(a.getQuantity(), b.getQuantity());
+
+    /**
+     * Available products first
+     */
+    public static final Comparator<Product> BY_AVAILABILITY =
+            (a, b) -> Boolean.compare(b.isAvailable(), a.isAvailable());
+
+    public static final Comparator<Product> BY_CATEGORY =
+            (a, b) -> compareText(a.getCategory(), b.getCategory());
+
+    public static final Comparator<Product> BY_NAME =
+            (a, b) -> compareText(a.getName(), b.getName());
+
+    public static final Comparator<Product> BY_ID =
+            (a, b) -> Integer.compare(a.getId(), b.getId());
+
+    /**
+     * Combine sort keys, earlier keys taking precedence
+     * Ties are broken by product id so the order is total, which sorted insertion relies on.
+     *
+     * @param keys Sort keys, e.g. BY_CATEGORY, BY_PRICE
+     */
+    @SafeVarargs
+    public static Comparator<Product> of(Comparator<Product>... keys) {
+        Comparator<Product> combined = null;
+        for (Comparator<Product> key : keys) {
+            combined = combined == null ? key : combined.thenComparing(key);
+        }
+        return combined == null ? BY_ID : combined.thenComparing(BY_ID);
+    }
+
+    private static int compareText(String a, String b) {
+        if (a == null) return b == null ? 0 : -1;
+        if (b == null) return 1;
+        return a.compareToIgnoreCase(b);
+    }
+}
@@ -0,0 +1,665 @@
+package com.example.prm392pe.data;
+
+import com.example.prm392pe.models.Product;
+import com.example.prm392pe.utils.StringDictionary;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Streaming reader for product catalogs stored as a JSON array of objects
+ *
+ * Bytes are decoded straight out of one fixed buffer, token by token, so memory stays
+ * constant however large the file is: only the product being parsed is held. Keys match
+ * the Product fields (id, name, description, price, imageUrl, category, quantity and
+ * isAvailable, or available); unknown keys are skipped and missing ones keep Product's
+ * defaults. Products read by one reader share a single instance of each category and of
+ * each repeated image URL; getCategoryDictionary() and getImageUrlDictionary() report
+ * the savings.
+ * Not thread-safe.
+ */
+public class ProductJsonReader implements Closeable {
+
+    public interface ProductSink {
+        void accept(Product product) throws IOException;
+    }
+
+    public interface OnBatchListener {
+        /**
+         * @param batch A new list each time, safe to keep
+         */
+        void onBatch(List<Product> batch) throws IOException;
+    }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final int STATE_START = 0;
+    private static final int STATE_FIRST = 1;
+    private static final int STATE_NEXT = 2;
+    private static final int STATE_DONE = 3;
+
+    private static final int KEY_UNKNOWN = 0;
+    private static final int KEY_ID = 1;
+    private static final int KEY_NAME = 2;
+    private static final int KEY_DESCRIPTION = 3;
+    private static final int KEY_PRICE = 4;
+    private static final int KEY_IMAGE_URL = 5;
+    private static final int KEY_CATEGORY = 6;
+    private static final int KEY_QUANTITY = 7;
+    private static final int KEY_AVAILABLE = 8;
+
+    // Exact powers of ten, so digits / 10^n is correctly rounded for short decimals
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    // Distinct categories shared between the products of one catalog
+    private static final int MAX_CATEGORIES = 1024;
+    // Repeated image URLs, such as placeholders, are shared as well; most URLs are unique,
+    // so the dictionary stops growing at this size
+    private static final int MAX_IMAGE_URLS = 4096;
+
+    private static final char REPLACEMENT = '\uFFFD';
+    // Smallest code point for each number of continuation bytes, anything lower is overlong
+    private static final int[] MIN_CODE_POINT = {0, 0x80, 0x800, 0x10000};
+
+    private final InputStream in;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int pos;
+    private int limit;
+    // Bytes consumed before the current buffer
+    private long bufferStart;
+    private int state = STATE_START;
+    private final StringDictionary categories = new StringDictionary(MAX_CATEGORIES);
+    private final StringDictionary imageUrls = new StringDictionary(MAX_IMAGE_URLS);
+
+    // Decoded text of the current string or number
+    private char[] chars = new char[128];
+    private int charCount;
+
+    public ProductJsonReader(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * Get the dictionary sharing category strings between the products read so far, e.g.
+     * for its hit count and estimate of the bytes saved
+     */
+    public StringDictionary getCategoryDictionary() {
+        return categories;
+    }
+
+    /**
+     * Get the dictionary sharing repeated image URLs between the products read so far
+     */
+    public StringDictionary getImageUrlDictionary() {
+        return imageUrls;
+    }
+
+    /**
+     * Read every product of a catalog file
+     *
+     * @return The number of products read
+     */
+    public static int readFile(File file, ProductSink sink) throws IOException {
+        try (ProductJsonReader reader = new ProductJsonReader(new FileInputStream(file))) {
+            return reader.readAll(sink);
+        }
+    }
+
+    /**
+     * Read the next product
+     *
+     * @return A new product, or null at the end of the array
+     */
+    public Product next() throws IOException {
+        Product product = new Product();
+        return next(product) ? product : null;
+    }
+
+    /**
+     * Read the next product into an existing instance, resetting fields missing from the input
+     *
+     * @return false at the end of the array, leaving the product untouched
+     */
+    public boolean next(Product product) throws IOException {
+        if (!advanceToElement()) {
+            return false;
+        }
+        product.setId(0);
+        product.setName(null);
+        product.setDescription(null);
+        product.setPrice(0);
+        product.setImageUrl(null);
+        product.setCategory(null);
+        product.setQuantity(0);
+        product.setAvailable(false);
+        readObject(product);
+        state = STATE_NEXT;
+        return true;
+    }
+
+    /**
+     * Pass every remaining product to a sink, each as a new instance
+     *
+     * @return The number of products read
+     */
+    public int readAll(ProductSink sink) throws IOException {
+        int count = 0;
+        Product product;
+        while ((product = next()) != null) {
+            sink.accept(product);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Deliver the remaining products in lists of up to batchSize, e.g. to add each list
+     * through ProductAdapter.beginBatch() and one ProductBatch.commit()
+     *
+     * @return The number of products read
+     */
+    public int readBatches(int batchSize, OnBatchListener listener) throws IOException {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        int count = 0;
+        List<Product> batch = new ArrayList<>(batchSize);
+        Product product;
+        while ((product = next()) != null) {
+            batch.add(product);
+            count++;
+            if (batch.size() == batchSize) {
+                listener.onBatch(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            listener.onBatch(batch);
+        }
+        return count;
+    }
+
+    /**
+     * Add the remaining products to a store, reusing one Product for parsing
+     * Products whose id is already stored overwrite it.
+     *
+     * @return The number of products read
+     */
+    public int readInto(ProductStore store) throws IOException {
+        int count = 0;
+        Product scratch = new Product();
+        while (next(scratch)) {
+            store.add(scratch);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Get the number of input bytes parsed so far
+     */
+    public long getBytesRead() {
+        return bufferStart + pos;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    // Array structure
+
+    private boolean advanceToElement() throws IOException {
+        switch (state) {
+            case STATE_START:
+                expect(skipWhitespace(), '[');
+                if (peekNonWhitespace() == ']') {
+                    pos++;
+                    finish();
+                    return false;
+                }
+                state = STATE_FIRST;
+                return true;
+            case STATE_FIRST:
+                return true;
+            case STATE_NEXT:
+                int c = skipWhitespace();
+                if (c == ']') {
+                    finish();
+                    return false;
+                }
+                expect(c, ',');
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private void finish() throws IOException {
+        state = STATE_DONE;
+        int c = skipWhitespace();
+        if (c != -1) {
+            throw syntaxError("Unexpected data after the catalog array");
+        }
+    }
+
+    private void readObject(Product product) throws IOException {
+        expect(skipWhitespace(), '{');
+        if (peekNonWhitespace() == '}') {
+            pos++;
+            return;
+        }
+        while (true) {
+            expect(skipWhitespace(), '"');
+            readStringBody();
+            int key = keyCode();
+            expect(skipWhitespace(), ':');
+
+            switch (key) {
+                case KEY_ID:
+                    product.setId(readInt());
+                    break;
+                case KEY_NAME:
+                    product.setName(readNullableString());
+                    break;
+                case KEY_DESCRIPTION:
+                    product.setDescription(readNullableString());
+                    break;
+                case KEY_PRICE:
+                    product.setPrice(readDouble());
+                    break;
+                case KEY_IMAGE_URL:
+                    product.setImageUrl(imageUrls.intern(readNullableString()));
+                    break;
+                case KEY_CATEGORY:
+                    product.setCategory(categories.intern(readNullableString()));
+                    break;
+                case KEY_QUANTITY:
+                    product.setQuantity(readInt());
+                    break;
+                case KEY_AVAILABLE:
+                    product.setAvailable(readBoolean());
+                    break;
+                default:
+                    skipValue();
+                    break;
+            }
+
+            int c = skipWhitespace();
+            if (c == '}') {
+                return;
+            }
+            expect(c, ',');
+        }
+    }
+
+    private int keyCode() {
+        switch (charCount) {
+            case 2:
+                return charsEqual("id") ? KEY_ID : KEY_UNKNOWN;
+            case 4:
+                return charsEqual("name") ? KEY_NAME : KEY_UNKNOWN;
+            case 5:
+                return charsEqual("price") ? KEY_PRICE : KEY_UNKNOWN;
+            case 8:
+                if (charsEqual("imageUrl")) return KEY_IMAGE_URL;
+                if (charsEqual("category")) return KEY_CATEGORY;
+                if (charsEqual("quantity")) return KEY_QUANTITY;
+                return KEY_UNKNOWN;
+            case 9:
+                return charsEqual("available") ? KEY_AVAILABLE : KEY_UNKNOWN;
+            case 11:
+                if (charsEqual("description")) return KEY_DESCRIPTION;
+                if (charsEqual("isAvailable")) return KEY_AVAILABLE;
+                return KEY_UNKNOWN;
+            default:
+                return KEY_UNKNOWN;
+        }
+    }
+
+    private boolean charsEqual(String key) {
+        for (int i = 0; i < charCount; i++) {
+            if (chars[i] != key.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Values
+
+    private String readNullableString() throws IOException {
+        int c = skipWhitespace();
+        if (c == 'n') {
+            expectLiteral("ull");
+            return null;
+        }
+        expect(c, '"');
+        readStringBody();
+        return new String(chars, 0, charCount);
+    }
+
+    private boolean readBoolean() throws IOException {
+        int c = skipWhitespace();
+        switch (c) {
+            case 't':
+                expectLiteral("rue");
+                return true;
+            case 'f':
+                expectLiteral("alse");
+                return false;
+            case 'n':
+                expectLiteral("ull");
+                return false;
+            default:
+                throw syntaxError("Expected a boolean");
+        }
+    }
+
+    private int readInt() throws IOException {
+        int c = skipWhitespace();
+        if (c == 'n') {
+            expectLiteral("ull");
+            return 0;
+        }
+        double value = readNumber(c);
+        if (value != Math.rint(value) || value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw syntaxError("Expected an int");
+        }
+        return (int) value;
+    }
+
+    private double readDouble() throws IOException {
+        int c = skipWhitespace();
+        if (c == 'n') {
+            expectLiteral("ull");
+            return 0;
+        }
+        return readNumber(c);
+    }
+
+    /**
+     * Parse a JSON number whose first character has been consumed
+     */
+    private double readNumber(int first) throws IOException {
+        charCount = 0;
+        long digits = 0;
+        int digitCount = 0;
+        int fractionDigits = 0;
+        boolean negative = false;
+        boolean fraction = false;
+        boolean exponent = false;
+
+        int c = first;
+        if (c == '-') {
+            negative = true;
+            appendChar('-');
+            c = read();
+        }
+        if (c < '0' || c > '9') {
+            throw syntaxError("Expected a number");
+        }
+        while (true) {
+            if (c >= '0' && c <= '9') {
+                if (!exponent) {
+                    digits = digits * 10 + (c - '0');
+                    digitCount++;
+                    if (fraction) {
+                        fractionDigits++;
+                    }
+                }
+            } else if (c == '.' && !fraction && !exponent) {
+                fraction = true;
+            } else if ((c == 'e' || c == 'E') && !exponent) {
+                exponent = true;
+            } else if ((c == '+' || c == '-') && exponent
+                    && (chars[charCount - 1] == 'e' || chars[charCount - 1] == 'E')) {
+                // Exponent sign
+            } else {
+                break;
+            }
+            appendChar((char) c);
+            c = read();
+        }
+        if (c != -1) {
+            pos--;
+        }
+
+        // Up to 15 digits fit a double exactly, so one division rounds correctly
+        if (!exponent && digitCount <= 15) {
+            double value = digits / POWERS_OF_TEN[fractionDigits];
+            return negative ? -value : value;
+        }
+        try {
+            return Double.parseDouble(new String(chars, 0, charCount));
+        } catch (NumberFormatException e) {
+            throw syntaxError("Malformed number");
+        }
+    }
+
+    /**
+     * Decode a string whose opening quote has been consumed into chars
+     */
+    private void readStringBody() throws IOException {
+        charCount = 0;
+        while (true) {
+            if (pos == limit && !fill()) {
+                throw new EOFException("Unterminated string at byte " + getBytesRead());
+            }
+            int b = buffer[pos++];
+            if (b == '"') {
+                return;
+            }
+            if (b == '\\') {
+                appendChar(readEscape());
+            } else if (b >= 0x20) {
+                appendChar((char) b);
+            } else if (b >= 0) {
+                throw syntaxError("Control character in string");
+            } else {
+                decodeMultiByte(b & 0xFF);
+            }
+        }
+    }
+
+    private char readEscape() throws IOException {
+        int c = read();
+        switch (c) {
+            case '"':
+            case '\\':
+            case '/':
+                return (char) c;
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            case 'u':
+                int value = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = Character.digit(read(), 16);
+                    if (digit < 0) {
+                        throw syntaxError("Malformed unicode escape");
+                    }
+                    value = (value << 4) | digit;
+                }
+                return (char) value;
+            default:
+                throw syntaxError("Unknown escape");
+        }
+    }
+
+    /**
+     * Decode a UTF-8 sequence from its lead byte; malformed input becomes U+FFFD
+     */
+    private void decodeMultiByte(int lead) throws IOException {
+        int extra;
+        int codePoint;
+        if (lead >= 0xC2 && lead <= 0xDF) {
+            extra = 1;
+            codePoint = lead & 0x1F;
+        } else if (lead >= 0xE0 && lead <= 0xEF) {
+            extra = 2;
+            codePoint = lead & 0x0F;
+        } else if (lead >= 0xF0 && lead <= 0xF4) {
+            extra = 3;
+            codePoint = lead & 0x07;
+        } else {
+            appendChar(REPLACEMENT);
+            return;
+        }
+        for (int i = 0; i < extra; i++) {
+            int b = read();
+            if ((b & 0xC0) != 0x80) {
+                // Leave the byte for the caller, it may be a quote or a new sequence
+                if (b != -1) {
+                    pos--;
+                }
+                appendChar(REPLACEMENT);
+                return;
+            }
+            codePoint = (codePoint << 6) | (b & 0x3F);
+        }
+        if (codePoint < MIN_CODE_POINT[extra]
+                || (codePoint >= 0xD800 && codePoint <= 0xDFFF) || codePoint > 0x10FFFF) {
+            // Overlong encoding, surrogate or out of range
+            appendChar(REPLACEMENT);
+        } else if (codePoint >= 0x10000) {
+            appendChar(Character.highSurrogate(codePoint));
+            appendChar(Character.lowSurrogate(codePoint));
+        } else {
+            appendChar((char) codePoint);
+        }
+    }
+
+    private void skipValue() throws IOException {
+        int c = skipWhitespace();
+        switch (c) {
+            case '"':
+                readStringBody();
+                return;
+            case 't':
+                expectLiteral("rue");
+                return;
+            case 'f':
+                expectLiteral("alse");
+                return;
+            case 'n':
+                expectLiteral("ull");
+                return;
+            case '{':
+            case '[':
+                skipNested();
+                return;
+            default:
+                readNumber(c);
+        }
+    }
+
+    /**
+     * Skip a nested object or array whose opening bracket has been consumed
+     * Inner structure is only checked for balanced brackets.
+     */
+    private void skipNested() throws IOException {
+        int depth = 1;
+        while (depth > 0) {
+            int c = read();
+            if (c == -1) {
+                throw new EOFException("Unterminated value at byte " + getBytesRead());
+            } else if (c == '"') {
+                readStringBody();
+            } else if (c == '{' || c == '[') {
+                depth++;
+            } else if (c == '}' || c == ']') {
+                depth--;
+            }
+        }
+    }
+
+    // Bytes
+
+    private int read() throws IOException {
+        if (pos == limit && !fill()) {
+            return -1;
+        }
+        return buffer[pos++] & 0xFF;
+    }
+
+    private boolean fill() throws IOException {
+        bufferStart += limit;
+        pos = 0;
+        limit = 0;
+        int n = in.read(buffer, 0, buffer.length);
+        if (n <= 0) {
+            return false;
+        }
+        limit = n;
+        return true;
+    }
+
+    /**
+     * Consume whitespace and return the next byte, or -1 at the end of input
+     */
+    private int skipWhitespace() throws IOException {
+        while (true) {
+            int c = read();
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                return c;
+            }
+        }
+    }
+
+    /**
+     * Skip whitespace and look at the next byte without consuming it
+     */
+    private int peekNonWhitespace() throws IOException {
+        int c = skipWhitespace();
+        if (c != -1) {
+            pos--;
+        }
+        return c;
+    }
+
+    private void expect(int actual, char expected) throws IOException {
+        if (actual != expected) {
+            if (actual == -1) {
+                throw new EOFException("Expected '" + expected + "' at byte " + getBytesRead());
+            }
+            throw syntaxError("Expected '" + expected + "'");
+        }
+    }
+
+    private void expectLiteral(String rest) throws IOException {
+        for (int i = 0; i < rest.length(); i++) {
+            if (read() != rest.charAt(i)) {
+                throw syntaxError("Malformed literal");
+            }
+        }
+    }
+
+    private void appendChar(char c) {
+        if (charCount == chars.length) {
+            chars = Arrays.copyOf(chars, charCount * 2);
+        }
+        chars[charCount++] = c;
+    }
+
+    private IOException syntaxError(String message) {
+        return new IOException(message + " at byte " + getBytesRead());
+    }
+}
@@ -0,0 +1,280 @@
+package com.example.prm392pe.data;
+
+import com.example.prm392pe.models.Product;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Streaming writer for product catalogs in the JSON format read by ProductJsonReader
+ *
+ * Products are encoded into one fixed byte buffer and written out as it fills, one object
+ * per line, so exporting a catalog never builds it as a String. close() ends the array,
+ * so always close the writer, e.g. with try-with-resources. Not thread-safe.
+ */
+public class ProductJsonWriter implements Closeable, Flushable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // Room for any single token that is not a string, such as a number
+    private static final int MAX_TOKEN = 32;
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private final OutputStream out;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int pos;
+    private int count;
+    private boolean closed;
+
+    public ProductJsonWriter(OutputStream out) {
+        this.out = out;
+        writeByte('[');
+    }
+
+    /**
+     * Write products to a catalog file, replacing its content
+     */
+    public static void writeFile(File file, Iterable<? extends Product> products) throws IOException {
+        try (ProductJsonWriter writer = new ProductJsonWriter(new FileOutputStream(file))) {
+            writer.writeAll(products);
+        }
+    }
+
+    /**
+     * Append one product to the array
+     *
+     * @throws IllegalArgumentException if the price is NaN or infinite, which JSON cannot hold
+     */
+    public void write(Product product) throws IOException {
+        write(product.getId(), product.getName(), product.getDescription(), product.getPrice(),
+                product.getImageUrl(), product.getCategory(), product.getQuantity(), product.isAvailable());
+    }
+
+    public void writeAll(Iterable<? extends Product> products) throws IOException {
+        for (Product product : products) {
+            write(product);
+        }
+    }
+
+    /**
+     * Append every product of a store, read straight from its columns
+     */
+    public void writeAll(ProductStore store) throws IOException {
+        for (int slot = 0; slot < store.size(); slot++) {
+            write(store.getId(slot), store.getName(slot), store.getDescription(slot), store.getPrice(slot),
+                    store.getImageUrl(slot), store.getCategory(slot), store.getQuantity(slot),
+                    store.isAvailable(slot));
+        }
+    }
+
+    /**
+     * Get the number of products written so far
+     */
+    public int getCount() {
+        return count;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.write(buffer, 0, pos);
+        pos = 0;
+        out.flush();
+    }
+
+    /**
+     * End the array, flush and close the stream
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            ensureRoom(3);
+            writeByte(count > 0 ? '\n' : ' ');
+            writeByte(']');
+            writeByte('\n');
+            flush();
+        } finally {
+            out.close();
+        }
+    }
+
+    private void write(int id, String name, String description, double price, String imageUrl,
+                       String category, int quantity, boolean available) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("Writer is closed");
+        }
+        if (Double.isNaN(price) || Double.isInfinite(price)) {
+            throw new IllegalArgumentException("Price is not a finite number: " + price);
+        }
+
+        ensureRoom(MAX_TOKEN);
+        writeByte(count > 0 ? ',' : '\n');
+        if (count > 0) {
+            writeByte('\n');
+        }
+        writeAscii("{\"id\":");
+        writeInt(id);
+        writeAscii(",\"name\":");
+        writeString(name);
+        writeAscii(",\"description\":");
+        writeString(description);
+        writeAscii(",\"price\":");
+        writePrice(price);
+        writeAscii(",\"imageUrl\":");
+        writeString(imageUrl);
+        writeAscii(",\"category\":");
+        writeString(category);
+        writeAscii(",\"quantity\":");
+        writeInt(quantity);
+        writeAscii(available ? ",\"isAvailable\":true}" : ",\"isAvailable\":false}");
+        count++;
+    }
+
+    private void writeInt(int value) throws IOException {
+        ensureRoom(MAX_TOKEN);
+        long v = value;
+        if (v < 0) {
+            buffer[pos++] = '-';
+            v = -v;
+        }
+        writeDigits(v);
+    }
+
+    /**
+     * Write positive digits without allocating; the caller has ensured room
+     */
+    private void writeDigits(long value) {
+        int digits = 1;
+        for (long rest = value / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        int end = pos + digits;
+        for (int i = end - 1; i >= pos; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        pos = end;
+    }
+
+    private void writePrice(double price) throws IOException {
+        ensureRoom(MAX_TOKEN);
+        long cents = Math.round(price * 100);
+        // Whole cents are written directly; other values fall back to the shortest round-trip form
+        if (Math.abs(cents) < 1_000_000_000_000_000L && Double.compare(cents / 100.0, price) == 0) {
+            if (cents < 0) {
+                buffer[pos++] = '-';
+                cents = -cents;
+            }
+            writeDigits(cents / 100);
+            buffer[pos++] = '.';
+            int fraction = (int) (cents % 100);
+            buffer[pos++] = (byte) ('0' + fraction / 10);
+            if (fraction % 10 != 0) {
+                buffer[pos++] = (byte) ('0' + fraction % 10);
+            }
+        } else {
+            writeAscii(Double.toString(price));
+        }
+    }
+
+    private void writeString(String value) throws IOException {
+        if (value == null) {
+            writeAscii("null");
+            return;
+        }
+        ensureRoom(1);
+        buffer[pos++] = '"';
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            // Worst case per char: a six-byte escape, or four bytes for a surrogate pair
+            if (pos + 6 > buffer.length) {
+                drain();
+            }
+            char c = value.charAt(i);
+            if (c >= 0x20 && c < 0x80) {
+                if (c == '"' || c == '\\') {
+                    buffer[pos++] = '\\';
+                }
+                buffer[pos++] = (byte) c;
+            } else if (c < 0x20) {
+                writeControl(c);
+            } else if (c < 0x800) {
+                buffer[pos++] = (byte) (0xC0 | (c >> 6));
+                buffer[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer[pos++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[pos++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[pos++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[pos++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // Unpaired surrogates cannot be encoded
+                buffer[pos++] = '?';
+            } else {
+                buffer[pos++] = (byte) (0xE0 | (c >> 12));
+                buffer[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        ensureRoom(1);
+        buffer[pos++] = '"';
+    }
+
+    private void writeControl(char c) {
+        buffer[pos++] = '\\';
+        switch (c) {
+            case '\n':
+                buffer[pos++] = 'n';
+                break;
+            case '\r':
+                buffer[pos++] = 'r';
+                break;
+            case '\t':
+                buffer[pos++] = 't';
+                break;
+            case '\b':
+                buffer[pos++] = 'b';
+                break;
+            case '\f':
+                buffer[pos++] = 'f';
+                break;
+            default:
+                buffer[pos++] = 'u';
+                buffer[pos++] = '0';
+                buffer[pos++] = '0';
+                buffer[pos++] = HEX[c >> 4];
+                buffer[pos++] = HEX[c & 0xF];
+                break;
+        }
+    }
+
+    private void writeAscii(String text) throws IOException {
+        ensureRoom(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            buffer[pos++] = (byte) text.charAt(i);
+        }
+    }
+
+    private void writeByte(char c) {
+        buffer[pos++] = (byte) c;
+    }
+
+    private void ensureRoom(int bytes) throws IOException {
+        if (pos + bytes > buffer.length) {
+            drain();
+        }
+    }
+
+    private void drain() throws IOException {
+        out.write(buffer, 0, pos);
+        pos = 0;
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.prm392pe.data;
+
+import com.example.prm392pe.models.Product;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Backend that serves products in pages
+ * Implementations are called from a background thread
+ */
+public interface ProductPageLoader {
+    
+    /**
+     * Get the total number of products available
+     */
+    int getTotalCount() throws IOException;
+    
+    /**
+     * Load a page of products
+     * 
+     * @param offset Position of the first product to load
+     * @param limit Maximum number of products to load
+     * @return The loaded products, fewer than limit at the end of the catalog
+     */
+    List<Product> loadPage(int offset, int limit) throws IOException;
+}
@@ -0,0 +1,508 @@
+package com.example.prm392pe.data;
+
+import com.example.prm392pe.models.Product;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Price range and availability index for counting and filtering products
+ *
+ * Distinct prices are kept in a sorted array, and two Fenwick trees over it count all
+ * products and available products per price, so "available between $50 and $300" is two
+ * binary searches and four prefix sums. Price and availability changes adjust the trees
+ * in logarithmic time. A price the sorted array does not hold yet goes to a small
+ * overflow list scanned by queries; once that list fills up, it is merged into the sorted
+ * array in one linear pass. Products are tracked by id. Thread-safe.
+ */
+public class ProductPriceIndex {
+
+    public static final int ANY = 0;
+    public static final int AVAILABLE_ONLY = 1;
+    public static final int UNAVAILABLE_ONLY = 2;
+
+    private static final int OVERFLOW_LIMIT = 256;
+    // Domain position of a slot whose price is in the overflow list
+    private static final int IN_OVERFLOW = -1;
+    // Domain position of a slot whose price is NaN, which no range contains
+    private static final int NOT_A_PRICE = -2;
+
+    // Products by slot; slots are compacted on removal
+    private final IntIntHashMap slotsById = new IntIntHashMap();
+    private int[] ids = new int[16];
+    private double[] prices = new double[16];
+    private int[] positions = new int[16];
+    private long[] availableBits = new long[1];
+    private int size;
+
+    // Sorted distinct prices and Fenwick trees of counts over them, 1-based
+    private double[] domain = new double[0];
+    private int[] allTree = new int[1];
+    private int[] availableTree = new int[1];
+
+    private int[] overflowSlots = new int[16];
+    private int overflowCount;
+
+    // Slots ordered by price for findIds, rebuilt after changes
+    private int[] order;
+
+    public synchronized void setAll(Collection<? extends Product> products) {
+        clear();
+        if (products == null) {
+            return;
+        }
+        ensureCapacity(products.size());
+        for (Product product : products) {
+            if (product == null) continue;
+            int slot = slotsById.get(product.getId());
+            if (slot == IntIntHashMap.MISSING) {
+                slot = size++;
+                ids[slot] = product.getId();
+                slotsById.put(product.getId(), slot);
+            }
+            prices[slot] = normalize(product.getPrice());
+            setBit(slot, product.isAvailable());
+        }
+        rebuild();
+    }
+
+    /**
+     * Track a product, or refresh its price and availability if already tracked
+     */
+    public synchronized void add(Product product) {
+        if (product == null) return;
+        int slot = slotsById.get(product.getId());
+        if (slot != IntIntHashMap.MISSING) {
+            setPriceAt(slot, product.getPrice());
+            setAvailableAt(slot, product.isAvailable());
+            return;
+        }
+        ensureCapacity(size + 1);
+        slot = size++;
+        ids[slot] = product.getId();
+        prices[slot] = normalize(product.getPrice());
+        setBit(slot, product.isAvailable());
+        slotsById.put(product.getId(), slot);
+        place(slot);
+        order = null;
+    }
+
+    public synchronized void update(Product product) {
+        add(product);
+    }
+
+    /**
+     * @return false if the product is not tracked
+     */
+    public synchronized boolean setPrice(int productId, double price) {
+        int slot = slotsById.get(productId);
+        if (slot == IntIntHashMap.MISSING) {
+            return false;
+        }
+        setPriceAt(slot, price);
+        return true;
+    }
+
+    /**
+     * @return false if the product is not tracked
+     */
+    public synchronized boolean setAvailable(int productId, boolean available) {
+        int slot = slotsById.get(productId);
+        if (slot == IntIntHashMap.MISSING) {
+            return false;
+        }
+        setAvailableAt(slot, available);
+        return true;
+    }
+
+    /**
+     * @return true if the product was tracked
+     */
+    public synchronized boolean remove(int productId) {
+        int slot = slotsById.get(productId);
+        if (slot == IntIntHashMap.MISSING) {
+            return false;
+        }
+        unplace(slot);
+        slotsById.remove(productId);
+
+        // Move the last slot into the hole
+        int last = --size;
+        if (slot != last) {
+            ids[slot] = ids[last];
+            prices[slot] = prices[last];
+            positions[slot] = positions[last];
+            setBit(slot, getBit(last));
+            slotsById.put(ids[slot], slot);
+            if (positions[slot] == IN_OVERFLOW) {
+                for (int i = 0; i < overflowCount; i++) {
+                    if (overflowSlots[i] == last) {
+                        overflowSlots[i] = slot;
+                        break;
+                    }
+                }
+            }
+        }
+        setBit(last, false);
+        order = null;
+        return true;
+    }
+
+    public synchronized void clear() {
+        slotsById.clear();
+        Arrays.fill(availableBits, 0);
+        size = 0;
+        domain = new double[0];
+        allTree = new int[1];
+        availableTree = new int[1];
+        overflowCount = 0;
+        order = null;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Count products priced from min to max inclusive
+     *
+     * @param availability ANY, AVAILABLE_ONLY or UNAVAILABLE_ONLY
+     */
+    public synchronized int count(double min, double max, int availability) {
+        int count = 0;
+        int from = lowerBound(min);
+        int to = upperBound(max);
+        if (from < to) {
+            int all = prefix(allTree, to) - prefix(allTree, from);
+            int available = availability == ANY ? 0 : prefix(availableTree, to) - prefix(availableTree, from);
+            count = availability == ANY ? all : availability == AVAILABLE_ONLY ? available : all - available;
+        }
+        for (int i = 0; i < overflowCount; i++) {
+            int slot = overflowSlots[i];
+            if (prices[slot] >= min && prices[slot] <= max && matches(slot, availability)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Get the ids of products priced from min to max inclusive, cheapest first
+     */
+    public synchronized int[] findIds(double min, double max, int availability) {
+        if (overflowCount > 0) {
+            absorbOverflow();
+        }
+        if (order == null) {
+            order = buildOrder();
+        }
+        int from = lowerBound(min);
+        int to = upperBound(max);
+        if (from >= to) {
+            return new int[0];
+        }
+        // Tree prefix sums give the range's place in the price order directly
+        int start = prefix(allTree, from);
+        int end = prefix(allTree, to);
+        int[] result = new int[availability == ANY ? end - start : count(min, max, availability)];
+        int n = 0;
+        for (int i = start; i < end; i++) {
+            int slot = order[i];
+            if (matches(slot, availability)) {
+                result[n++] = ids[slot];
+            }
+        }
+        return result;
+    }
+
+    // Placement in the trees
+
+    private void setPriceAt(int slot, double price) {
+        price = normalize(price);
+        if (Double.compare(prices[slot], price) == 0) {
+            return;
+        }
+        unplace(slot);
+        prices[slot] = price;
+        place(slot);
+        order = null;
+    }
+
+    private void setAvailableAt(int slot, boolean available) {
+        if (getBit(slot) == available) {
+            return;
+        }
+        setBit(slot, available);
+        int position = positions[slot];
+        if (position >= 0) {
+            add(availableTree, position, available ? 1 : -1);
+        }
+    }
+
+    private void place(int slot) {
+        double price = prices[slot];
+        if (Double.isNaN(price)) {
+            positions[slot] = NOT_A_PRICE;
+            return;
+        }
+        int position = Arrays.binarySearch(domain, price);
+        if (position >= 0) {
+            positions[slot] = position;
+            add(allTree, position, 1);
+            if (getBit(slot)) {
+                add(availableTree, position, 1);
+            }
+            return;
+        }
+        positions[slot] = IN_OVERFLOW;
+        if (overflowCount == overflowSlots.length) {
+            overflowSlots = Arrays.copyOf(overflowSlots, overflowCount * 2);
+        }
+        overflowSlots[overflowCount++] = slot;
+        if (overflowCount == OVERFLOW_LIMIT) {
+            absorbOverflow();
+        }
+    }
+
+    private void unplace(int slot) {
+        int position = positions[slot];
+        if (position >= 0) {
+            add(allTree, position, -1);
+            if (getBit(slot)) {
+                add(availableTree, position, -1);
+            }
+        } else if (position == IN_OVERFLOW) {
+            for (int i = 0; i < overflowCount; i++) {
+                if (overflowSlots[i] == slot) {
+                    overflowSlots[i] = overflowSlots[--overflowCount];
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Build the price domain from every tracked price by sorting
+     */
+    private void rebuild() {
+        double[] sorted = new double[size];
+        int n = 0;
+        for (int slot = 0; slot < size; slot++) {
+            if (!Double.isNaN(prices[slot])) {
+                sorted[n++] = prices[slot];
+            }
+        }
+        Arrays.sort(sorted, 0, n);
+        domain = Arrays.copyOf(sorted, dedupe(sorted, n));
+        for (int slot = 0; slot < size; slot++) {
+            positions[slot] = Double.isNaN(prices[slot])
+                    ? NOT_A_PRICE : Arrays.binarySearch(domain, prices[slot]);
+        }
+        buildTrees();
+    }
+
+    /**
+     * Merge the overflow prices into the domain in linear time, dropping unused prices
+     */
+    private void absorbOverflow() {
+        int[] counts = new int[domain.length];
+        for (int slot = 0; slot < size; slot++) {
+            if (positions[slot] >= 0) {
+                counts[positions[slot]]++;
+            }
+        }
+        double[] added = new double[overflowCount];
+        for (int i = 0; i < overflowCount; i++) {
+            added[i] = prices[overflowSlots[i]];
+        }
+        Arrays.sort(added);
+        int addedCount = dedupe(added, added.length);
+
+        // Old position -> new position while merging the two sorted runs
+        int[] moved = new int[domain.length];
+        double[] merged = new double[domain.length + addedCount];
+        int n = 0;
+        int a = 0;
+        for (int i = 0; i < domain.length; i++) {
+            if (counts[i] == 0) {
+                continue;
+            }
+            while (a < addedCount && added[a] < domain[i]) {
+                merged[n++] = added[a++];
+            }
+            moved[i] = n;
+            merged[n++] = domain[i];
+        }
+        while (a < addedCount) {
+            merged[n++] = added[a++];
+        }
+        domain = Arrays.copyOf(merged, n);
+
+        for (int slot = 0; slot < size; slot++) {
+            int position = positions[slot];
+            if (position >= 0) {
+                positions[slot] = moved[position];
+            } else if (position == IN_OVERFLOW) {
+                positions[slot] = Arrays.binarySearch(domain, prices[slot]);
+            }
+        }
+        buildTrees();
+    }
+
+    /**
+     * Fill both trees from the slot positions in linear time
+     */
+    private void buildTrees() {
+        int length = domain.length;
+        allTree = new int[length + 1];
+        availableTree = new int[length + 1];
+        for (int slot = 0; slot < size; slot++) {
+            int position = positions[slot];
+            if (position >= 0) {
+                allTree[position + 1]++;
+                if (getBit(slot)) {
+                    availableTree[position + 1]++;
+                }
+            }
+        }
+        for (int i = 1; i <= length; i++) {
+            int parent = i + (i & -i);
+            if (parent <= length) {
+                allTree[parent] += allTree[i];
+                availableTree[parent] += availableTree[i];
+            }
+        }
+        overflowCount = 0;
+        order = null;
+    }
+
+    /**
+     * Collapse equal neighbours of a sorted run
+     *
+     * @return The number of distinct values now at the start of the array
+     */
+    private static int dedupe(double[] sorted, int length) {
+        int distinct = 0;
+        for (int i = 0; i < length; i++) {
+            if (distinct == 0 || sorted[i] != sorted[distinct - 1]) {
+                sorted[distinct++] = sorted[i];
+            }
+        }
+        return distinct;
+    }
+
+    /**
+     * Sort slots by price position with a counting sort over the domain
+     */
+    private int[] buildOrder() {
+        int[] starts = new int[domain.length + 1];
+        int placed = 0;
+        for (int slot = 0; slot < size; slot++) {
+            if (positions[slot] >= 0) {
+                starts[positions[slot] + 1]++;
+                placed++;
+            }
+        }
+        for (int i = 1; i < starts.length; i++) {
+            starts[i] += starts[i - 1];
+        }
+        int[] sorted = new int[placed];
+        for (int slot = 0; slot < size; slot++) {
+            int position = positions[slot];
+            if (position >= 0) {
+                sorted[starts[position]++] = slot;
+            }
+        }
+        return sorted;
+    }
+
+    // Domain search, returning tree prefix lengths
+
+    /**
+     * Get the number of domain prices below min
+     */
+    private int lowerBound(double min) {
+        int low = 0;
+        int high = domain.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (domain[mid] < min) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Get the number of domain prices at or below max
+     */
+    private int upperBound(double max) {
+        int low = 0;
+        int high = domain.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (domain[mid] <= max) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Fenwick tree
+
+    private static void add(int[] tree, int position, int delta) {
+        for (int i = position + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    /**
+     * Sum of the first length positions
+     */
+    private static int prefix(int[] tree, int length) {
+        int sum = 0;
+        for (int i = length; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    // Slots
+
+    private boolean matches(int slot, int availability) {
+        return availability == ANY || getBit(slot) == (availability == AVAILABLE_ONLY);
+    }
+
+    private boolean getBit(int slot) {
+        return (availableBits[slot >>> 6] & (1L << slot)) != 0;
+    }
+
+    private void setBit(int slot, boolean value) {
+        if (value) {
+            availableBits[slot >>> 6] |= 1L << slot;
+        } else {
+            availableBits[slot >>> 6] &= ~(1L << slot);
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= ids.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, ids.length * 2);
+        ids = Arrays.copyOf(ids, newCapacity);
+        prices = Arrays.copyOf(prices, newCapacity);
+        positions = Arrays.copyOf(positions, newCapacity);
+        availableBits = Arrays.copyOf(availableBits, (newCapacity + 63) >>> 6);
+        slotsById.ensureCapacity(newCapacity);
+    }
+
+    private static double normalize(double price) {
+        // -0.0 sorts below 0.0, fold it so a range starting at 0 includes it
+        return price + 0.0;
+    }
+}
@@ -0,0 +1,444 @@
+package com.example.prm392pe.data;
+
+import com.example.prm392pe.models.Product;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted token and prefix index over product name, description and category
+ *
+ * Every query term must match the start of a token of the product, so "wire head"
+ * finds "Wireless noise-cancelling headphones". The index holds the searchable
+ * catalog and is updated incrementally; queries may run on any thread while updates
+ * happen on the main thread.
+ *
+ * Each product gets a sequence number in catalog order, and each token's postings are a
+ * sorted int array of sequences. A query ORs the postings of every token in a term's
+ * prefix range into a bitset over sequences and reads the set bits in order, so results
+ * come out in catalog order without boxing or sorting.
+ */
+public class ProductSearchIndex {
+
+    // Sequence numbers are renumbered once removed products leave this many unused
+    private static final int MIN_RENUMBER_GAP = 1024;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Sorted so a prefix maps to a contiguous key range
+    private final TreeMap<String, Postings> postings = new TreeMap<>();
+    private final Map<Integer, Entry> entries = new HashMap<>();
+    // Entries by sequence, null where a product was removed
+    private Entry[] bySequence = new Entry[16];
+    private int nextSequence;
+
+    private static class Entry {
+        final Product product;
+        final String[] tokens;
+        // Catalog order, so results come back in the order products were added
+        final int sequence;
+
+        Entry(Product product, String[] tokens, int sequence) {
+            this.product = product;
+            this.tokens = tokens;
+            this.sequence = sequence;
+        }
+    }
+
+    /**
+     * Sequences of the products holding one token, ascending
+     */
+    private static class Postings {
+        int[] sequences = new int[2];
+        int size;
+
+        void add(int sequence) {
+            // New products take the highest sequence, so this is almost always an append
+            int index = size == 0 || sequences[size - 1] < sequence
+                    ? size : Arrays.binarySearch(sequences, 0, size, sequence);
+            if (index >= 0 && index < size) {
+                return;
+            }
+            int insert = index >= 0 ? index : -index - 1;
+            if (size == sequences.length) {
+                sequences = Arrays.copyOf(sequences, size * 2);
+            }
+            System.arraycopy(sequences, insert, sequences, insert + 1, size - insert);
+            sequences[insert] = sequence;
+            size++;
+        }
+
+        void remove(int sequence) {
+            int index = Arrays.binarySearch(sequences, 0, size, sequence);
+            if (index >= 0) {
+                System.arraycopy(sequences, index + 1, sequences, index, size - index - 1);
+                size--;
+            }
+        }
+    }
+
+    /**
+     * Replace the indexed catalog
+     */
+    public void setAll(Collection<Product> products) {
+        lock.writeLock().lock();
+        try {
+            clearLocked(products != null ? products.size() : 0);
+            if (products != null) {
+                for (Product product : products) {
+                    addLocked(product);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void add(Product product) {
+        if (product == null) return;
+        lock.writeLock().lock();
+        try {
+            addLocked(product);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Re-index a product whose searchable fields may have changed
+     */
+    public void update(Product product) {
+        if (product == null) return;
+        lock.writeLock().lock();
+        try {
+            Entry old = entries.get(product.getId());
+            String[] tokens = tokenize(product);
+            if (old != null && Arrays.equals(old.tokens, tokens)) {
+                // Same tokens, only refresh the stored instance
+                putEntry(product.getId(), new Entry(product, old.tokens, old.sequence));
+                return;
+            }
+            if (old == null) {
+                addLocked(product);
+                return;
+            }
+            removePostings(old.sequence, old.tokens);
+            addPostings(old.sequence, tokens);
+            putEntry(product.getId(), new Entry(product, tokens, old.sequence));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Product product) {
+        if (product == null) return;
+        remove(product.getId());
+    }
+
+    public void remove(int productId) {
+        lock.writeLock().lock();
+        try {
+            Entry old = entries.remove(productId);
+            if (old != null) {
+                removePostings(old.sequence, old.tokens);
+                bySequence[old.sequence] = null;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        setAll(null);
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get every indexed product in catalog order
+     */
+    public List<Product> getAll() {
+        lock.readLock().lock();
+        try {
+            List<Product> products = new ArrayList<>(entries.size());
+            for (int sequence = 0; sequence < nextSequence; sequence++) {
+                if (bySequence[sequence] != null) {
+                    products.add(bySequence[sequence].product);
+                }
+            }
+            return products;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Find the products matching every term of the query
+     *
+     * @param query Free text; terms are matched as token prefixes, case-insensitively
+     * @return Matching products in catalog order, or every product for a blank query
+     */
+    public List<Product> search(String query) {
+        String[] terms = splitTokens(query);
+        if (terms.length == 0) {
+            return getAll();
+        }
+
+        lock.readLock().lock();
+        try {
+            moveMostSelectiveFirst(terms);
+
+            long[] matched = new long[(nextSequence + 63) >>> 6];
+            int candidates = addPrefixBits(terms[0], matched);
+            if (terms.length > 1 && candidates > 0) {
+                List<String> checked = new ArrayList<>(terms.length - 1);
+                for (int t = 1; t < terms.length; t++) {
+                    // A term with few postings is cheaper to intersect than to check
+                    // against every candidate's tokens
+                    if (prefixCount(terms[t], candidates) < candidates) {
+                        long[] termBits = new long[matched.length];
+                        addPrefixBits(terms[t], termBits);
+                        for (int w = 0; w < matched.length; w++) {
+                            matched[w] &= termBits[w];
+                        }
+                    } else {
+                        checked.add(terms[t]);
+                    }
+                }
+                if (!checked.isEmpty()) {
+                    filterByTokens(matched, checked);
+                }
+            }
+
+            List<Product> products = new ArrayList<>();
+            for (int w = 0; w < matched.length; w++) {
+                long word = matched[w];
+                while (word != 0) {
+                    int sequence = (w << 6) + Long.numberOfTrailingZeros(word);
+                    products.add(bySequence[sequence].product);
+                    word &= word - 1;
+                }
+            }
+            return products;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void clearLocked(int expectedSize) {
+        postings.clear();
+        entries.clear();
+        bySequence = new Entry[Math.max(16, expectedSize)];
+        nextSequence = 0;
+    }
+
+    private void addLocked(Product product) {
+        Entry old = entries.get(product.getId());
+        String[] tokens = tokenize(product);
+        int sequence;
+        if (old != null) {
+            removePostings(old.sequence, old.tokens);
+            sequence = old.sequence;
+        } else {
+            renumberIfSparse();
+            sequence = nextSequence++;
+            if (sequence == bySequence.length) {
+                bySequence = Arrays.copyOf(bySequence, sequence * 2);
+            }
+        }
+        addPostings(sequence, tokens);
+        putEntry(product.getId(), new Entry(product, tokens, sequence));
+    }
+
+    private void putEntry(int id, Entry entry) {
+        entries.put(id, entry);
+        bySequence[entry.sequence] = entry;
+    }
+
+    /**
+     * Re-add every product in catalog order once removals have left many sequence
+     * numbers unused, so query bitsets stay proportional to the catalog
+     */
+    private void renumberIfSparse() {
+        if (nextSequence - entries.size() < Math.max(MIN_RENUMBER_GAP, entries.size())) {
+            return;
+        }
+        Entry[] old = bySequence;
+        int count = nextSequence;
+        clearLocked(entries.size() * 2);
+        for (int sequence = 0; sequence < count; sequence++) {
+            if (old[sequence] != null) {
+                int renumbered = nextSequence++;
+                addPostings(renumbered, old[sequence].tokens);
+                putEntry(old[sequence].product.getId(),
+                        new Entry(old[sequence].product, old[sequence].tokens, renumbered));
+            }
+        }
+    }
+
+    private void addPostings(int sequence, String[] tokens) {
+        for (String token : tokens) {
+            Postings list = postings.get(token);
+            if (list == null) {
+                list = new Postings();
+                postings.put(token, list);
+            }
+            list.add(sequence);
+        }
+    }
+
+    private void removePostings(int sequence, String[] tokens) {
+        for (String token : tokens) {
+            Postings list = postings.get(token);
+            if (list != null) {
+                list.remove(sequence);
+                if (list.size == 0) {
+                    postings.remove(token);
+                }
+            }
+        }
+    }
+
+    /**
+     * Set the bit of every product holding a token with this prefix
+     *
+     * @return The number of postings visited, an upper bound of the products matched
+     */
+    private int addPrefixBits(String prefix, long[] bits) {
+        int count = 0;
+        for (Postings list : prefixRange(prefix).values()) {
+            int[] sequences = list.sequences;
+            for (int i = 0; i < list.size; i++) {
+                bits[sequences[i] >>> 6] |= 1L << sequences[i];
+            }
+            count += list.size;
+        }
+        return count;
+    }
+
+    /**
+     * Count the postings under a prefix, stopping once the count reaches the limit
+     */
+    private int prefixCount(String prefix, int limit) {
+        int count = 0;
+        for (Postings list : prefixRange(prefix).values()) {
+            count += list.size;
+            if (count >= limit) {
+                break;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Clear the bit of every product that lacks a token for one of the terms
+     */
+    private void filterByTokens(long[] bits, List<String> terms) {
+        for (int w = 0; w < bits.length; w++) {
+            long word = bits[w];
+            while (word != 0) {
+                long lowest = word & -word;
+                int sequence = (w << 6) + Long.numberOfTrailingZeros(word);
+                if (!matchesAll(bySequence[sequence].tokens, terms)) {
+                    bits[w] &= ~lowest;
+                }
+                word &= word - 1;
+            }
+        }
+    }
+
+    /**
+     * Swap the term with the fewest postings to the front
+     * Counting stops as soon as a term exceeds the best count seen so far.
+     */
+    private void moveMostSelectiveFirst(String[] terms) {
+        int best = 0;
+        int bestCount = Integer.MAX_VALUE;
+        for (int t = 0; t < terms.length; t++) {
+            int count = prefixCount(terms[t], bestCount);
+            if (count < bestCount) {
+                bestCount = count;
+                best = t;
+            }
+        }
+        String first = terms[0];
+        terms[0] = terms[best];
+        terms[best] = first;
+    }
+
+    private SortedMap<String, Postings> prefixRange(String prefix) {
+        return postings.subMap(prefix, prefix + Character.MAX_VALUE);
+    }
+
+    private static boolean matchesAll(String[] tokens, List<String> terms) {
+        for (String term : terms) {
+            boolean found = false;
+            for (String token : tokens) {
+                if (token.startsWith(term)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Distinct lower-case tokens of the searchable product fields
+     */
+    private static String[] tokenize(Product product) {
+        Set<String> tokens = new HashSet<>();
+        addTokens(tokens, product.getName());
+        addTokens(tokens, product.getDescription());
+        addTokens(tokens, product.getCategory());
+        String[] result = tokens.toArray(new String[0]);
+        Arrays.sort(result);
+        return result;
+    }
+
+    private static void addTokens(Set<String> tokens, String text) {
+        Collections.addAll(tokens, splitTokens(text));
+    }
+
+    private static String[] splitTokens(String text) {
+        if (text == null || text.isEmpty()) {
+            return new String[0];
+        }
+
+        List<String> tokens = new ArrayList<>();
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean wordChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens.toArray(new String[0]);
+    }
+}
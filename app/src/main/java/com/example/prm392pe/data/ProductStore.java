@@ -0,0 +1,498 @@
+package com.example.prm392pe.data;
+
+import com.example.prm392pe.models.Product;
+import com.example.prm392pe.utils.StringDictionary;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Columnar in-memory product catalog
+ *
+ * Products are kept as parallel arrays instead of Product objects: ids, prices and
+ * quantities in primitive arrays, availability in a bitset and categories as codes into a
+ * dictionary of distinct names. Lookup by id goes through an IntIntHashMap of slots.
+ * A million products therefore cost a few dozen bytes each plus their unique strings,
+ * with no per-product objects for the garbage collector to trace.
+ *
+ * Slots are positions in insertion order. get() returns a ProductView, a Product that
+ * reads and writes through to the store, so code written against Product (such as
+ * ProductAdapter) can use the store directly. Not thread-safe.
+ */
+public class ProductStore {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private int size;
+    private int[] ids;
+    private double[] prices;
+    private int[] quantities;
+    private long[] availableBits;
+    private int[] categoryCodes;
+    private String[] names;
+    private String[] descriptions;
+    private String[] imageUrls;
+
+    // Distinct category names, indexed by code
+    private final StringDictionary categories = new StringDictionary();
+
+    // Product id -> slot
+    private final IntIntHashMap idIndex;
+
+    public ProductStore() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public ProductStore(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, 4);
+        ids = new int[capacity];
+        prices = new double[capacity];
+        quantities = new int[capacity];
+        availableBits = new long[(capacity + 63) >>> 6];
+        categoryCodes = new int[capacity];
+        names = new String[capacity];
+        descriptions = new String[capacity];
+        imageUrls = new String[capacity];
+        idIndex = new IntIntHashMap(capacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Add a product, or overwrite the stored product with the same id
+     *
+     * @return The slot of the product
+     */
+    public int add(Product product) {
+        int existing = indexOf(product.getId());
+        if (existing >= 0) {
+            set(existing, product);
+            return existing;
+        }
+        ensureCapacity(size + 1);
+        int slot = size++;
+        write(slot, product);
+        idIndex.put(product.getId(), slot);
+        return slot;
+    }
+
+    public void addAll(Collection<? extends Product> products) {
+        ensureCapacity(size + products.size());
+        for (Product product : products) {
+            add(product);
+        }
+    }
+
+    /**
+     * Overwrite the product in a slot
+     *
+     * @throws IllegalArgumentException if the product's id is stored in another slot
+     */
+    public void set(int slot, Product product) {
+        checkSlot(slot);
+        int oldId = ids[slot];
+        int newId = product.getId();
+        if (oldId != newId) {
+            int other = indexOf(newId);
+            if (other >= 0) {
+                throw new IllegalArgumentException("Product id " + newId + " is already stored at slot " + other);
+            }
+        }
+        write(slot, product);
+        if (oldId != newId) {
+            idIndex.remove(oldId);
+            idIndex.put(newId, slot);
+        }
+    }
+
+    /**
+     * Remove the product in a slot, shifting later slots down
+     *
+     * @return A detached copy of the removed product
+     */
+    public Product remove(int slot) {
+        checkSlot(slot);
+        Product removed = copy(slot);
+        removeSlots(new int[]{slot}, 1);
+        return removed;
+    }
+
+    public boolean removeById(int productId) {
+        int slot = indexOf(productId);
+        if (slot < 0) {
+            return false;
+        }
+        removeSlots(new int[]{slot}, 1);
+        return true;
+    }
+
+    /**
+     * Remove several slots in one compaction pass
+     *
+     * @param slots Distinct slots in ascending order
+     * @param count Number of valid entries in slots
+     */
+    public void removeSlots(int[] slots, int count) {
+        if (count == 0) {
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            checkSlot(slots[i]);
+            idIndex.remove(ids[slots[i]]);
+        }
+
+        int write = slots[0];
+        int next = 0;
+        for (int read = slots[0]; read < size; read++) {
+            if (next < count && slots[next] == read) {
+                next++;
+                continue;
+            }
+            moveSlot(read, write);
+            idIndex.put(ids[write], write);
+            write++;
+        }
+        for (int i = write; i < size; i++) {
+            names[i] = null;
+            descriptions[i] = null;
+            imageUrls[i] = null;
+        }
+        size = write;
+    }
+
+    public void clear() {
+        Arrays.fill(names, 0, size, null);
+        Arrays.fill(descriptions, 0, size, null);
+        Arrays.fill(imageUrls, 0, size, null);
+        Arrays.fill(availableBits, 0);
+        idIndex.clear();
+        categories.clear();
+        size = 0;
+    }
+
+    /**
+     * Find the slot of a product by id
+     *
+     * @return The slot, or -1 if the id is not stored
+     */
+    public int indexOf(int productId) {
+        return idIndex.get(productId);
+    }
+
+    public boolean contains(int productId) {
+        return indexOf(productId) >= 0;
+    }
+
+    /**
+     * Get a view of the product in a slot
+     * The view follows its product by id, so it stays valid when other products are
+     * added or removed.
+     */
+    public ProductView get(int slot) {
+        checkSlot(slot);
+        return new ProductView(this, slot);
+    }
+
+    /**
+     * Point a reusable view at a slot, allocating one only if needed
+     * Useful while binding, where the view is read immediately and not retained.
+     */
+    public ProductView getView(int slot, ProductView reuse) {
+        if (reuse == null || reuse.store != this) {
+            return get(slot);
+        }
+        reuse.moveTo(slot);
+        return reuse;
+    }
+
+    /**
+     * Materialize the product in a slot as a standalone Product
+     */
+    public Product copy(int slot) {
+        checkSlot(slot);
+        return new Product(ids[slot], names[slot], descriptions[slot], prices[slot], imageUrls[slot],
+                getCategory(slot), quantities[slot], isAvailable(slot));
+    }
+
+    // Column access by slot
+
+    public int getId(int slot) {
+        return ids[slot];
+    }
+
+    public String getName(int slot) {
+        return names[slot];
+    }
+
+    public void setName(int slot, String name) {
+        names[slot] = name;
+    }
+
+    public String getDescription(int slot) {
+        return descriptions[slot];
+    }
+
+    public void setDescription(int slot, String description) {
+        descriptions[slot] = description;
+    }
+
+    public double getPrice(int slot) {
+        return prices[slot];
+    }
+
+    public void setPrice(int slot, double price) {
+        prices[slot] = price;
+    }
+
+    public String getImageUrl(int slot) {
+        return imageUrls[slot];
+    }
+
+    public void setImageUrl(int slot, String imageUrl) {
+        imageUrls[slot] = imageUrl;
+    }
+
+    public String getCategory(int slot) {
+        return categories.decode(categoryCodes[slot]);
+    }
+
+    public void setCategory(int slot, String category) {
+        categoryCodes[slot] = categories.encode(category);
+    }
+
+    /**
+     * Get the dictionary code of a slot's category, or -1 for none
+     * Equal categories share a code, so grouping can compare ints instead of strings.
+     */
+    public int getCategoryCode(int slot) {
+        return categoryCodes[slot];
+    }
+
+    public int getCategoryCount() {
+        return categories.size();
+    }
+
+    public String getCategoryName(int code) {
+        return categories.decode(code);
+    }
+
+    public int getQuantity(int slot) {
+        return quantities[slot];
+    }
+
+    public void setQuantity(int slot, int quantity) {
+        quantities[slot] = quantity;
+    }
+
+    public boolean isAvailable(int slot) {
+        return (availableBits[slot >>> 6] & (1L << slot)) != 0;
+    }
+
+    public void setAvailable(int slot, boolean available) {
+        if (available) {
+            availableBits[slot >>> 6] |= 1L << slot;
+        } else {
+            availableBits[slot >>> 6] &= ~(1L << slot);
+        }
+    }
+
+    /**
+     * Change the id of the product in a slot
+     *
+     * @throws IllegalArgumentException if the id is stored in another slot
+     */
+    public void setId(int slot, int productId) {
+        int oldId = ids[slot];
+        if (oldId == productId) {
+            return;
+        }
+        if (indexOf(productId) >= 0) {
+            throw new IllegalArgumentException("Product id " + productId + " is already stored");
+        }
+        idIndex.remove(oldId);
+        ids[slot] = productId;
+        idIndex.put(productId, slot);
+    }
+
+    private void write(int slot, Product product) {
+        // Read every field first, product may be a view of this very slot
+        int id = product.getId();
+        String name = product.getName();
+        String description = product.getDescription();
+        double price = product.getPrice();
+        String imageUrl = product.getImageUrl();
+        String category = product.getCategory();
+        int quantity = product.getQuantity();
+        boolean available = product.isAvailable();
+
+        ids[slot] = id;
+        names[slot] = name;
+        descriptions[slot] = description;
+        prices[slot] = price;
+        imageUrls[slot] = imageUrl;
+        categoryCodes[slot] = categories.encode(category);
+        quantities[slot] = quantity;
+        setAvailable(slot, available);
+    }
+
+    private void moveSlot(int from, int to) {
+        if (from == to) {
+            return;
+        }
+        ids[to] = ids[from];
+        names[to] = names[from];
+        descriptions[to] = descriptions[from];
+        prices[to] = prices[from];
+        imageUrls[to] = imageUrls[from];
+        categoryCodes[to] = categoryCodes[from];
+        quantities[to] = quantities[from];
+        setAvailable(to, isAvailable(from));
+    }
+
+    private void checkSlot(int slot) {
+        if (slot < 0 || slot >= size) {
+            throw new IndexOutOfBoundsException("Slot " + slot + ", size " + size);
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > ids.length) {
+            int newCapacity = Math.max(capacity, ids.length + (ids.length >> 1));
+            ids = Arrays.copyOf(ids, newCapacity);
+            prices = Arrays.copyOf(prices, newCapacity);
+            quantities = Arrays.copyOf(quantities, newCapacity);
+            availableBits = Arrays.copyOf(availableBits, (newCapacity + 63) >>> 6);
+            categoryCodes = Arrays.copyOf(categoryCodes, newCapacity);
+            names = Arrays.copyOf(names, newCapacity);
+            descriptions = Arrays.copyOf(descriptions, newCapacity);
+            imageUrls = Arrays.copyOf(imageUrls, newCapacity);
+        }
+        idIndex.ensureCapacity(capacity);
+    }
+
+    /**
+     * A Product backed by a slot of a ProductStore
+     * Getters and setters go straight to the store's arrays. The view remembers its
+     * product id and finds the new slot if products before it were removed; using a view
+     * whose product was removed throws IllegalStateException. Serializing a view writes a
+     * standalone Product.
+     */
+    public static class ProductView extends Product {
+
+        private final transient ProductStore store;
+        private int slot;
+        private int productId;
+
+        ProductView(ProductStore store, int slot) {
+            this.store = store;
+            this.slot = slot;
+            this.productId = store.ids[slot];
+        }
+
+        /**
+         * Point this view at another slot
+         */
+        public void moveTo(int slot) {
+            store.checkSlot(slot);
+            this.slot = slot;
+            this.productId = store.ids[slot];
+        }
+
+        public int getSlot() {
+            if (slot >= store.size || store.ids[slot] != productId) {
+                slot = store.indexOf(productId);
+                if (slot < 0) {
+                    throw new IllegalStateException("Product " + productId + " is no longer in the store");
+                }
+            }
+            return slot;
+        }
+
+        @Override
+        public int getId() {
+            return productId;
+        }
+
+        @Override
+        public void setId(int id) {
+            store.setId(getSlot(), id);
+            productId = id;
+        }
+
+        @Override
+        public String getName() {
+            return store.getName(getSlot());
+        }
+
+        @Override
+        public void setName(String name) {
+            store.setName(getSlot(), name);
+        }
+
+        @Override
+        public String getDescription() {
+            return store.getDescription(getSlot());
+        }
+
+        @Override
+        public void setDescription(String description) {
+            store.setDescription(getSlot(), description);
+        }
+
+        @Override
+        public double getPrice() {
+            return store.getPrice(getSlot());
+        }
+
+        @Override
+        public void setPrice(double price) {
+            store.setPrice(getSlot(), price);
+        }
+
+        @Override
+        public String getImageUrl() {
+            return store.getImageUrl(getSlot());
+        }
+
+        @Override
+        public void setImageUrl(String imageUrl) {
+            store.setImageUrl(getSlot(), imageUrl);
+        }
+
+        @Override
+        public String getCategory() {
+            return store.getCategory(getSlot());
+        }
+
+        @Override
+        public void setCategory(String category) {
+            store.setCategory(getSlot(), category);
+        }
+
+        @Override
+        public int getQuantity() {
+            return store.getQuantity(getSlot());
+        }
+
+        @Override
+        public void setQuantity(int quantity) {
+            store.setQuantity(getSlot(), quantity);
+        }
+
+        @Override
+        public boolean isAvailable() {
+            return store.isAvailable(getSlot());
+        }
+
+        @Override
+        public void setAvailable(boolean available) {
+            store.setAvailable(getSlot(), available);
+        }
+
+        private Object writeReplace() {
+            return store.copy(getSlot());
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.prm392pe.data;
+
+import com.example.prm392pe.models.Product;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Local stand-in for a catalog server
+ * Generates products deterministically from their position and can simulate network latency
+ */
+public class StubProductPageLoader implements ProductPageLoader {
+
+    private static final String[] NAMES = {
+            "Smartphone", "Laptop", "Headphones", "Coffee Maker",
+            "Book", "Tablet", "Watch", "Camera"
+    };
+    private static final String[] CATEGORIES = {
+            "Electronics", "Electronics", "Audio", "Kitchen",
+            "Books", "Electronics", "Wearables", "Photography"
+    };
+
+    private final int totalCount;
+    private final long latencyMillis;
+
+    public StubProductPageLoader(int totalCount) {
+        this(totalCount, 0);
+    }
+
+    public StubProductPageLoader(int totalCount, long latencyMillis) {
+        this.totalCount = totalCount;
+        this.latencyMillis = latencyMillis;
+    }
+
+    @Override
+    public int getTotalCount() {
+        return totalCount;
+    }
+
+    @Override
+    public List<Product> loadPage(int offset, int limit) {
+        simulateLatency();
+
+        int end = Math.min(totalCount, offset + limit);
+        List<Product> page = new ArrayList<>(Math.max(0, end - offset));
+        for (int position = offset; position < end; position++) {
+            page.add(createProduct(position));
+        }
+        return page;
+    }
+
+    private Product createProduct(int position) {
+        int variant = position % NAMES.length;
+        int id = position + 1;
+        double price = 9.99 + (position * 37 % 200000) / 100.0;
+        int quantity = position * 13 % 50;
+
+        return new Product(id, NAMES[variant] + " #" + id,
+                "Catalog item " + id, price, "", CATEGORIES[variant],
+                quantity, quantity > 0);
+    }
+
+    private void simulateLatency() {
+        if (latencyMillis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(latencyMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
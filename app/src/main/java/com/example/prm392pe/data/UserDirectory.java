@@ -0,0 +1,476 @@
+package com.example.prm392pe.data;
+
+import com.example.prm392pe.models.User;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Users indexed by id, email and name
+ *
+ * - getById() goes through an IntIntHashMap of slots
+ * - getByEmail() is a case-insensitive hash lookup over an int table of slots, comparing
+ *   against the stored strings, so no lower-cased copies are kept
+ * - searchByName() finds type-ahead matches in a name-sorted array of slots with a
+ *   binary search. Changes go to a small pending run that is merged into the sorted
+ *   array once it grows past a fraction of the directory, keeping updates cheap.
+ *
+ * Indexes cost about 50 bytes per user on top of the users themselves, around 50 MB of
+ * index for a million users. The name and email are captured when a user is put, so
+ * call put() again after changing a user. Not thread-safe.
+ */
+public class UserDirectory {
+
+    private static final int MIN_PENDING = 256;
+    private static final int IN_BASE = 1;
+    private static final int IN_PENDING = 1 << 1;
+
+    private static final Comparator<String> NAME_ORDER = String.CASE_INSENSITIVE_ORDER;
+
+    // Per-slot state; freed slots are reused
+    private User[] users;
+    private String[] names;
+    private String[] emails;
+    private byte[] flags;
+    private int slotCount;
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+    private int size;
+
+    private final IntIntHashMap idIndex;
+
+    // Open-addressing table of slots keyed by case-insensitive email hash; slots stored + 1
+    private int[] emailTable;
+    private int emailMask;
+    private int emailCount;
+
+    // Slots sorted by the name they had when merged; an entry only counts while its slot is IN_BASE
+    private int[] nameBase = new int[0];
+    private String[] nameBaseKeys = new String[0];
+    private int nameBaseSize;
+    // Slots added or renamed since the last merge, sorted lazily by current name
+    private int[] pending = new int[MIN_PENDING];
+    private int pendingSize;
+    private boolean pendingSorted = true;
+
+    public UserDirectory() {
+        this(16);
+    }
+
+    public UserDirectory(int expectedSize) {
+        int capacity = Math.max(expectedSize, 4);
+        users = new User[capacity];
+        names = new String[capacity];
+        emails = new String[capacity];
+        flags = new byte[capacity];
+        idIndex = new IntIntHashMap(capacity);
+        allocateEmailTable(Integer.highestOneBit(capacity * 2 - 1) << 1);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Add a user, or replace the user with the same id
+     */
+    public void put(User user) {
+        putInternal(user);
+        if (pendingSize > Math.max(MIN_PENDING, size >>> 4)) {
+            mergePending();
+        }
+    }
+
+    /**
+     * Add or replace many users, merging the name index once at the end
+     */
+    public void putAll(Collection<User> newUsers) {
+        ensureSlotCapacity(slotCount + newUsers.size());
+        idIndex.ensureCapacity(size + newUsers.size());
+        int emailCapacity = Integer.highestOneBit((emailCount + newUsers.size()) * 2 - 1) << 1;
+        if (emailCapacity > emailTable.length) {
+            rehashEmails(emailCapacity);
+        }
+        for (User user : newUsers) {
+            putInternal(user);
+        }
+        mergePending();
+    }
+
+    /**
+     * @return true if a user with that id was removed
+     */
+    public boolean remove(int userId) {
+        int slot = idIndex.get(userId);
+        if (slot == IntIntHashMap.MISSING) {
+            return false;
+        }
+        idIndex.remove(userId);
+        if (emails[slot] != null) {
+            emailRemove(slot);
+        }
+        // A pending entry stays queued and is skipped while the slot is free, but its
+        // sort key changes
+        if ((flags[slot] & IN_PENDING) != 0) {
+            pendingSorted = false;
+        }
+        flags[slot] &= ~IN_BASE;
+        users[slot] = null;
+        names[slot] = null;
+        emails[slot] = null;
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        }
+        freeSlots[freeCount++] = slot;
+        size--;
+        return true;
+    }
+
+    public void clear() {
+        Arrays.fill(users, 0, slotCount, null);
+        Arrays.fill(names, 0, slotCount, null);
+        Arrays.fill(emails, 0, slotCount, null);
+        Arrays.fill(flags, 0, slotCount, (byte) 0);
+        Arrays.fill(emailTable, 0);
+        Arrays.fill(nameBaseKeys, 0, nameBaseSize, null);
+        idIndex.clear();
+        slotCount = 0;
+        freeCount = 0;
+        size = 0;
+        emailCount = 0;
+        nameBaseSize = 0;
+        pendingSize = 0;
+        pendingSorted = true;
+    }
+
+    public User getById(int userId) {
+        int slot = idIndex.get(userId);
+        return slot != IntIntHashMap.MISSING ? users[slot] : null;
+    }
+
+    /**
+     * Find a user by email, ignoring case
+     * If several users share an email, one of them is returned.
+     */
+    public User getByEmail(String email) {
+        if (email == null) {
+            return null;
+        }
+        int i = emailHash(email);
+        while (emailTable[i] != 0) {
+            int slot = emailTable[i] - 1;
+            if (email.equalsIgnoreCase(emails[slot])) {
+                return users[slot];
+            }
+            i = (i + 1) & emailMask;
+        }
+        return null;
+    }
+
+    /**
+     * Find users whose name starts with a prefix, ignoring case
+     *
+     * @param prefix Typed text; an empty prefix lists users from the start of the order
+     * @param limit Maximum number of results
+     * @return Matching users in case-insensitive name order
+     */
+    public List<User> searchByName(String prefix, int limit) {
+        String query = prefix != null ? prefix : "";
+        List<User> results = new ArrayList<>(Math.max(Math.min(limit, 64), 0));
+        sortPending();
+
+        int b = lowerBound(nameBaseKeys, nameBaseSize, query);
+        int p = lowerBoundPending(query);
+        String baseName = null;
+        String pendingName = null;
+        while (results.size() < limit) {
+            // Advance each cursor to its next live entry that still matches
+            while (baseName == null && b < nameBaseSize) {
+                int slot = nameBase[b];
+                if (!startsWithIgnoreCase(nameBaseKeys[b], query)) {
+                    b = nameBaseSize;
+                } else if ((flags[slot] & IN_BASE) != 0) {
+                    baseName = nameBaseKeys[b];
+                } else {
+                    b++;
+                }
+            }
+            while (pendingName == null && p < pendingSize) {
+                int slot = pending[p];
+                String name = nameKey(slot);
+                if (!startsWithIgnoreCase(name, query)) {
+                    p = pendingSize;
+                } else if (users[slot] != null) {
+                    pendingName = name;
+                } else {
+                    p++;
+                }
+            }
+
+            if (baseName == null && pendingName == null) {
+                break;
+            }
+            if (pendingName == null || (baseName != null && NAME_ORDER.compare(baseName, pendingName) <= 0)) {
+                results.add(users[nameBase[b++]]);
+                baseName = null;
+            } else {
+                results.add(users[pending[p++]]);
+                pendingName = null;
+            }
+        }
+        return results;
+    }
+
+    private void putInternal(User user) {
+        int slot = idIndex.get(user.getId());
+        String name = user.getName();
+        String email = user.getEmail();
+
+        if (slot == IntIntHashMap.MISSING) {
+            slot = allocateSlot();
+            idIndex.put(user.getId(), slot);
+            size++;
+        } else {
+            if (emails[slot] != null && !emails[slot].equalsIgnoreCase(email)) {
+                emailRemove(slot);
+                emails[slot] = null;
+            }
+            if (equalsOrBothNull(names[slot], name) && (flags[slot] & (IN_BASE | IN_PENDING)) != 0) {
+                // Name unchanged, the name index already points at this slot
+                users[slot] = user;
+                if (email != null && emails[slot] == null) {
+                    emails[slot] = email;
+                    emailPut(slot);
+                }
+                return;
+            }
+        }
+
+        users[slot] = user;
+        names[slot] = name;
+        if (email != null && emails[slot] == null) {
+            emails[slot] = email;
+            emailPut(slot);
+        }
+
+        flags[slot] &= ~IN_BASE;
+        if ((flags[slot] & IN_PENDING) == 0) {
+            flags[slot] |= IN_PENDING;
+            if (pendingSize == pending.length) {
+                pending = Arrays.copyOf(pending, pendingSize * 2);
+            }
+            pending[pendingSize++] = slot;
+        }
+        pendingSorted = false;
+    }
+
+    private int allocateSlot() {
+        if (freeCount > 0) {
+            return freeSlots[--freeCount];
+        }
+        ensureSlotCapacity(slotCount + 1);
+        return slotCount++;
+    }
+
+    private void ensureSlotCapacity(int capacity) {
+        if (capacity > users.length) {
+            int newCapacity = Math.max(capacity, users.length + (users.length >> 1));
+            users = Arrays.copyOf(users, newCapacity);
+            names = Arrays.copyOf(names, newCapacity);
+            emails = Arrays.copyOf(emails, newCapacity);
+            flags = Arrays.copyOf(flags, newCapacity);
+        }
+    }
+
+    // Name index
+
+    private String nameKey(int slot) {
+        return names[slot] != null ? names[slot] : "";
+    }
+
+    private void sortPending() {
+        if (pendingSorted) {
+            return;
+        }
+        Integer[] boxed = new Integer[pendingSize];
+        for (int i = 0; i < pendingSize; i++) {
+            boxed[i] = pending[i];
+        }
+        Arrays.sort(boxed, (a, b) -> NAME_ORDER.compare(nameKey(a), nameKey(b)));
+        for (int i = 0; i < pendingSize; i++) {
+            pending[i] = boxed[i];
+        }
+        pendingSorted = true;
+    }
+
+    /**
+     * Fold the pending run into the sorted array, dropping stale entries
+     */
+    private void mergePending() {
+        sortPending();
+
+        int liveBase = 0;
+        for (int i = 0; i < nameBaseSize; i++) {
+            if ((flags[nameBase[i]] & IN_BASE) != 0) {
+                liveBase++;
+            }
+        }
+        int capacity = liveBase + pendingSize;
+        int[] merged = new int[Math.max(capacity, 16)];
+        String[] mergedKeys = new String[merged.length];
+        int count = 0;
+
+        int b = 0;
+        int p = 0;
+        while (true) {
+            while (b < nameBaseSize && (flags[nameBase[b]] & IN_BASE) == 0) {
+                b++;
+            }
+            while (p < pendingSize && users[pending[p]] == null) {
+                p++;
+            }
+            if (b >= nameBaseSize && p >= pendingSize) {
+                break;
+            }
+            if (p >= pendingSize || (b < nameBaseSize
+                    && NAME_ORDER.compare(nameBaseKeys[b], nameKey(pending[p])) <= 0)) {
+                merged[count] = nameBase[b];
+                mergedKeys[count++] = nameBaseKeys[b++];
+            } else {
+                merged[count] = pending[p];
+                mergedKeys[count++] = nameKey(pending[p++]);
+            }
+        }
+
+        // Flags change only after the merge so a stale base entry cannot be revived mid-way
+        for (int i = 0; i < pendingSize; i++) {
+            int slot = pending[i];
+            flags[slot] &= ~IN_PENDING;
+            if (users[slot] != null) {
+                flags[slot] |= IN_BASE;
+            }
+        }
+        nameBase = merged;
+        nameBaseKeys = mergedKeys;
+        nameBaseSize = count;
+        pendingSize = 0;
+        pendingSorted = true;
+        if (pending.length > MIN_PENDING * 4) {
+            pending = new int[MIN_PENDING];
+        }
+    }
+
+    private static int lowerBound(String[] keys, int count, String query) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (NAME_ORDER.compare(keys[mid], query) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int lowerBoundPending(String query) {
+        int low = 0;
+        int high = pendingSize;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (NAME_ORDER.compare(nameKey(pending[mid]), query) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static boolean startsWithIgnoreCase(String value, String prefix) {
+        return value.regionMatches(true, 0, prefix, 0, prefix.length());
+    }
+
+    private static boolean equalsOrBothNull(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    // Email table
+
+    private void allocateEmailTable(int capacity) {
+        emailTable = new int[capacity];
+        emailMask = capacity - 1;
+    }
+
+    /**
+     * Hash consistent with equalsIgnoreCase, which folds each char through upper then lower case
+     */
+    private int emailHash(String email) {
+        int h = 0;
+        for (int i = 0; i < email.length(); i++) {
+            char c = email.charAt(i);
+            if (c < 0x80) {
+                // ASCII fast path, same result as the general folding below
+                h = 31 * h + (c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c);
+            } else {
+                h = 31 * h + Character.toLowerCase(Character.toUpperCase(c));
+            }
+        }
+        h *= 0x9E3779B9;
+        return (h ^ (h >>> 16)) & emailMask;
+    }
+
+    private void emailPut(int slot) {
+        if ((emailCount + 1) * 2 > emailTable.length) {
+            rehashEmails(emailTable.length * 2);
+        }
+        emailInsert(slot);
+        emailCount++;
+    }
+
+    private void rehashEmails(int capacity) {
+        int[] old = emailTable;
+        allocateEmailTable(capacity);
+        for (int entry : old) {
+            if (entry != 0) {
+                emailInsert(entry - 1);
+            }
+        }
+    }
+
+    private void emailInsert(int slot) {
+        int i = emailHash(emails[slot]);
+        while (emailTable[i] != 0) {
+            i = (i + 1) & emailMask;
+        }
+        emailTable[i] = slot + 1;
+    }
+
+    private void emailRemove(int slot) {
+        int i = emailHash(emails[slot]);
+        while (emailTable[i] != 0 && emailTable[i] != slot + 1) {
+            i = (i + 1) & emailMask;
+        }
+        if (emailTable[i] == 0) {
+            return;
+        }
+
+        // Backward-shift deletion, as in IntIntHashMap
+        int gap = i;
+        int j = (i + 1) & emailMask;
+        while (emailTable[j] != 0) {
+            int home = emailHash(emails[emailTable[j] - 1]);
+            if (((j - home) & emailMask) >= ((j - gap) & emailMask)) {
+                emailTable[gap] = emailTable[j];
+                gap = j;
+            }
+            j = (j + 1) & emailMask;
+        }
+        emailTable[gap] = 0;
+        emailCount--;
+    }
+}
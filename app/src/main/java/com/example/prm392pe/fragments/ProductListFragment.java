@@ -1,9 +1,12 @@
 package com.example.prm392pe.fragments;
 
 import android.os.Bundle;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.EditText;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
@@ -13,10 +16,22 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.prm392pe.R;
+import com.example.prm392pe.adapters.CategoryHeaderDecoration;
 import com.example.prm392pe.adapters.ProductAdapter;
+import com.example.prm392pe.adapters.ProductImagePreloader;
+import com.example.prm392pe.adapters.ProductListInstrumentation;
+import com.example.prm392pe.adapters.ProductPayload;
+import com.example.prm392pe.adapters.ProductSearchController;
+import com.example.prm392pe.adapters.ProductViewPool;
+import com.example.prm392pe.data.InventoryEngine;
+import com.example.prm392pe.data.PagedProductSource;
+import com.example.prm392pe.data.ProductPageLoader;
+import com.example.prm392pe.data.ProductSearchIndex;
+import com.example.prm392pe.data.StubProductPageLoader;
 import com.example.prm392pe.models.Product;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 
 /**
@@ -24,13 +39,39 @@ import java.util.List;
  */
 public class ProductListFragment extends Fragment implements ProductAdapter.OnProductClickListener {
     
+    private static final String ARG_PAGED = "paged";
+    private static final int PAGED_CATALOG_SIZE = 100000;
+    
     private RecyclerView recyclerView;
     private ProductAdapter adapter;
+    private PagedProductSource pagedSource;
+    private ProductListInstrumentation instrumentation;
+    // Searchable catalog, kept across view recreation
+    private final ProductSearchIndex searchIndex = new ProductSearchIndex();
+    // Source of truth for stock, safe to update from background sync threads
+    private final InventoryEngine inventory = new InventoryEngine();
+    private ProductSearchController searchController;
+    private CategoryHeaderDecoration categoryHeaders;
+    // Kept so a recreated view restores the chosen order and headers
+    private Comparator<Product> sortOrder;
+    private boolean categoryHeadersEnabled;
     
     public static ProductListFragment newInstance() {
         return new ProductListFragment();
     }
     
+    /**
+     * Create a fragment that pages a large catalog from the local stub server
+     * instead of holding every product in memory
+     */
+    public static ProductListFragment newPagedInstance() {
+        ProductListFragment fragment = new ProductListFragment();
+        Bundle args = new Bundle();
+        args.putBoolean(ARG_PAGED, true);
+        fragment.setArguments(args);
+        return fragment;
+    }
+    
     @Nullable
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container, @Nullable Bundle savedInstanceState) {
@@ -42,21 +83,111 @@ public class ProductListFragment extends Fragment implements ProductAdapter.OnPr
         super.onViewCreated(view, savedInstanceState);
         
         setupRecyclerView(view);
-        loadSampleData();
+        boolean paged = getArguments() != null && getArguments().getBoolean(ARG_PAGED, false);
+        setupSearch(view, !paged);
+        if (paged) {
+            loadPagedCatalog(new StubProductPageLoader(PAGED_CATALOG_SIZE));
+        } else {
+            loadSampleData();
+        }
+    }
+    
+    @Override
+    public void onDestroyView() {
+        if (instrumentation != null) {
+            instrumentation.detach();
+        }
+        if (searchController != null) {
+            searchController.release();
+            searchController = null;
+        }
+        if (categoryHeaders != null) {
+            categoryHeaders.detach();
+            categoryHeaders = null;
+        }
+        // The inventory outlives the view, so it must not keep the adapter
+        adapter.setInventory(null);
+        // Detaching the adapter recycles the visible rows into the shared pool
+        recyclerView.setAdapter(null);
+        super.onDestroyView();
+        releasePagedSource();
     }
     
     private void setupRecyclerView(View view) {
         recyclerView = view.findViewById(R.id.recycler_view_products);
-        recyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
+        LinearLayoutManager layoutManager = new LinearLayoutManager(getContext());
+        layoutManager.setRecycleChildrenOnDetach(true);
+        recyclerView.setLayoutManager(layoutManager);
+        
+        // Rows survive fragment replacement in the activity-wide pool
+        ProductViewPool viewPool = ProductViewPool.get(requireActivity());
+        recyclerView.setRecycledViewPool(viewPool.getRecycledViewPool());
         
         adapter = new ProductAdapter(getContext());
+        adapter.setViewPool(viewPool);
         adapter.setOnProductClickListener(this);
+        adapter.setInventory(inventory);
         recyclerView.setAdapter(adapter);
+        recyclerView.addOnScrollListener(new ProductImagePreloader(requireContext(), adapter));
+        
+        if (instrumentation != null) {
+            adapter.setInstrumentation(instrumentation);
+            instrumentation.attach(recyclerView);
+        }
+        adapter.setSortOrder(sortOrder);
+        if (categoryHeadersEnabled) {
+            setCategoryHeadersEnabled(true);
+        }
+    }
+    
+    private void setupSearch(View view, boolean enabled) {
+        EditText searchField = view.findViewById(R.id.et_search_products);
+        if (!enabled) {
+            // A paged catalog is never fully in memory, so it cannot be indexed
+            searchField.setVisibility(View.GONE);
+            return;
+        }
+        
+        searchController = new ProductSearchController(adapter, searchIndex);
+        searchField.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+            
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+            
+            @Override
+            public void afterTextChanged(Editable s) {
+                searchController.setQuery(s.toString());
+            }
+        });
     }
     
     private void loadSampleData() {
         List<Product> products = generateSampleProducts();
-        adapter.updateProducts(products);
+        inventory.clear();
+        searchIndex.setAll(products);
+        adapter.submitProducts(products);
+    }
+    
+    /**
+     * Display a catalog loaded page by page from the given backend
+     */
+    public void loadPagedCatalog(ProductPageLoader loader) {
+        releasePagedSource();
+        inventory.clear();
+        pagedSource = new PagedProductSource(loader);
+        adapter.setPagedSource(pagedSource);
+        pagedSource.start();
+    }
+    
+    private void releasePagedSource() {
+        if (pagedSource != null) {
+            pagedSource.release();
+            pagedSource = null;
+        }
     }
     
     private List<Product> generateSampleProducts() {
@@ -93,19 +224,24 @@ public class ProductListFragment extends Fragment implements ProductAdapter.OnPr
     public void onProductClick(Product product, int position) {
         Toast.makeText(getContext(), "Clicked: " + product.getName(), Toast.LENGTH_SHORT).show();
         
-        // Example of updating product
-        product.setQuantity(product.getQuantity() - 1);
-        if (product.getQuantity() <= 0) {
-            product.setAvailable(false);
-            product.setQuantity(0);
+        if (!product.isAvailable()) {
+            return;
+        }
+        // Buy one unit through the inventory so concurrent stock changes are not lost
+        inventory.track(product);
+        if (!inventory.purchase(product.getId(), 1)) {
+            Toast.makeText(getContext(), product.getName() + " is out of stock", Toast.LENGTH_SHORT).show();
+        }
+        // Selling out is shown by the adapter's availability listener, a lower count is shown here
+        if (inventory.applyTo(product)) {
+            adapter.updateProductById(product, ProductPayload.QUANTITY | ProductPayload.AVAILABILITY);
         }
-        adapter.updateProduct(position, product);
     }
     
     @Override
     public void onProductLongClick(Product product, int position) {
         Toast.makeText(getContext(), "Long clicked: " + product.getName() + "\nRemoving item...", Toast.LENGTH_SHORT).show();
-        adapter.removeProduct(position);
+        adapter.removeProductById(product.getId());
     }
     
     public void addNewProduct() {
@@ -126,6 +262,59 @@ public class ProductListFragment extends Fragment implements ProductAdapter.OnPr
     }
     
     public void clearAllProducts() {
+        searchIndex.clear();
+        inventory.clear();
         adapter.clearProducts();
     }
+    
+    /**
+     * Keep the list sorted, e.g. ProductComparators.of(BY_CATEGORY, BY_PRICE)
+     * Pass null to return to insertion order for newly added products.
+     */
+    public void sortProducts(Comparator<Product> comparator) {
+        sortOrder = comparator;
+        adapter.setSortOrder(comparator);
+    }
+    
+    /**
+     * Show a header above each category group, best combined with a category-first sort
+     */
+    public void setCategoryHeadersEnabled(boolean enabled) {
+        categoryHeadersEnabled = enabled;
+        if (enabled && categoryHeaders == null) {
+            categoryHeaders = new CategoryHeaderDecoration(requireContext(), adapter);
+            categoryHeaders.attach(recyclerView);
+        } else if (!enabled && categoryHeaders != null) {
+            categoryHeaders.detach();
+            categoryHeaders = null;
+        }
+    }
+    
+    /**
+     * Start recording bind timings and scroll jank for this list
+     * The instrumentation is kept when the view is recreated.
+     */
+    public ProductListInstrumentation enableInstrumentation() {
+        if (instrumentation == null) {
+            instrumentation = new ProductListInstrumentation();
+            if (adapter != null && recyclerView != null) {
+                adapter.setInstrumentation(instrumentation);
+                instrumentation.attach(recyclerView);
+            }
+        }
+        return instrumentation;
+    }
+    
+    /**
+     * Get the stock levels behind the list, e.g. to apply a background sync
+     * Availability changes are shown automatically. To show a new count that leaves a product
+     * available, call applyTo() and update the adapter on the main thread.
+     */
+    public InventoryEngine getInventory() {
+        return inventory;
+    }
+    
+    public ProductListInstrumentation getInstrumentation() {
+        return instrumentation;
+    }
 }
@@ -113,25 +113,28 @@ public class SettingsFragment extends Fragment {
             return;
         }
         
-        // Save user info
-        prefsUtils.saveString("user_name", editTextName.getText().toString().trim());
-        prefsUtils.saveString("user_email", editTextEmail.getText().toString().trim());
-        prefsUtils.saveString("user_phone", editTextPhone.getText().toString().trim());
-        
-        // Save theme preference
-        int selectedThemeId = radioGroupTheme.getCheckedRadioButtonId();
-        String theme = selectedThemeId == R.id.rb_dark ? "dark" : "light";
-        prefsUtils.saveString("theme", theme);
-        
-        // Save boolean preferences
-        prefsUtils.saveBoolean("notifications_enabled", checkBoxNotifications.isChecked());
-        prefsUtils.saveBoolean("auto_save_enabled", checkBoxAutoSave.isChecked());
-        
-        // Save language preference
-        prefsUtils.saveInt("language_index", spinnerLanguage.getSelectedItemPosition());
-        
-        // Save timestamp
-        prefsUtils.saveLong("last_settings_update", System.currentTimeMillis());
+        // One batch so the preferences file is written once
+        prefsUtils.batch(() -> {
+            // Save user info
+            prefsUtils.saveString("user_name", editTextName.getText().toString().trim());
+            prefsUtils.saveString("user_email", editTextEmail.getText().toString().trim());
+            prefsUtils.saveString("user_phone", editTextPhone.getText().toString().trim());
+        
+            // Save theme preference
+            int selectedThemeId = radioGroupTheme.getCheckedRadioButtonId();
+            String theme = selectedThemeId == R.id.rb_dark ? "dark" : "light";
+            prefsUtils.saveString("theme", theme);
+        
+            // Save boolean preferences
+            prefsUtils.saveBoolean("notifications_enabled", checkBoxNotifications.isChecked());
+            prefsUtils.saveBoolean("auto_save_enabled", checkBoxAutoSave.isChecked());
+        
+            // Save language preference
+            prefsUtils.saveInt("language_index", spinnerLanguage.getSelectedItemPosition());
+        
+            // Save timestamp
+            prefsUtils.saveLong("last_settings_update", System.currentTimeMillis());
+        });
         
         updateStatus("Settings saved successfully!");
         UIUtils.showToast(requireContext(), "Settings saved");
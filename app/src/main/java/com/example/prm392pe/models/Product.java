@@ -102,34 +102,35 @@ public class Product implements Serializable {
     }
     
     public String getFormattedPrice() {
-        return String.format("$%.2f", price);
+        return String.format("$%.2f", getPrice());
     }
     
     @Override
     public String toString() {
         return "Product{" +
-                "id=" + id +
-                ", name='" + name + '\'' +
-                ", description='" + description + '\'' +
-                ", price=" + price +
-                ", imageUrl='" + imageUrl + '\'' +
-                ", category='" + category + '\'' +
-                ", quantity=" + quantity +
-                ", isAvailable=" + isAvailable +
+                "id=" + getId() +
+                ", name='" + getName() + '\'' +
+                ", description='" + getDescription() + '\'' +
+                ", price=" + getPrice() +
+                ", imageUrl='" + getImageUrl() + '\'' +
+                ", category='" + getCategory() + '\'' +
+                ", quantity=" + getQuantity() +
+                ", isAvailable=" + isAvailable() +
                 '}';
     }
     
     @Override
     public boolean equals(Object obj) {
         if (this == obj) return true;
-        if (obj == null || getClass() != obj.getClass()) return false;
+        // instanceof so store-backed views equal plain products with the same id
+        if (!(obj instanceof Product)) return false;
         
         Product product = (Product) obj;
-        return id == product.id;
+        return getId() == product.getId();
     }
     
     @Override
     public int hashCode() {
-        return Integer.hashCode(id);
+        return Integer.hashCode(getId());
     }
 }
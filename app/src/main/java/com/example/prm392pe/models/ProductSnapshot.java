@@ -0,0 +1,274 @@
+package com.example.prm392pe.models;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Immutable copy of a product's state
+ *
+ * Safe to hand to worker threads for diffing, indexing or persistence while the original
+ * Product keeps being mutated on the main thread. The with*() methods return a changed
+ * copy that shares every other field, strings included, so deriving snapshots costs one
+ * small object. Unlike Product, snapshots are equal when all their fields are equal.
+ */
+public final class ProductSnapshot implements Serializable {
+    private final int id;
+    private final String name;
+    private final String description;
+    private final double price;
+    private final String imageUrl;
+    private final String category;
+    private final int quantity;
+    private final boolean isAvailable;
+
+    public ProductSnapshot(int id, String name, String description, double price, String imageUrl, String category, int quantity, boolean isAvailable) {
+        this.id = id;
+        this.name = name;
+        this.description = description;
+        this.price = price;
+        this.imageUrl = imageUrl;
+        this.category = category;
+        this.quantity = quantity;
+        this.isAvailable = isAvailable;
+    }
+
+    /**
+     * Capture the current state of a product
+     */
+    public static ProductSnapshot of(Product product) {
+        return new ProductSnapshot(product.getId(), product.getName(), product.getDescription(),
+                product.getPrice(), product.getImageUrl(), product.getCategory(),
+                product.getQuantity(), product.isAvailable());
+    }
+
+    /**
+     * Capture several products, e.g. before handing a list to a background thread
+     */
+    public static List<ProductSnapshot> ofAll(Collection<? extends Product> products) {
+        List<ProductSnapshot> snapshots = new ArrayList<>(products.size());
+        for (Product product : products) {
+            snapshots.add(of(product));
+        }
+        return snapshots;
+    }
+
+    /**
+     * Create a new mutable Product with this state
+     */
+    public Product toProduct() {
+        return new Product(id, name, description, price, imageUrl, category, quantity, isAvailable);
+    }
+
+    /**
+     * Copy this state onto an existing product
+     */
+    public void applyTo(Product product) {
+        product.setId(id);
+        product.setName(name);
+        product.setDescription(description);
+        product.setPrice(price);
+        product.setImageUrl(imageUrl);
+        product.setCategory(category);
+        product.setQuantity(quantity);
+        product.setAvailable(isAvailable);
+    }
+
+    /**
+     * Check if a product currently has exactly this state
+     */
+    public boolean matches(Product product) {
+        return product != null
+                && id == product.getId()
+                && Double.compare(price, product.getPrice()) == 0
+                && quantity == product.getQuantity()
+                && isAvailable == product.isAvailable()
+                && Objects.equals(name, product.getName())
+                && Objects.equals(description, product.getDescription())
+                && Objects.equals(imageUrl, product.getImageUrl())
+                && Objects.equals(category, product.getCategory());
+    }
+
+    // Getters
+    public int getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+
+    public String getImageUrl() {
+        return imageUrl;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public boolean isAvailable() {
+        return isAvailable;
+    }
+
+    // Copies with one field changed, returning this when the value is unchanged
+    public ProductSnapshot withName(String name) {
+        return Objects.equals(this.name, name) ? this
+                : new ProductSnapshot(id, name, description, price, imageUrl, category, quantity, isAvailable);
+    }
+
+    public ProductSnapshot withDescription(String description) {
+        return Objects.equals(this.description, description) ? this
+                : new ProductSnapshot(id, name, description, price, imageUrl, category, quantity, isAvailable);
+    }
+
+    public ProductSnapshot withPrice(double price) {
+        return Double.compare(this.price, price) == 0 ? this
+                : new ProductSnapshot(id, name, description, price, imageUrl, category, quantity, isAvailable);
+    }
+
+    public ProductSnapshot withImageUrl(String imageUrl) {
+        return Objects.equals(this.imageUrl, imageUrl) ? this
+                : new ProductSnapshot(id, name, description, price, imageUrl, category, quantity, isAvailable);
+    }
+
+    public ProductSnapshot withCategory(String category) {
+        return Objects.equals(this.category, category) ? this
+                : new ProductSnapshot(id, name, description, price, imageUrl, category, quantity, isAvailable);
+    }
+
+    public ProductSnapshot withQuantity(int quantity) {
+        return this.quantity == quantity ? this
+                : new ProductSnapshot(id, name, description, price, imageUrl, category, quantity, isAvailable);
+    }
+
+    public ProductSnapshot withAvailable(boolean available) {
+        return isAvailable == available ? this
+                : new ProductSnapshot(id, name, description, price, imageUrl, category, quantity, available);
+    }
+
+    /**
+     * Start a copy that changes several fields at once
+     */
+    public Builder toBuilder() {
+        return new Builder(this);
+    }
+
+    public static Builder builder(int id) {
+        return new Builder(new ProductSnapshot(id, null, null, 0, null, null, 0, false));
+    }
+
+    /**
+     * Collects changes to a snapshot; build() returns the original when nothing changed
+     */
+    public static final class Builder {
+        private final ProductSnapshot base;
+        private String name;
+        private String description;
+        private double price;
+        private String imageUrl;
+        private String category;
+        private int quantity;
+        private boolean isAvailable;
+
+        private Builder(ProductSnapshot base) {
+            this.base = base;
+            this.name = base.name;
+            this.description = base.description;
+            this.price = base.price;
+            this.imageUrl = base.imageUrl;
+            this.category = base.category;
+            this.quantity = base.quantity;
+            this.isAvailable = base.isAvailable;
+        }
+
+        public Builder setName(String name) {
+            this.name = name;
+            return this;
+        }
+
+        public Builder setDescription(String description) {
+            this.description = description;
+            return this;
+        }
+
+        public Builder setPrice(double price) {
+            this.price = price;
+            return this;
+        }
+
+        public Builder setImageUrl(String imageUrl) {
+            this.imageUrl = imageUrl;
+            return this;
+        }
+
+        public Builder setCategory(String category) {
+            this.category = category;
+            return this;
+        }
+
+        public Builder setQuantity(int quantity) {
+            this.quantity = quantity;
+            return this;
+        }
+
+        public Builder setAvailable(boolean available) {
+            this.isAvailable = available;
+            return this;
+        }
+
+        public ProductSnapshot build() {
+            ProductSnapshot candidate = new ProductSnapshot(base.id, name, description, price, imageUrl,
+                    category, quantity, isAvailable);
+            return candidate.equals(base) ? base : candidate;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ProductSnapshot{" +
+                "id=" + id +
+                ", name='" + name + '\'' +
+                ", description='" + description + '\'' +
+                ", price=" + price +
+                ", imageUrl='" + imageUrl + '\'' +
+                ", category='" + category + '\'' +
+                ", quantity=" + quantity +
+                ", isAvailable=" + isAvailable +
+                '}';
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (!(obj instanceof ProductSnapshot)) return false;
+
+        ProductSnapshot other = (ProductSnapshot) obj;
+        return id == other.id
+                && Double.compare(price, other.price) == 0
+                && quantity == other.quantity
+                && isAvailable == other.isAvailable
+                && Objects.equals(name, other.name)
+                && Objects.equals(description, other.description)
+                && Objects.equals(imageUrl, other.imageUrl)
+                && Objects.equals(category, other.category);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, name, description, price, imageUrl, category, quantity, isAvailable);
+    }
+}
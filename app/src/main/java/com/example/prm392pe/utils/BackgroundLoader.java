@@ -0,0 +1,114 @@
+package com.example.prm392pe.utils;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A value loaded once, on a background thread if start() runs early enough, otherwise by
+ * the first caller that needs it
+ *
+ * get() blocks until the load is done and counts the time callers spent blocked, which
+ * shows whether start() is called early enough. Thread-safe.
+ */
+class BackgroundLoader<T> {
+
+    private final FutureTask<T> task;
+    private final AtomicLong waitNanos = new AtomicLong();
+    private final AtomicLong waitCount = new AtomicLong();
+
+    BackgroundLoader(Callable<T> load) {
+        task = new FutureTask<>(load);
+    }
+
+    /**
+     * Queue the load on an executor; does nothing once it is done
+     *
+     * @return A future that completes once the value is loaded
+     */
+    Future<T> start(Executor executor) {
+        if (!task.isDone()) {
+            executor.execute(task);
+        }
+        return task;
+    }
+
+    boolean isDone() {
+        return task.isDone();
+    }
+
+    /**
+     * Get the value, loading it on this thread if the load has not started
+     * Time spent waiting for the load is counted by getWaitNanos().
+     *
+     * @throws IllegalStateException if the load failed
+     */
+    T get() {
+        if (task.isDone()) {
+            return result();
+        }
+        long start = System.nanoTime();
+        try {
+            return load();
+        } finally {
+            waitNanos.addAndGet(System.nanoTime() - start);
+            waitCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Get the value like get() without counting the wait, for background work
+     */
+    T getInBackground() {
+        return task.isDone() ? result() : load();
+    }
+
+    /**
+     * Get the total time get() spent blocked on the load
+     */
+    long getWaitNanos() {
+        return waitNanos.get();
+    }
+
+    /**
+     * Get the number of get() calls that had to wait for the load
+     */
+    long getWaitCount() {
+        return waitCount.get();
+    }
+
+    private T load() {
+        // Does nothing if start() or another caller already started the load
+        task.run();
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    task.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    break;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return result();
+    }
+
+    private T result() {
+        try {
+            return task.get();
+        } catch (InterruptedException | ExecutionException e) {
+            // Unreachable once done, except for a load that threw
+            throw new IllegalStateException("Load failed", e);
+        }
+    }
+}
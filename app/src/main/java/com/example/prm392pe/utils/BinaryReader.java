@@ -0,0 +1,99 @@
+package com.example.prm392pe.utils;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads the encodings written by BinaryWriter
+ * Truncated or malformed input raises IOException rather than returning garbage.
+ */
+public class BinaryReader {
+
+    private final byte[] data;
+    private final int limit;
+    private int position;
+
+    public BinaryReader(byte[] data) {
+        this(data, 0, data.length);
+    }
+
+    public BinaryReader(byte[] data, int offset, int length) {
+        this.data = data;
+        this.position = offset;
+        this.limit = offset + length;
+    }
+
+    public int readByte() throws IOException {
+        require(1);
+        return data[position++] & 0xFF;
+    }
+
+    public int readVarInt() throws IOException {
+        int result = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = readByte();
+            result |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    public int readSignedVarInt() throws IOException {
+        int value = readVarInt();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    public long readVarLong() throws IOException {
+        long result = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            int b = readByte();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    public long readSignedVarLong() throws IOException {
+        long value = readVarLong();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    public double readDouble() throws IOException {
+        require(8);
+        long bits = 0;
+        for (int i = 0; i < 8; i++) {
+            bits = (bits << 8) | (data[position++] & 0xFF);
+        }
+        return Double.longBitsToDouble(bits);
+    }
+
+    public String readString() throws IOException {
+        int length = readVarInt();
+        if (length < 0) {
+            throw new IOException("Negative string length");
+        }
+        require(length);
+        String value = new String(data, position, length, StandardCharsets.UTF_8);
+        position += length;
+        return value;
+    }
+
+    public boolean hasRemaining() {
+        return position < limit;
+    }
+
+    public int remaining() {
+        return limit - position;
+    }
+
+    private void require(int count) throws IOException {
+        if (limit - position < count) {
+            throw new EOFException("Needed " + count + " bytes, " + (limit - position) + " left");
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.prm392pe.utils;
+
+import java.util.Arrays;
+
+/**
+ * Growable byte buffer with compact encodings for primitives and strings
+ *
+ * Ints are written as varints (zigzag for signed values), so small numbers take one
+ * byte. Strings are written as a varint byte length followed by UTF-8, encoded straight
+ * into the buffer without intermediate arrays. Read back with BinaryReader.
+ */
+public class BinaryWriter {
+
+    private byte[] buffer;
+    private int size;
+
+    public BinaryWriter() {
+        this(64);
+    }
+
+    public BinaryWriter(int initialCapacity) {
+        buffer = new byte[Math.max(initialCapacity, 16)];
+    }
+
+    public void writeByte(int value) {
+        ensureCapacity(1);
+        buffer[size++] = (byte) value;
+    }
+
+    /**
+     * Write an unsigned varint, 7 bits per byte
+     */
+    public void writeVarInt(int value) {
+        ensureCapacity(5);
+        while ((value & ~0x7F) != 0) {
+            buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[size++] = (byte) value;
+    }
+
+    /**
+     * Write a signed int as a zigzag varint, so small negative values stay short
+     */
+    public void writeSignedVarInt(int value) {
+        writeVarInt((value << 1) ^ (value >> 31));
+    }
+
+    public void writeVarLong(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[size++] = (byte) value;
+    }
+
+    public void writeSignedVarLong(long value) {
+        writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    public void writeDouble(double value) {
+        long bits = Double.doubleToLongBits(value);
+        ensureCapacity(8);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            buffer[size++] = (byte) (bits >>> shift);
+        }
+    }
+
+    /**
+     * Write a non-null string as its UTF-8 byte length followed by the bytes
+     */
+    public void writeString(String value) {
+        int length = value.length();
+        int utf8Length = utf8Length(value);
+        writeVarInt(utf8Length);
+        ensureCapacity(utf8Length);
+
+        if (utf8Length == length) {
+            // ASCII only
+            for (int i = 0; i < length; i++) {
+                buffer[size++] = (byte) value.charAt(i);
+            }
+            return;
+        }
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                buffer[size++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[size++] = (byte) (0xC0 | (c >> 6));
+                buffer[size++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer[size++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[size++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[size++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[size++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // Unpaired surrogate, replaced as String.getBytes() does
+                buffer[size++] = (byte) '?';
+            } else {
+                buffer[size++] = (byte) (0xE0 | (c >> 12));
+                buffer[size++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[size++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Discard the written bytes, keeping the buffer for reuse
+     */
+    public void reset() {
+        size = 0;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, size);
+    }
+
+    private static int utf8Length(String value) {
+        int length = value.length();
+        int bytes = length;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                if (c < 0x800) {
+                    bytes += 1;
+                } else if (Character.isHighSurrogate(c) && i + 1 < length
+                        && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    // Two chars, four bytes
+                    bytes += 2;
+                    i++;
+                } else if (!Character.isSurrogate(c)) {
+                    bytes += 2;
+                }
+            }
+        }
+        return bytes;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (size + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(size + extra, buffer.length * 2));
+        }
+    }
+}
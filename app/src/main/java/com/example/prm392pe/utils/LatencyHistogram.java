@@ -0,0 +1,109 @@
+package com.example.prm392pe.utils;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size latency histogram with roughly 6% precision
+ * Values are recorded in nanoseconds and bucketed by microsecond on a log-linear scale,
+ * so recording never allocates and percentiles are computed from the bucket counts.
+ */
+public class LatencyHistogram {
+
+    // 16 linear sub-buckets per power of two above 32us
+    private static final int LINEAR_LIMIT = 32;
+    private static final int SUB_BUCKETS = 16;
+    private static final int MAX_SHIFT = 40;
+    private static final int BUCKET_COUNT = LINEAR_LIMIT + MAX_SHIFT * SUB_BUCKETS;
+
+    private final long[] counts = new long[BUCKET_COUNT];
+    private long totalCount;
+    private long totalNanos;
+    private long maxNanos;
+
+    /**
+     * Record one duration
+     */
+    public synchronized void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        counts[bucketIndex(nanos / 1000)]++;
+        totalCount++;
+        totalNanos += nanos;
+        if (nanos > maxNanos) {
+            maxNanos = nanos;
+        }
+    }
+
+    public synchronized long getCount() {
+        return totalCount;
+    }
+
+    /**
+     * Get the mean duration in milliseconds
+     */
+    public synchronized double getMeanMillis() {
+        return totalCount == 0 ? 0 : totalNanos / 1_000_000.0 / totalCount;
+    }
+
+    /**
+     * Get the largest recorded duration in milliseconds
+     */
+    public synchronized double getMaxMillis() {
+        return maxNanos / 1_000_000.0;
+    }
+
+    /**
+     * Get the duration below which the given percentage of values fall
+     *
+     * @param percentile Percentile between 0 and 100
+     * @return Upper bound of the matching bucket in milliseconds, 0 if nothing was recorded
+     */
+    public synchronized double getPercentileMillis(double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+
+        long target = (long) Math.ceil(percentile / 100.0 * totalCount);
+        target = Math.max(1, Math.min(totalCount, target));
+
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return Math.min(bucketUpperMicros(i) / 1000.0, getMaxMillis());
+            }
+        }
+        return getMaxMillis();
+    }
+
+    /**
+     * Discard all recorded values
+     */
+    public synchronized void reset() {
+        Arrays.fill(counts, 0);
+        totalCount = 0;
+        totalNanos = 0;
+        maxNanos = 0;
+    }
+
+    private static int bucketIndex(long micros) {
+        if (micros < LINEAR_LIMIT) {
+            return (int) micros;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(micros) - 4;
+        if (shift > MAX_SHIFT) {
+            return BUCKET_COUNT - 1;
+        }
+        return LINEAR_LIMIT + (shift - 1) * SUB_BUCKETS + (int) ((micros >> shift) - SUB_BUCKETS);
+    }
+
+    private static long bucketUpperMicros(int index) {
+        if (index < LINEAR_LIMIT) {
+            return index + 1;
+        }
+        int shift = (index - LINEAR_LIMIT) / SUB_BUCKETS + 1;
+        long subBucket = (index - LINEAR_LIMIT) % SUB_BUCKETS + SUB_BUCKETS;
+        return (subBucket + 1) << shift;
+    }
+}
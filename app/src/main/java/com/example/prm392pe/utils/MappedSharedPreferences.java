@@ -0,0 +1,192 @@
+package com.example.prm392pe.utils;
+
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.prm392pe.data.MappedKeyValueStore;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * SharedPreferences backed by a MappedKeyValueStore
+ *
+ * Committing an editor appends the changed keys to the store's log instead of rewriting
+ * an XML file, so commit() is as cheap as apply(). Change listeners are called on the
+ * main thread, as with the framework implementation.
+ */
+public class MappedSharedPreferences implements SharedPreferences {
+
+    private static final String TAG = "MappedSharedPreferences";
+
+    private final MappedKeyValueStore store;
+    private final List<OnSharedPreferenceChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    public MappedSharedPreferences(MappedKeyValueStore store) {
+        this.store = store;
+    }
+
+    public MappedKeyValueStore getStore() {
+        return store;
+    }
+
+    @Override
+    public Map<String, ?> getAll() {
+        return store.getAll();
+    }
+
+    @Override
+    public String getString(String key, String defValue) {
+        Object value = store.get(key);
+        return value != null ? (String) value : defValue;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Set<String> getStringSet(String key, Set<String> defValues) {
+        Object value = store.get(key);
+        return value != null ? (Set<String>) value : defValues;
+    }
+
+    @Override
+    public int getInt(String key, int defValue) {
+        Object value = store.get(key);
+        return value != null ? (Integer) value : defValue;
+    }
+
+    @Override
+    public long getLong(String key, long defValue) {
+        Object value = store.get(key);
+        return value != null ? (Long) value : defValue;
+    }
+
+    @Override
+    public float getFloat(String key, float defValue) {
+        Object value = store.get(key);
+        return value != null ? (Float) value : defValue;
+    }
+
+    @Override
+    public boolean getBoolean(String key, boolean defValue) {
+        Object value = store.get(key);
+        return value != null ? (Boolean) value : defValue;
+    }
+
+    @Override
+    public boolean contains(String key) {
+        return store.contains(key);
+    }
+
+    @Override
+    public Editor edit() {
+        return new MappedEditor();
+    }
+
+    @Override
+    public void registerOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void unregisterOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    private void notifyListeners(Collection<String> keys) {
+        if (listeners.isEmpty() || keys.isEmpty()) {
+            return;
+        }
+        Runnable notify = () -> {
+            for (String key : keys) {
+                for (OnSharedPreferenceChangeListener listener : listeners) {
+                    listener.onSharedPreferenceChanged(this, key);
+                }
+            }
+        };
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            notify.run();
+        } else {
+            mainHandler.post(notify);
+        }
+    }
+
+    private class MappedEditor implements Editor {
+        // Null values remove the key
+        private final Map<String, Object> changes = new HashMap<>();
+        private boolean clear;
+
+        @Override
+        public Editor putString(String key, String value) {
+            changes.put(key, value);
+            return this;
+        }
+
+        @Override
+        public Editor putStringSet(String key, Set<String> values) {
+            changes.put(key, values);
+            return this;
+        }
+
+        @Override
+        public Editor putInt(String key, int value) {
+            changes.put(key, value);
+            return this;
+        }
+
+        @Override
+        public Editor putLong(String key, long value) {
+            changes.put(key, value);
+            return this;
+        }
+
+        @Override
+        public Editor putFloat(String key, float value) {
+            changes.put(key, value);
+            return this;
+        }
+
+        @Override
+        public Editor putBoolean(String key, boolean value) {
+            changes.put(key, value);
+            return this;
+        }
+
+        @Override
+        public Editor remove(String key) {
+            changes.put(key, null);
+            return this;
+        }
+
+        @Override
+        public Editor clear() {
+            clear = true;
+            return this;
+        }
+
+        @Override
+        public boolean commit() {
+            try {
+                store.apply(changes, clear);
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to write preferences", e);
+                return false;
+            }
+            notifyListeners(new ArrayList<>(changes.keySet()));
+            return true;
+        }
+
+        @Override
+        public void apply() {
+            commit();
+        }
+    }
+}
@@ -0,0 +1,348 @@
+package com.example.prm392pe.utils;
+
+import com.example.prm392pe.models.Product;
+import com.example.prm392pe.models.User;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Versioned binary encoding of Product and User, and lists of them
+ *
+ * Replaces Java serialization for the models: no class descriptors or field names are
+ * written, only the values. Layout:
+ *
+ *   magic (0xB7), version, type, then a record or a varint count of records
+ *
+ * Each record starts with a flags byte holding one presence bit per nullable string
+ * and the boolean field, so absent fields cost nothing. Ints are zigzag varints. A price
+ * that is a whole number of cents is written as a varint of cents, otherwise as a raw
+ * double. Strings are length-prefixed UTF-8. A flags byte of NULL_RECORD stands for a
+ * null list element.
+ *
+ * The magic byte never starts a Java serialization stream (0xAC), so stored values of
+ * either format can be told apart.
+ */
+public class ModelCodec {
+
+    public static final int MAGIC = 0xB7;
+    public static final int VERSION = 1;
+
+    public static final int TYPE_PRODUCT = 1;
+    public static final int TYPE_USER = 2;
+    public static final int TYPE_PRODUCT_LIST = 3;
+    public static final int TYPE_USER_LIST = 4;
+
+    private static final int NULL_RECORD = 0xFF;
+    // Distinct categories and image URLs shared while decoding one list, beyond these
+    // they are left as decoded
+    private static final int MAX_CATEGORIES = 1024;
+    private static final int MAX_IMAGE_URLS = 4096;
+
+    // Product flags
+    private static final int PRODUCT_NAME = 1;
+    private static final int PRODUCT_DESCRIPTION = 1 << 1;
+    private static final int PRODUCT_IMAGE_URL = 1 << 2;
+    private static final int PRODUCT_CATEGORY = 1 << 3;
+    private static final int PRODUCT_AVAILABLE = 1 << 4;
+    private static final int PRODUCT_PRICE_IN_CENTS = 1 << 5;
+
+    // User flags
+    private static final int USER_NAME = 1;
+    private static final int USER_EMAIL = 1 << 1;
+    private static final int USER_PHONE = 1 << 2;
+    private static final int USER_PROFILE_IMAGE = 1 << 3;
+    private static final int USER_ACTIVE = 1 << 4;
+
+    /**
+     * Check if a value can be encoded: a Product, a User, or an ArrayList of only one of them
+     */
+    public static boolean supports(Object value) {
+        return typeOf(value) != 0;
+    }
+
+    /**
+     * Check if data starts with the codec header
+     */
+    public static boolean isEncoded(byte[] data) {
+        return data != null && data.length >= 3 && (data[0] & 0xFF) == MAGIC;
+    }
+
+    /**
+     * Encode a supported value
+     *
+     * @throws IllegalArgumentException if the value is not supported
+     */
+    public static byte[] encode(Object value) {
+        BinaryWriter writer = new BinaryWriter();
+        encode(value, writer);
+        return writer.toByteArray();
+    }
+
+    /**
+     * Encode a supported value into a writer, e.g. one reused across calls
+     */
+    public static void encode(Object value, BinaryWriter writer) {
+        int type = typeOf(value);
+        if (type == 0) {
+            throw new IllegalArgumentException("Unsupported value: " + value);
+        }
+        writer.writeByte(MAGIC);
+        writer.writeByte(VERSION);
+        writer.writeByte(type);
+
+        switch (type) {
+            case TYPE_PRODUCT:
+                writeProduct(writer, (Product) value);
+                break;
+            case TYPE_USER:
+                writeUser(writer, (User) value);
+                break;
+            default:
+                List<?> list = (List<?>) value;
+                writer.writeVarInt(list.size());
+                for (Object item : list) {
+                    if (type == TYPE_PRODUCT_LIST) {
+                        writeProduct(writer, (Product) item);
+                    } else {
+                        writeUser(writer, (User) item);
+                    }
+                }
+                break;
+        }
+    }
+
+    /**
+     * Decode a value written by encode()
+     *
+     * @return A Product, a User, or an ArrayList of either
+     * @throws IOException if the data is truncated, malformed or from a newer version
+     */
+    public static Object decode(byte[] data) throws IOException {
+        return decode(data, null, null);
+    }
+
+    /**
+     * Decode a value, sharing product categories and image URLs through given dictionaries
+     * Pass the same dictionaries to share strings across several decodes, or to read their
+     * statistics afterwards. A null dictionary means a new one for each list, and none for
+     * a single product.
+     */
+    public static Object decode(byte[] data, StringDictionary categories, StringDictionary imageUrls)
+            throws IOException {
+        BinaryReader reader = new BinaryReader(data);
+        if (reader.readByte() != MAGIC) {
+            throw new IOException("Not a model codec value");
+        }
+        int version = reader.readByte();
+        if (version > VERSION) {
+            throw new IOException("Unsupported codec version " + version);
+        }
+
+        int type = reader.readByte();
+        switch (type) {
+            case TYPE_PRODUCT:
+                return readProduct(reader, categories, imageUrls);
+            case TYPE_USER:
+                return readUser(reader);
+            case TYPE_PRODUCT_LIST:
+            case TYPE_USER_LIST: {
+                int count = reader.readVarInt();
+                if (count < 0 || count > reader.remaining()) {
+                    // Every record takes at least one byte
+                    throw new IOException("Invalid record count " + count);
+                }
+                List<Object> list = new ArrayList<>(count);
+                // Products of a list share one instance per category and repeated image URL
+                if (type == TYPE_PRODUCT_LIST) {
+                    if (categories == null) {
+                        categories = new StringDictionary(MAX_CATEGORIES);
+                    }
+                    if (imageUrls == null) {
+                        imageUrls = new StringDictionary(MAX_IMAGE_URLS);
+                    }
+                }
+                for (int i = 0; i < count; i++) {
+                    list.add(type == TYPE_PRODUCT_LIST ? readProduct(reader, categories, imageUrls) : readUser(reader));
+                }
+                return list;
+            }
+            default:
+                throw new IOException("Unknown record type " + type);
+        }
+    }
+
+    /**
+     * Copy a supported value field by field, e.g. to hand out a cached decode
+     * Much cheaper than decoding it again; strings are immutable and stay shared.
+     *
+     * @throws IllegalArgumentException if the value is not supported
+     */
+    public static Object copy(Object value) {
+        switch (typeOf(value)) {
+            case TYPE_PRODUCT:
+                return copyProduct((Product) value);
+            case TYPE_USER:
+                return copyUser((User) value);
+            case TYPE_PRODUCT_LIST:
+            case TYPE_USER_LIST: {
+                List<?> list = (List<?>) value;
+                List<Object> copy = new ArrayList<>(list.size());
+                for (Object item : list) {
+                    copy.add(item instanceof Product ? copyProduct((Product) item)
+                            : item instanceof User ? copyUser((User) item) : null);
+                }
+                return copy;
+            }
+            default:
+                throw new IllegalArgumentException("Unsupported value: " + value);
+        }
+    }
+
+    private static Product copyProduct(Product product) {
+        return new Product(product.getId(), product.getName(), product.getDescription(), product.getPrice(),
+                product.getImageUrl(), product.getCategory(), product.getQuantity(), product.isAvailable());
+    }
+
+    private static User copyUser(User user) {
+        return new User(user.getId(), user.getName(), user.getEmail(), user.getPhone(),
+                user.getProfileImage(), user.isActive());
+    }
+
+    /**
+     * Exact classes only, so a decoded value always has the class that was encoded
+     */
+    private static int typeOf(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value.getClass() == Product.class) {
+            return TYPE_PRODUCT;
+        }
+        if (value.getClass() == User.class) {
+            return TYPE_USER;
+        }
+        if (value.getClass() != ArrayList.class) {
+            return 0;
+        }
+
+        // A list of only nulls, or an empty one, decodes as a product list
+        int elementType = 0;
+        for (Object item : (List<?>) value) {
+            if (item == null) {
+                continue;
+            }
+            int itemType = item.getClass() == Product.class ? TYPE_PRODUCT_LIST
+                    : item.getClass() == User.class ? TYPE_USER_LIST : 0;
+            if (itemType == 0 || (elementType != 0 && itemType != elementType)) {
+                return 0;
+            }
+            elementType = itemType;
+        }
+        return elementType != 0 ? elementType : TYPE_PRODUCT_LIST;
+    }
+
+    private static void writeProduct(BinaryWriter writer, Product product) {
+        if (product == null) {
+            writer.writeByte(NULL_RECORD);
+            return;
+        }
+        String name = product.getName();
+        String description = product.getDescription();
+        String imageUrl = product.getImageUrl();
+        String category = product.getCategory();
+        double price = product.getPrice();
+        long cents = Math.round(price * 100);
+        // Double.compare so -0.0 and NaN keep the exact encoding
+        boolean priceInCents = Double.compare(cents / 100.0, price) == 0;
+
+        int flags = (name != null ? PRODUCT_NAME : 0)
+                | (description != null ? PRODUCT_DESCRIPTION : 0)
+                | (imageUrl != null ? PRODUCT_IMAGE_URL : 0)
+                | (category != null ? PRODUCT_CATEGORY : 0)
+                | (product.isAvailable() ? PRODUCT_AVAILABLE : 0)
+                | (priceInCents ? PRODUCT_PRICE_IN_CENTS : 0);
+        writer.writeByte(flags);
+        writer.writeSignedVarInt(product.getId());
+        if (priceInCents) {
+            writer.writeSignedVarLong(cents);
+        } else {
+            writer.writeDouble(price);
+        }
+        writer.writeSignedVarInt(product.getQuantity());
+        if (name != null) writer.writeString(name);
+        if (description != null) writer.writeString(description);
+        if (imageUrl != null) writer.writeString(imageUrl);
+        if (category != null) writer.writeString(category);
+    }
+
+    /**
+     * @param categories Dictionary sharing category instances between records, or null
+     */
+    private static Product readProduct(BinaryReader reader, StringDictionary categories,
+                                       StringDictionary imageUrls) throws IOException {
+        int flags = reader.readByte();
+        if (flags == NULL_RECORD) {
+            return null;
+        }
+        Product product = new Product();
+        product.setId(reader.readSignedVarInt());
+        if ((flags & PRODUCT_PRICE_IN_CENTS) != 0) {
+            product.setPrice(reader.readSignedVarLong() / 100.0);
+        } else {
+            product.setPrice(reader.readDouble());
+        }
+        product.setQuantity(reader.readSignedVarInt());
+        product.setAvailable((flags & PRODUCT_AVAILABLE) != 0);
+        if ((flags & PRODUCT_NAME) != 0) product.setName(reader.readString());
+        if ((flags & PRODUCT_DESCRIPTION) != 0) product.setDescription(reader.readString());
+        if ((flags & PRODUCT_IMAGE_URL) != 0) {
+            String imageUrl = reader.readString();
+            product.setImageUrl(imageUrls != null ? imageUrls.intern(imageUrl) : imageUrl);
+        }
+        if ((flags & PRODUCT_CATEGORY) != 0) {
+            String category = reader.readString();
+            product.setCategory(categories != null ? categories.intern(category) : category);
+        }
+        return product;
+    }
+
+    private static void writeUser(BinaryWriter writer, User user) {
+        if (user == null) {
+            writer.writeByte(NULL_RECORD);
+            return;
+        }
+        String name = user.getName();
+        String email = user.getEmail();
+        String phone = user.getPhone();
+        String profileImage = user.getProfileImage();
+
+        int flags = (name != null ? USER_NAME : 0)
+                | (email != null ? USER_EMAIL : 0)
+                | (phone != null ? USER_PHONE : 0)
+                | (profileImage != null ? USER_PROFILE_IMAGE : 0)
+                | (user.isActive() ? USER_ACTIVE : 0);
+        writer.writeByte(flags);
+        writer.writeSignedVarInt(user.getId());
+        if (name != null) writer.writeString(name);
+        if (email != null) writer.writeString(email);
+        if (phone != null) writer.writeString(phone);
+        if (profileImage != null) writer.writeString(profileImage);
+    }
+
+    private static User readUser(BinaryReader reader) throws IOException {
+        int flags = reader.readByte();
+        if (flags == NULL_RECORD) {
+            return null;
+        }
+        User user = new User();
+        user.setId(reader.readSignedVarInt());
+        user.setActive((flags & USER_ACTIVE) != 0);
+        if ((flags & USER_NAME) != 0) user.setName(reader.readString());
+        if ((flags & USER_EMAIL) != 0) user.setEmail(reader.readString());
+        if ((flags & USER_PHONE) != 0) user.setPhone(reader.readString());
+        if ((flags & USER_PROFILE_IMAGE) != 0) user.setProfileImage(reader.readString());
+        return user;
+    }
+}
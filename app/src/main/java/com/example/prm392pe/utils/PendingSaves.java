@@ -0,0 +1,147 @@
+package com.example.prm392pe.utils;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Saves held in memory until they are written together
+ *
+ * put() keeps only the newest value of each key and hands one flush per burst to the
+ * scheduler, so a run of saves reaches the writer as a single set of changes. Batches hold
+ * writes back until the outermost commitBatch(), and flush() writes right away. get()
+ * answers from the pending saves, so a value is visible before it is written.
+ *
+ * The object is also the lock the writer runs under. Thread-safe.
+ */
+class PendingSaves {
+
+    /**
+     * A pending removal, or after clear() any key without a newer save
+     */
+    static final Object REMOVED = new Object();
+    /**
+     * get() result for a key whose stored value is current
+     */
+    static final Object NOT_PENDING = new Object();
+
+    interface Writer {
+        /**
+         * Write one set of changes, called with the saves locked
+         *
+         * @param changes New values by key, REMOVED for removals; only valid during the call
+         * @param clear   Whether every stored value is removed before the changes
+         */
+        void write(Map<String, Object> changes, boolean clear);
+    }
+
+    private final Executor scheduler;
+    private final Writer writer;
+    private final Map<String, Object> pending = new HashMap<>();
+    private boolean pendingClear;
+    private int batchDepth;
+    private boolean flushScheduled;
+    private int writeCount;
+
+    /**
+     * @param scheduler Runs a flush later, e.g. at the end of the current main-thread message
+     */
+    PendingSaves(Executor scheduler, Writer writer) {
+        this.scheduler = scheduler;
+        this.writer = writer;
+    }
+
+    /**
+     * @param value The new value, or null or REMOVED to remove the key
+     */
+    synchronized void put(String key, Object value) {
+        pending.put(key, value != null ? value : REMOVED);
+        scheduleFlush();
+    }
+
+    /**
+     * Remove every stored value and drop the pending saves
+     */
+    synchronized void clear() {
+        pending.clear();
+        pendingClear = true;
+        scheduleFlush();
+    }
+
+    /**
+     * @return The pending value, REMOVED, or NOT_PENDING if the stored value is current
+     */
+    synchronized Object get(String key) {
+        Object value = pending.get(key);
+        if (value != null) {
+            return value;
+        }
+        return pendingClear ? REMOVED : NOT_PENDING;
+    }
+
+    /**
+     * Get the pending values; hold the lock while iterating
+     */
+    synchronized Collection<Object> values() {
+        return pending.values();
+    }
+
+    /**
+     * Start holding writes back until the matching commitBatch(); batches may be nested
+     */
+    synchronized void beginBatch() {
+        batchDepth++;
+    }
+
+    /**
+     * End a batch, writing the pending saves if it is the outermost
+     */
+    synchronized void commitBatch() {
+        if (batchDepth == 0) {
+            throw new IllegalStateException("commitBatch() without beginBatch()");
+        }
+        if (--batchDepth == 0) {
+            flushLocked();
+        }
+    }
+
+    /**
+     * Write the pending saves now, even inside a batch
+     */
+    synchronized void flush() {
+        flushLocked();
+    }
+
+    /**
+     * Get the number of times the writer was called
+     */
+    synchronized int getWriteCount() {
+        return writeCount;
+    }
+
+    private void scheduleFlush() {
+        if (batchDepth == 0 && !flushScheduled) {
+            flushScheduled = true;
+            scheduler.execute(this::flushIfIdle);
+        }
+    }
+
+    private synchronized void flushIfIdle() {
+        flushScheduled = false;
+        // An open batch writes when it is committed
+        if (batchDepth == 0) {
+            flushLocked();
+        }
+    }
+
+    private void flushLocked() {
+        if (pending.isEmpty() && !pendingClear) {
+            return;
+        }
+        writer.write(pending, pendingClear);
+        pending.clear();
+        pendingClear = false;
+        writeCount++;
+    }
+}
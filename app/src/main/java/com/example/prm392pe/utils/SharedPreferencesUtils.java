@@ -2,128 +2,532 @@ package com.example.prm392pe.utils;
 
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Base64;
 import android.util.Log;
 
+import com.example.prm392pe.data.MappedKeyValueStore;
+
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.OutputStream;
 import java.io.Serializable;
+import java.util.zip.CRC32;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Utility class for SharedPreferences operations
  * Supports all primitive types and Serializable objects
+ * Products, users and ArrayLists of them are stored with the compact ModelCodec
+ * instead of Java serialization; values saved in either format can be read back.
+ *
+ * Saves are batched: they are held in memory, visible to every getter right away, and
+ * written with a single apply() at the end of the current main-thread message, so a
+ * burst of saves rewrites the preferences file once. beginBatch()/commitBatch() or
+ * batch() group writes explicitly, and flush() writes pending saves immediately.
+ *
+ * getObject() keeps the most recently read objects in a small LRU cache, so reading an
+ * unchanged stored object again does no parsing. Every call still gets its own instance,
+ * so a caller changing the object cannot affect others: products, users and lists of
+ * them are copied field by field (ModelCodec.copy()), and immutable values such as
+ * strings and boxed primitives are shared. Other Serializable types have no copy hook,
+ * so only their bytes are cached and each read deserializes them again.
+ *
+ * Objects larger than SPILL_THRESHOLD bytes are written to their own file under
+ * prefs_spill in app storage, and only a short reference with the size and a CRC32
+ * checksum goes into the XML, so large values do not slow down loading and rewriting
+ * the other preferences. Spilled files are streamed on save and only read when the
+ * object is requested. A replaced or cleared object's file is deleted only after the write
+ * that drops its reference is on disk, and files no stored value refers to are swept when
+ * a backend is first opened.
+ *
+ * The default backend is the framework's XML file. BACKEND_MAPPED keeps the same
+ * preferences in a memory-mapped append-only log instead (see MappedKeyValueStore), where
+ * a write costs the size of the changed values rather than a rewrite of the whole file.
+ * Each backend has its own pending saves, object cache and spill directory.
+ *
+ * preload() starts loading a backend on a background thread, so that loading overlaps
+ * activity setup. A read that arrives before the load finishes blocks until it is done.
+ * The time spent blocked is logged and counted by getLoadWaitNanos().
  */
 public class SharedPreferencesUtils {
     
     private static final String TAG = "SharedPreferencesUtils";
     private static final String PREF_NAME = "app_preferences";
-    private SharedPreferences sharedPreferences;
-    private SharedPreferences.Editor editor;
+    private static final String MAPPED_FILE = PREF_NAME + ".mkv";
+    
+    /**
+     * Store preferences in the framework's XML file
+     */
+    public static final int BACKEND_XML = 0;
+    /**
+     * Store preferences in a memory-mapped append-only log
+     */
+    public static final int BACKEND_MAPPED = 1;
+    
+    private final Backend backend;
+    private final Context appContext;
+    
+    /**
+     * Serialized objects above this size are spilled to a side file
+     */
+    public static final int SPILL_THRESHOLD = 16 * 1024;
+    private static final String SPILL_PREFIX = "@spill:";
+    private static final String SPILL_DIR = "prefs_spill";
+    
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // Loads backends and deletes spill files off the main thread
+    private static final ExecutorService ioExecutor = Executors.newSingleThreadExecutor();
+    
+    // Opened backends by type, shared by all instances that write the same store
+    private static final Backend[] backends = new Backend[2];
+    
+    private static final int OBJECT_CACHE_SIZE = 32;
+    // Larger serialized values are read from storage each time rather than held in the cache
+    private static final int OBJECT_CACHE_MAX_BYTES = 256 * 1024;
+    private static final AtomicLong cacheHits = new AtomicLong();
+    private static final AtomicLong cacheByteHits = new AtomicLong();
+    private static final AtomicLong cacheMisses = new AtomicLong();
+    
+    /**
+     * State of one backing store; its pending saves are the lock for them and the spill sets
+     */
+    private static class Backend {
+        // Opens the store and reads it in, run by preload() or else by the first read
+        final BackgroundLoader<SharedPreferences> loader;
+        final File spillDir;
+        
+        // Saves not yet applied: String, Integer, Boolean, Float, Long or REMOVED, written with
+        // one apply() at the end of the current main-thread message
+        final PendingSaves saves = new PendingSaves(mainHandler::post, this::write);
+        
+        // Spill file names that must not be swept: files being written whose reference is not
+        // saved yet, files whose reference a pending save replaces, and files whose reference
+        // a flushed save replaced but that the store on disk may still refer to
+        final Set<String> unsavedSpills = new HashSet<>();
+        final Set<String> replacedSpills = new HashSet<>();
+        final Set<String> retiredSpills = new HashSet<>();
+        
+        // Serialized objects by key, least recently read first
+        final Map<String, CachedObject> objectCache =
+                new LinkedHashMap<String, CachedObject>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<String, CachedObject> eldest) {
+                        return size() > OBJECT_CACHE_SIZE;
+                    }
+                };
+        
+        Backend(BackgroundLoader<SharedPreferences> loader, File spillDir) {
+            this.loader = loader;
+            this.spillDir = spillDir;
+        }
+        
+        private void write(Map<String, Object> changes, boolean clear) {
+            writePending(this, changes, clear);
+        }
+    }
+    
+    private static class CachedObject {
+        // The stored string the object was decoded from; any write stores a new instance,
+        // so it doubles as the write version
+        final String source;
+        // The decoded object if it is immutable or ModelCodec can copy it, otherwise null;
+        // never handed out itself unless immutable
+        final Object value;
+        // The serialized bytes when there is no value to copy
+        final byte[] data;
+        
+        CachedObject(String source, Object value, byte[] data) {
+            this.source = source;
+            this.value = value;
+            this.data = data;
+        }
+    }
     
     public SharedPreferencesUtils(Context context) {
-        sharedPreferences = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
-        editor = sharedPreferences.edit();
+        this(context, BACKEND_XML);
+    }
+    
+    /**
+     * @param backendType BACKEND_XML, or BACKEND_MAPPED which falls back to a separate XML
+     *                    file if its file cannot be opened
+     */
+    public SharedPreferencesUtils(Context context, int backendType) {
+        appContext = context.getApplicationContext();
+        backend = getBackend(appContext, backendType);
+    }
+    
+    // ==================== PRELOADING ====================
+    
+    /**
+     * Start loading the default preferences on a background thread
+     * Call as early as possible, e.g. at the top of onCreate(); reads then wait only for
+     * whatever part of the load is left.
+     *
+     * @return A future that completes once the preferences are loaded
+     */
+    public static Future<?> preload(Context context) {
+        return preload(context, BACKEND_XML);
     }
     
+    /**
+     * Start loading a backend on a background thread; does nothing if already loaded
+     */
+    public static Future<?> preload(Context context, int backendType) {
+        return getBackend(context.getApplicationContext(), backendType).loader.start(ioExecutor);
+    }
+    
+    public boolean isLoaded() {
+        return backend.loader.isDone();
+    }
+    
+    /**
+     * Get the total time reads spent blocked waiting for a backend to load
+     */
+    public static long getLoadWaitNanos() {
+        long total = 0;
+        synchronized (backends) {
+            for (Backend backend : backends) {
+                if (backend != null) {
+                    total += backend.loader.getWaitNanos();
+                }
+            }
+        }
+        return total;
+    }
+    
+    /**
+     * Get the number of reads that had to wait for a backend to load
+     */
+    public static long getLoadWaitCount() {
+        long total = 0;
+        synchronized (backends) {
+            for (Backend backend : backends) {
+                if (backend != null) {
+                    total += backend.loader.getWaitCount();
+                }
+            }
+        }
+        return total;
+    }
+    
+    private static Backend getBackend(Context appContext, int backendType) {
+        int type = backendType == BACKEND_MAPPED ? BACKEND_MAPPED : BACKEND_XML;
+        synchronized (backends) {
+            if (backends[type] == null) {
+                BackgroundLoader<SharedPreferences> loader = new BackgroundLoader<>(() -> load(appContext, type));
+                File spillDir = new File(appContext.getFilesDir(), type == BACKEND_MAPPED ? SPILL_DIR + "_mapped" : SPILL_DIR);
+                Backend backend = new Backend(loader, spillDir);
+                backends[type] = backend;
+                // Queued before any deletion, so no flush has retired a file yet
+                ioExecutor.execute(() -> sweepSpillFiles(backend));
+            }
+            return backends[type];
+        }
+    }
+    
+    /**
+     * Open a backend's store and wait until its contents are in memory
+     */
+    private static SharedPreferences load(Context appContext, int backendType) {
+        long start = System.nanoTime();
+        SharedPreferences preferences;
+        if (backendType == BACKEND_MAPPED) {
+            File file = new File(appContext.getFilesDir(), MAPPED_FILE);
+            try {
+                preferences = new MappedSharedPreferences(MappedKeyValueStore.open(file));
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to open mapped preferences, using XML", e);
+                preferences = appContext.getSharedPreferences(PREF_NAME + "_mapped", Context.MODE_PRIVATE);
+            }
+        } else {
+            preferences = appContext.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+        }
+        // The framework parses the XML file on its own thread; any read waits for it
+        preferences.contains(PREF_NAME);
+        Log.d(TAG, "Preferences loaded in " + (System.nanoTime() - start) / 1000 + " us");
+        return preferences;
+    }
+    
+    /**
+     * Get the loaded store, waiting for preload() or loading it on this thread if needed
+     */
+    private SharedPreferences preferences() {
+        return loaded(backend);
+    }
+    
+    private static SharedPreferences loaded(Backend backend) {
+        if (backend.loader.isDone()) {
+            return backend.loader.get();
+        }
+        long start = System.nanoTime();
+        SharedPreferences preferences = backend.loader.get();
+        Log.d(TAG, "Read blocked " + (System.nanoTime() - start) / 1000 + " us waiting for preferences to load");
+        return preferences;
+    }
+    
+    // ==================== BATCHING ====================
+    
+    /**
+     * Start grouping saves; nothing is written until the matching commitBatch()
+     * Batches may be nested, the outermost commitBatch() writes.
+     */
+    public void beginBatch() {
+        backend.saves.beginBatch();
+    }
+    
+    /**
+     * End a batch, writing every pending save with one apply() if it is the outermost
+     */
+    public void commitBatch() {
+        backend.saves.commitBatch();
+    }
+    
+    /**
+     * Run a block of saves as one batch
+     */
+    public void batch(Runnable edits) {
+        beginBatch();
+        try {
+            edits.run();
+        } finally {
+            commitBatch();
+        }
+    }
+    
+    /**
+     * Write pending saves now instead of at the end of the current message
+     */
+    public void flush() {
+        backend.saves.flush();
+    }
+    
+    private void put(String key, Object value) {
+        synchronized (backend.saves) {
+            String replaced = storedString(key);
+            backend.saves.put(key, value);
+            if (value instanceof String) {
+                String name = spillFileName((String) value);
+                if (name != null) {
+                    backend.unsavedSpills.remove(name);
+                }
+            }
+            // The old file is deleted once this save is on disk, see writePending()
+            if (replaced != null && !replaced.equals(value)) {
+                replaceSpillFileLocked(replaced);
+            }
+        }
+        synchronized (backend.objectCache) {
+            backend.objectCache.remove(key);
+        }
+    }
+    
+    /**
+     * Write a backend's pending saves with one apply(), called with its saves locked
+     */
+    private static void writePending(Backend backend, Map<String, Object> changes, boolean clear) {
+        SharedPreferences preferences = loaded(backend);
+        SharedPreferences.Editor editor = preferences.edit();
+        if (clear) {
+            editor.clear();
+        }
+        for (Map.Entry<String, Object> entry : changes.entrySet()) {
+            String key = entry.getKey();
+            Object value = entry.getValue();
+            if (value == PendingSaves.REMOVED) {
+                editor.remove(key);
+            } else if (value instanceof String) {
+                editor.putString(key, (String) value);
+            } else if (value instanceof Integer) {
+                editor.putInt(key, (Integer) value);
+            } else if (value instanceof Boolean) {
+                editor.putBoolean(key, (Boolean) value);
+            } else if (value instanceof Float) {
+                editor.putFloat(key, (Float) value);
+            } else if (value instanceof Long) {
+                editor.putLong(key, (Long) value);
+            }
+        }
+        // apply() updates the in-memory map before returning, so getters never miss a value
+        editor.apply();
+        Log.d(TAG, "Pending preferences written");
+        
+        if (!backend.replacedSpills.isEmpty()) {
+            List<String> names = new ArrayList<>(backend.replacedSpills);
+            backend.retiredSpills.addAll(names);
+            backend.replacedSpills.clear();
+            ioExecutor.execute(() -> deleteRetiredSpills(backend, preferences, names));
+        }
+    }
+    
+    /**
+     * Get the current value of a key if it is a string, without failing on other types
+     */
+    private String storedString(String key) {
+        Object value = lookupPending(key);
+        if (value == PendingSaves.NOT_PENDING) {
+            try {
+                return preferences().getString(key, null);
+            } catch (ClassCastException e) {
+                return null;
+            }
+        }
+        return value instanceof String ? (String) value : null;
+    }
+    
+    /**
+     * @return The pending value, REMOVED, or NOT_PENDING if the stored value is current
+     */
+    private Object lookupPending(String key) {
+        return backend.saves.get(key);
+    }
+    
+    // ==================== PRIMITIVES ====================
+    
     /**
      * Save string value
      */
     public void saveString(String key, String value) {
-        editor.putString(key, value);
-        editor.apply();
+        put(key, value);
     }
     
     /**
      * Get string value
      */
     public String getString(String key, String defaultValue) {
-        return sharedPreferences.getString(key, defaultValue);
+        Object value = lookupPending(key);
+        if (value == PendingSaves.NOT_PENDING) {
+            return preferences().getString(key, defaultValue);
+        }
+        return value == PendingSaves.REMOVED ? defaultValue : (String) value;
     }
     
     /**
      * Save integer value
      */
     public void saveInt(String key, int value) {
-        editor.putInt(key, value);
-        editor.apply();
+        put(key, value);
     }
     
     /**
      * Get integer value
      */
     public int getInt(String key, int defaultValue) {
-        return sharedPreferences.getInt(key, defaultValue);
+        Object value = lookupPending(key);
+        if (value == PendingSaves.NOT_PENDING) {
+            return preferences().getInt(key, defaultValue);
+        }
+        return value == PendingSaves.REMOVED ? defaultValue : (Integer) value;
     }
     
     /**
      * Save boolean value
      */
     public void saveBoolean(String key, boolean value) {
-        editor.putBoolean(key, value);
-        editor.apply();
+        put(key, value);
     }
     
     /**
      * Get boolean value
      */
     public boolean getBoolean(String key, boolean defaultValue) {
-        return sharedPreferences.getBoolean(key, defaultValue);
+        Object value = lookupPending(key);
+        if (value == PendingSaves.NOT_PENDING) {
+            return preferences().getBoolean(key, defaultValue);
+        }
+        return value == PendingSaves.REMOVED ? defaultValue : (Boolean) value;
     }
     
     /**
      * Save float value
      */
     public void saveFloat(String key, float value) {
-        editor.putFloat(key, value);
-        editor.apply();
+        put(key, value);
     }
     
     /**
      * Get float value
      */
     public float getFloat(String key, float defaultValue) {
-        return sharedPreferences.getFloat(key, defaultValue);
+        Object value = lookupPending(key);
+        if (value == PendingSaves.NOT_PENDING) {
+            return preferences().getFloat(key, defaultValue);
+        }
+        return value == PendingSaves.REMOVED ? defaultValue : (Float) value;
     }
     
     /**
      * Save long value
      */
     public void saveLong(String key, long value) {
-        editor.putLong(key, value);
-        editor.apply();
+        put(key, value);
     }
     
     /**
      * Get long value
      */
     public long getLong(String key, long defaultValue) {
-        return sharedPreferences.getLong(key, defaultValue);
+        Object value = lookupPending(key);
+        if (value == PendingSaves.NOT_PENDING) {
+            return preferences().getLong(key, defaultValue);
+        }
+        return value == PendingSaves.REMOVED ? defaultValue : (Long) value;
     }
     
     /**
      * Remove a key
      */
     public void remove(String key) {
-        editor.remove(key);
-        editor.apply();
+        put(key, PendingSaves.REMOVED);
     }
     
     /**
      * Clear all preferences
      */
     public void clear() {
-        editor.clear();
-        editor.apply();
+        synchronized (backend.saves) {
+            // Every stored object goes, its files once the clear is on disk
+            for (Object value : preferences().getAll().values()) {
+                replaceSpillFileLocked(value);
+            }
+            for (Object value : backend.saves.values()) {
+                replaceSpillFileLocked(value);
+            }
+            backend.saves.clear();
+        }
+        synchronized (backend.objectCache) {
+            backend.objectCache.clear();
+        }
     }
     
     /**
      * Check if key exists
      */
     public boolean contains(String key) {
-        return sharedPreferences.contains(key);
+        Object value = lookupPending(key);
+        if (value == PendingSaves.NOT_PENDING) {
+            return preferences().contains(key);
+        }
+        return value != PendingSaves.REMOVED;
     }
     
     // ==================== OBJECT SERIALIZATION METHODS ====================
@@ -143,14 +547,7 @@ public class SharedPreferencesUtils {
         }
         
         try {
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            ObjectOutputStream oos = new ObjectOutputStream(baos);
-            oos.writeObject(object);
-            oos.close();
-            
-            String serializedObject = Base64.encodeToString(baos.toByteArray(), Base64.DEFAULT);
-            editor.putString(key, serializedObject);
-            editor.apply();
+            put(key, encodeObject(key, object));
             
             Log.d(TAG, "Object saved successfully with key: " + key);
             return true;
@@ -172,7 +569,7 @@ public class SharedPreferencesUtils {
      */
     @SuppressWarnings("unchecked")
     public <T extends Serializable> T getObject(String key, T defaultValue) {
-        String serializedObject = sharedPreferences.getString(key, null);
+        String serializedObject = getString(key, null);
         
         if (serializedObject == null) {
             Log.d(TAG, "No object found with key: " + key);
@@ -180,17 +577,12 @@ public class SharedPreferencesUtils {
         }
         
         try {
-            byte[] data = Base64.decode(serializedObject, Base64.DEFAULT);
-            ByteArrayInputStream bais = new ByteArrayInputStream(data);
-            ObjectInputStream ois = new ObjectInputStream(bais);
-            
-            T object = (T) ois.readObject();
-            ois.close();
+            T object = (T) readObject(key, serializedObject);
             
             Log.d(TAG, "Object retrieved successfully with key: " + key);
             return object;
             
-        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+        } catch (IOException | ClassNotFoundException | ClassCastException | IllegalArgumentException e) {
             Log.e(TAG, "Failed to retrieve object with key: " + key, e);
             return defaultValue;
         }
@@ -221,7 +613,7 @@ public class SharedPreferencesUtils {
      * @return The deserialized object or null if not found/failed
      */
     public <T extends Serializable> T getObject(String key, Class<T> clazz) {
-        String serializedObject = sharedPreferences.getString(key, null);
+        String serializedObject = getString(key, null);
         
         if (serializedObject == null) {
             Log.d(TAG, "No object found with key: " + key);
@@ -229,12 +621,7 @@ public class SharedPreferencesUtils {
         }
         
         try {
-            byte[] data = Base64.decode(serializedObject, Base64.DEFAULT);
-            ByteArrayInputStream bais = new ByteArrayInputStream(data);
-            ObjectInputStream ois = new ObjectInputStream(bais);
-            
-            Object object = ois.readObject();
-            ois.close();
+            Object object = readObject(key, serializedObject);
             
             if (clazz.isInstance(object)) {
                 Log.d(TAG, "Object retrieved successfully with key: " + key);
@@ -244,7 +631,7 @@ public class SharedPreferencesUtils {
                 return null;
             }
             
-        } catch (IOException | ClassNotFoundException e) {
+        } catch (IOException | ClassNotFoundException | IllegalArgumentException e) {
             Log.e(TAG, "Failed to retrieve object with key: " + key, e);
             return null;
         }
@@ -266,38 +653,370 @@ public class SharedPreferencesUtils {
         
         boolean allSuccessful = true;
         
-        // Start batch edit
-        SharedPreferences.Editor batchEditor = sharedPreferences.edit();
-        
-        for (java.util.Map.Entry<String, Serializable> entry : objectMap.entrySet()) {
-            String key = entry.getKey();
-            Serializable object = entry.getValue();
-            
-            if (object == null) {
-                batchEditor.remove(key);
-                continue;
-            }
-            
-            try {
-                ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                ObjectOutputStream oos = new ObjectOutputStream(baos);
-                oos.writeObject(object);
-                oos.close();
+        beginBatch();
+        try {
+            for (java.util.Map.Entry<String, Serializable> entry : objectMap.entrySet()) {
+                String key = entry.getKey();
+                Serializable object = entry.getValue();
                 
-                String serializedObject = Base64.encodeToString(baos.toByteArray(), Base64.DEFAULT);
-                batchEditor.putString(key, serializedObject);
+                if (object == null) {
+                    remove(key);
+                    continue;
+                }
                 
-            } catch (IOException e) {
-                Log.e(TAG, "Failed to serialize object with key: " + key, e);
-                allSuccessful = false;
+                try {
+                    put(key, encodeObject(key, object));
+                    
+                } catch (IOException e) {
+                    Log.e(TAG, "Failed to serialize object with key: " + key, e);
+                    allSuccessful = false;
+                }
             }
+        } finally {
+            commitBatch();
         }
-        
-        batchEditor.apply();
         Log.d(TAG, "Batch save completed. All successful: " + allSuccessful);
         return allSuccessful;
     }
     
+    // ==================== OBJECT CACHE ====================
+    
+    /**
+     * Get the number of getObject() calls answered from a cached object without parsing
+     */
+    public static long getObjectCacheHits() {
+        return cacheHits.get();
+    }
+    
+    /**
+     * Get the number of getObject() calls that found cached bytes but had to deserialize
+     * them, because the type has no copy hook
+     */
+    public static long getObjectCacheByteHits() {
+        return cacheByteHits.get();
+    }
+    
+    /**
+     * Get the number of getObject() calls that read and decoded the stored value
+     */
+    public static long getObjectCacheMisses() {
+        return cacheMisses.get();
+    }
+    
+    /**
+     * Drop all cached objects, e.g. when memory is low
+     */
+    public static void clearObjectCache() {
+        synchronized (backends) {
+            for (Backend backend : backends) {
+                if (backend != null) {
+                    synchronized (backend.objectCache) {
+                        backend.objectCache.clear();
+                    }
+                }
+            }
+        }
+    }
+    
+    /**
+     * Decode a stored object, or copy the cached one while the stored string is unchanged
+     * The result is a new instance on every call unless it is immutable.
+     */
+    private Object readObject(String key, String serializedObject)
+            throws IOException, ClassNotFoundException {
+        CachedObject cached;
+        synchronized (backend.objectCache) {
+            cached = backend.objectCache.get(key);
+        }
+        if (cached != null && cached.source == serializedObject) {
+            if (cached.value != null) {
+                cacheHits.incrementAndGet();
+                return isImmutable(cached.value) ? cached.value : ModelCodec.copy(cached.value);
+            }
+            cacheByteHits.incrementAndGet();
+            return deserialize(cached.data);
+        }
+        cacheMisses.incrementAndGet();
+        
+        byte[] data = serializedObject.startsWith(SPILL_PREFIX)
+                ? readSpilled(serializedObject)
+                : Base64.decode(serializedObject, Base64.DEFAULT);
+        Object object = deserialize(data);
+        if (data.length <= OBJECT_CACHE_MAX_BYTES) {
+            CachedObject entry;
+            if (isImmutable(object)) {
+                entry = new CachedObject(serializedObject, object, null);
+            } else if (ModelCodec.supports(object)) {
+                // The caller gets the decoded instance, the cache keeps its own
+                entry = new CachedObject(serializedObject, ModelCodec.copy(object), null);
+            } else {
+                entry = new CachedObject(serializedObject, null, data);
+            }
+            synchronized (backend.objectCache) {
+                backend.objectCache.put(key, entry);
+            }
+        }
+        return object;
+    }
+    
+    private static boolean isImmutable(Object value) {
+        return value instanceof String || value instanceof Integer || value instanceof Long
+                || value instanceof Double || value instanceof Float || value instanceof Boolean
+                || value instanceof Short || value instanceof Byte || value instanceof Character;
+    }
+    
+    /**
+     * Serialize an object into the string stored in the preferences:
+     * Base64 of the bytes, or a reference to a side file for large objects
+     */
+    private String encodeObject(String key, Serializable object) throws IOException {
+        SpillOutputStream out = new SpillOutputStream(key);
+        try {
+            serialize(object, out);
+            return out.finish();
+        } catch (IOException | RuntimeException e) {
+            out.discard();
+            throw e;
+        }
+    }
+    
+    /**
+     * Serialize with ModelCodec when it supports the value, Java serialization otherwise
+     */
+    private static void serialize(Serializable object, OutputStream out) throws IOException {
+        if (ModelCodec.supports(object)) {
+            out.write(ModelCodec.encode(object));
+            return;
+        }
+        ObjectOutputStream oos = new ObjectOutputStream(out);
+        oos.writeObject(object);
+        oos.flush();
+    }
+    
+    /**
+     * Read a value written by serialize(), detecting the format from its first byte
+     */
+    private static Object deserialize(byte[] data) throws IOException, ClassNotFoundException {
+        if (ModelCodec.isEncoded(data)) {
+            return ModelCodec.decode(data);
+        }
+        ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(data));
+        try {
+            return ois.readObject();
+        } finally {
+            ois.close();
+        }
+    }
+    
+    // ==================== SPILL FILES ====================
+    
+    private File getSpillDir() {
+        return backend.spillDir;
+    }
+    
+    /**
+     * Mark the file of a stored value for deletion after the next flush, if it has one
+     */
+    private void replaceSpillFileLocked(Object value) {
+        if (value instanceof String) {
+            String name = spillFileName((String) value);
+            if (name != null) {
+                backend.replacedSpills.add(name);
+            }
+        }
+    }
+    
+    /**
+     * Delete the files of replaced objects once the saves that replaced them are on disk
+     * Until then a crash would leave the store on disk pointing at a missing file.
+     */
+    private static void deleteRetiredSpills(Backend backend, SharedPreferences preferences, List<String> names) {
+        // Disk writes run in order, so an empty commit() returns after every earlier apply()
+        preferences.edit().commit();
+        for (String name : names) {
+            if (new File(backend.spillDir, name).delete()) {
+                Log.d(TAG, "Deleted spilled file " + name);
+            }
+        }
+        synchronized (backend.saves) {
+            backend.retiredSpills.removeAll(names);
+        }
+    }
+    
+    /**
+     * Delete spill files no stored or pending value refers to, e.g. left by a crash between
+     * writing a file and saving its reference
+     */
+    private static void sweepSpillFiles(Backend backend) {
+        File[] files = backend.spillDir.listFiles();
+        if (files == null || files.length == 0) {
+            return;
+        }
+        SharedPreferences preferences;
+        try {
+            preferences = backend.loader.getInBackground();
+        } catch (IllegalStateException e) {
+            return;
+        }
+        synchronized (backend.saves) {
+            Set<String> keep = new HashSet<>(backend.unsavedSpills);
+            keep.addAll(backend.replacedSpills);
+            keep.addAll(backend.retiredSpills);
+            for (Object value : preferences.getAll().values()) {
+                addSpillFileName(value, keep);
+            }
+            for (Object value : backend.saves.values()) {
+                addSpillFileName(value, keep);
+            }
+            for (File file : files) {
+                if (!keep.contains(file.getName()) && file.delete()) {
+                    Log.d(TAG, "Deleted orphaned spill file " + file.getName());
+                }
+            }
+        }
+    }
+    
+    private static void addSpillFileName(Object value, Set<String> names) {
+        if (value instanceof String) {
+            String name = spillFileName((String) value);
+            if (name != null) {
+                names.add(name);
+            }
+        }
+    }
+    
+    /**
+     * Holds serialized bytes in memory up to SPILL_THRESHOLD, then streams them to a new
+     * side file. finish() returns the string to store for either case.
+     */
+    private class SpillOutputStream extends OutputStream {
+        private final String key;
+        private final CRC32 crc = new CRC32();
+        private ByteArrayOutputStream memory = new ByteArrayOutputStream();
+        private File file;
+        private OutputStream fileOut;
+        private long length;
+        
+        SpillOutputStream(String key) {
+            this.key = key;
+        }
+        
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+        
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (fileOut == null && length + len > SPILL_THRESHOLD) {
+                openFile();
+            }
+            crc.update(b, off, len);
+            length += len;
+            if (fileOut != null) {
+                fileOut.write(b, off, len);
+            } else {
+                memory.write(b, off, len);
+            }
+        }
+        
+        private void openFile() throws IOException {
+            File dir = getSpillDir();
+            if (!dir.isDirectory() && !dir.mkdirs()) {
+                throw new IOException("Cannot create " + dir);
+            }
+            // Unique name, so the file still referenced by the stored value is never overwritten
+            synchronized (backend.saves) {
+                file = File.createTempFile(safeFileName(key) + "_", ".bin", dir);
+                backend.unsavedSpills.add(file.getName());
+            }
+            fileOut = new BufferedOutputStream(new FileOutputStream(file), 64 * 1024);
+            memory.writeTo(fileOut);
+            memory = null;
+        }
+        
+        String finish() throws IOException {
+            if (fileOut == null) {
+                return Base64.encodeToString(memory.toByteArray(), Base64.DEFAULT);
+            }
+            fileOut.close();
+            Log.d(TAG, "Spilled " + length + " bytes of " + key + " to " + file.getName());
+            return SPILL_PREFIX + file.getName() + ":" + length + ":" + Long.toHexString(crc.getValue());
+        }
+        
+        void discard() {
+            if (fileOut != null) {
+                try {
+                    fileOut.close();
+                } catch (IOException ignored) {
+                }
+                file.delete();
+                synchronized (backend.saves) {
+                    backend.unsavedSpills.remove(file.getName());
+                }
+            }
+        }
+    }
+    
+    /**
+     * Read a spilled object's bytes back from its file, checking its size and checksum
+     */
+    private byte[] readSpilled(String reference) throws IOException {
+        String[] parts = parseSpillReference(reference);
+        File file = new File(getSpillDir(), parts[0]);
+        long length = Long.parseLong(parts[1]);
+        long expectedCrc = Long.parseLong(parts[2], 16);
+        if (file.length() != length || length > Integer.MAX_VALUE) {
+            throw new IOException("Size mismatch in spilled file " + file.getName());
+        }
+        
+        byte[] data = new byte[(int) length];
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            in.readFully(data);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length);
+        if (crc.getValue() != expectedCrc) {
+            throw new IOException("Checksum mismatch in spilled file " + file.getName());
+        }
+        return data;
+    }
+    
+    /**
+     * Get the file name in a spill reference, or null if the value is not one
+     */
+    private static String spillFileName(String value) {
+        if (!value.startsWith(SPILL_PREFIX)) {
+            return null;
+        }
+        try {
+            return parseSpillReference(value)[0];
+        } catch (IllegalArgumentException e) {
+            Log.e(TAG, "Malformed spill reference: " + value, e);
+            return null;
+        }
+    }
+    
+    /**
+     * Split "@spill:name:length:crc" into name, length and crc
+     */
+    private static String[] parseSpillReference(String reference) {
+        String[] parts = reference.substring(SPILL_PREFIX.length()).split(":");
+        if (parts.length != 3 || parts[0].contains("/") || parts[0].contains("..")) {
+            throw new IllegalArgumentException("Malformed spill reference");
+        }
+        return parts;
+    }
+    
+    private static String safeFileName(String key) {
+        StringBuilder name = new StringBuilder("obj_");
+        for (int i = 0; i < key.length() && name.length() < 40; i++) {
+            char c = key.charAt(i);
+            name.append(Character.isLetterOrDigit(c) && c < 0x80 ? c : '_');
+        }
+        return name.toString();
+    }
+    
     /**
      * Get the size of a stored object in bytes
      * Useful for monitoring storage usage
@@ -306,12 +1025,15 @@ public class SharedPreferencesUtils {
      * @return Size in bytes, or -1 if object not found
      */
     public long getObjectSize(String key) {
-        String serializedObject = sharedPreferences.getString(key, null);
+        String serializedObject = getString(key, null);
         if (serializedObject == null) {
             return -1;
         }
         
         try {
+            if (serializedObject.startsWith(SPILL_PREFIX)) {
+                return Long.parseLong(parseSpillReference(serializedObject)[1]);
+            }
             byte[] data = Base64.decode(serializedObject, Base64.DEFAULT);
             return data.length;
         } catch (IllegalArgumentException e) {
@@ -341,6 +1063,12 @@ public class SharedPreferencesUtils {
      * // Retrieve collections
      * ArrayList<String> savedItems = prefsUtils.getObject("item_list", new ArrayList<>());
      * 
+     * // Group several saves into one write
+     * prefsUtils.batch(() -> {
+     *     prefsUtils.saveString("user_name", name);
+     *     prefsUtils.saveInt("language_index", index);
+     * });
+     * 
      * // Batch operations
      * Map<String, Serializable> objects = new HashMap<>();
      * objects.put("user", user);
@@ -348,6 +1076,7 @@ public class SharedPreferencesUtils {
      * prefsUtils.saveObjects(objects);
      * 
      * NOTE: Objects must implement Serializable interface
+     * Product, User and ArrayLists of them use the compact ModelCodec automatically
      * For complex objects, consider using JSON serialization instead
      * Large objects may impact app performance - use wisely
      */
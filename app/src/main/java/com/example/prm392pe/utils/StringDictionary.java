@@ -0,0 +1,187 @@
+package com.example.prm392pe.utils;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Dictionary of distinct strings with small integer codes
+ *
+ * intern() returns one shared instance per distinct value, so a catalog where thousands
+ * of products say "Electronics" keeps a single copy. encode() and decode() map values to
+ * dense codes starting at 0, for columnar storage and cheap grouping.
+ *
+ * Meant for low-cardinality fields. A dictionary created with a maximum size stops adding
+ * values once full and hands other strings back unchanged, so a field that turns out to be
+ * unique per product cannot grow it without bound. Thread-safe.
+ */
+public class StringDictionary {
+
+    public static final int NO_CODE = -1;
+
+    // Rough heap cost of a String: object header and fields plus the array header
+    private static final int STRING_OVERHEAD = 40;
+
+    private final int maxSize;
+    private final Map<String, Integer> codes = new HashMap<>();
+    private String[] values = new String[16];
+    private int size;
+
+    private long lookupCount;
+    private long hitCount;
+    private long savedBytes;
+
+    /**
+     * Create a dictionary without a size limit
+     */
+    public StringDictionary() {
+        this(Integer.MAX_VALUE);
+    }
+
+    public StringDictionary(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Max size must be positive: " + maxSize);
+        }
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Get the shared instance equal to a value, adding the value if there is room
+     *
+     * @return The shared instance, or value itself if it is null or the dictionary is full
+     */
+    public synchronized String intern(String value) {
+        int code = encode(value);
+        return code == NO_CODE ? value : values[code];
+    }
+
+    /**
+     * Get the code of a value, adding the value if there is room
+     *
+     * @return The code, or NO_CODE if value is null or the dictionary is full
+     */
+    public synchronized int encode(String value) {
+        if (value == null) {
+            return NO_CODE;
+        }
+        lookupCount++;
+        Integer code = codes.get(value);
+        if (code != null) {
+            hitCount++;
+            if (values[code] != value) {
+                savedBytes += estimateBytes(value);
+            }
+            return code;
+        }
+        if (size == maxSize) {
+            return NO_CODE;
+        }
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size] = value;
+        codes.put(value, size);
+        return size++;
+    }
+
+    /**
+     * Get the code of a value without adding it
+     *
+     * @return The code, or NO_CODE if the value is not in the dictionary
+     */
+    public synchronized int codeOf(String value) {
+        if (value == null) {
+            return NO_CODE;
+        }
+        Integer code = codes.get(value);
+        return code != null ? code : NO_CODE;
+    }
+
+    /**
+     * @return The value for a code, or null for NO_CODE
+     */
+    public synchronized String decode(int code) {
+        if (code == NO_CODE) {
+            return null;
+        }
+        if (code < 0 || code >= size) {
+            throw new IndexOutOfBoundsException("Code " + code + ", size " + size);
+        }
+        return values[code];
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized boolean isFull() {
+        return size == maxSize;
+    }
+
+    /**
+     * Remove all values and reset the statistics
+     * Codes handed out before are no longer valid.
+     */
+    public synchronized void clear() {
+        codes.clear();
+        Arrays.fill(values, 0, size, null);
+        size = 0;
+        lookupCount = 0;
+        hitCount = 0;
+        savedBytes = 0;
+    }
+
+    // Statistics
+
+    public synchronized long getLookupCount() {
+        return lookupCount;
+    }
+
+    /**
+     * Get the number of lookups that found the value already in the dictionary
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Estimate the heap freed by handing out shared instances instead of duplicates
+     * Counts the duplicates passed in, which become garbage once callers keep the shared copy.
+     */
+    public synchronized long getSavedBytes() {
+        return savedBytes;
+    }
+
+    /**
+     * Estimate the heap held by the distinct values
+     */
+    public synchronized long getDictionaryBytes() {
+        long bytes = 0;
+        for (int i = 0; i < size; i++) {
+            bytes += estimateBytes(values[i]);
+        }
+        return bytes;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "StringDictionary{" +
+                "size=" + size +
+                ", lookups=" + lookupCount +
+                ", hits=" + hitCount +
+                ", savedBytes=" + savedBytes +
+                '}';
+    }
+
+    private static long estimateBytes(String value) {
+        // Latin-1 strings are stored one byte per char, others two
+        int bytesPerChar = 1;
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > 0xFF) {
+                bytesPerChar = 2;
+                break;
+            }
+        }
+        return (STRING_OVERHEAD + (long) value.length() * bytesPerChar + 7) & ~7L;
+    }
+}
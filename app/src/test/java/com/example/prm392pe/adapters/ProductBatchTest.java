@@ -0,0 +1,64 @@
+package com.example.prm392pe.adapters;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.example.prm392pe.models.Product;
+
+import org.junit.Test;
+
+public class ProductBatchTest {
+
+    private static Product product(int id, String name) {
+        return new Product(id, name, null, 1, null, null, 1, true);
+    }
+
+    // Merging happens at queue time, so no adapter is needed until commit()
+    private static ProductBatch batch() {
+        return new ProductBatch(null);
+    }
+
+    @Test
+    public void removeAfterReplacingAddStillRemoves() {
+        ProductBatch batch = batch();
+        batch.add(product(1, "Replacement"));
+        batch.remove(1);
+        assertFalse(batch.adds.containsKey(1));
+        assertTrue(batch.removes.contains(1));
+        assertEquals(1, batch.size());
+    }
+
+    @Test
+    public void removeAddRemoveStillRemoves() {
+        ProductBatch batch = batch();
+        batch.remove(1);
+        batch.add(product(1, "Back"));
+        assertFalse(batch.removes.contains(1));
+        batch.remove(1);
+        assertFalse(batch.adds.containsKey(1));
+        assertTrue(batch.removes.contains(1));
+        assertEquals(1, batch.size());
+    }
+
+    @Test
+    public void removeDropsQueuedUpdate() {
+        ProductBatch batch = batch();
+        batch.update(product(2, "Renamed"), ProductPayload.NAME);
+        batch.remove(2);
+        assertTrue(batch.updates.isEmpty());
+        assertTrue(batch.updateFields.isEmpty());
+        assertTrue(batch.removes.contains(2));
+    }
+
+    @Test
+    public void updateOfQueuedAddReplacesTheAdd() {
+        ProductBatch batch = batch();
+        batch.add(product(3, "First"));
+        Product renamed = product(3, "Second");
+        batch.update(renamed, ProductPayload.NAME);
+        assertSame(renamed, batch.adds.get(3));
+        assertTrue(batch.updates.isEmpty());
+    }
+}
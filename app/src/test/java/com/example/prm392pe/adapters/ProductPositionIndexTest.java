@@ -0,0 +1,152 @@
+package com.example.prm392pe.adapters;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.example.prm392pe.models.Product;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class ProductPositionIndexTest {
+
+    private static Product product(int id) {
+        return new Product(id, "Product " + id, id);
+    }
+
+    private static int naivePosition(List<Product> products, int id) {
+        for (int i = 0; i < products.size(); i++) {
+            if (products.get(i).getId() == id) {
+                return i;
+            }
+        }
+        return ProductPositionIndex.NO_POSITION;
+    }
+
+    @Test
+    public void tracksInsertsRemovesMovesAndReplacements() {
+        List<Product> products = new ArrayList<>();
+        ProductPositionIndex index = new ProductPositionIndex(products);
+        Random random = new Random(42);
+        int nextId = 0;
+        for (int i = 0; i < 500; i++) {
+            products.add(product(nextId++));
+        }
+
+        for (int step = 0; step < 50_000; step++) {
+            int op = random.nextInt(5);
+            if (op == 0 || products.isEmpty()) {
+                int position = random.nextInt(products.size() + 1);
+                products.add(position, product(nextId));
+                index.onInserted(position, nextId++);
+            } else if (op == 1) {
+                int position = random.nextInt(products.size());
+                Product removed = products.remove(position);
+                index.onRemoved(position, removed.getId());
+            } else if (op == 2) {
+                int from = random.nextInt(products.size());
+                Product moved = products.remove(from);
+                int to = random.nextInt(products.size() + 1);
+                products.add(to, moved);
+                index.onMoved(from, to, moved.getId());
+            } else if (op == 3) {
+                int position = random.nextInt(products.size());
+                int oldId = products.get(position).getId();
+                products.set(position, product(nextId));
+                index.onReplaced(position, oldId, nextId++);
+            } else {
+                products.add(product(nextId));
+                index.onInserted(products.size() - 1, nextId++);
+            }
+
+            int id = random.nextInt(nextId);
+            assertEquals("step " + step, naivePosition(products, id), index.get(id));
+        }
+        for (Product product : products) {
+            assertEquals(naivePosition(products, product.getId()), index.get(product.getId()));
+        }
+    }
+
+    @Test
+    public void indexesFirstOfDuplicateIds() {
+        List<Product> products = new ArrayList<>();
+        products.add(product(1));
+        products.add(product(2));
+        products.add(product(1));
+        ProductPositionIndex index = new ProductPositionIndex(products);
+
+        assertEquals(0, index.get(1));
+        assertEquals(1, index.getDuplicateCount());
+
+        products.remove(0);
+        index.onRemoved(0, 1);
+        assertEquals(1, index.get(1));
+        assertEquals(0, index.get(2));
+    }
+
+    /**
+     * The list shrinks behind the index's back, as the adapter's caller-owned list can
+     */
+    @Test
+    public void detectsListShrunkWithoutNotice() {
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            products.add(product(i));
+        }
+        ProductPositionIndex index = new ProductPositionIndex(products);
+        assertEquals(8, index.get(8));
+        assertEquals(9, index.get(9));
+
+        // Past the end of the list now, so it must not be read
+        products.subList(5, 10).clear();
+        int stale = index.get(8);
+        assertEquals(8, stale);
+        assertFalse(index.isCurrent(stale, 8));
+        index.invalidate();
+        assertEquals(ProductPositionIndex.NO_POSITION, index.get(8));
+
+        // Still in range but now a different product
+        products.remove(0);
+        assertFalse(index.isCurrent(index.get(3), 3));
+        index.invalidate();
+        assertEquals(2, index.get(3));
+        assertTrue(index.isCurrent(index.get(3), 3));
+        assertFalse(index.isCurrent(ProductPositionIndex.NO_POSITION, 3));
+    }
+
+    /**
+     * A live feed removing rows near the top, with a lookup after each removal
+     */
+    @Test
+    public void removalsNearTopKeepLookupsCheap() {
+        int size = 100_000;
+        int removals = 5_000;
+        List<Product> products = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            products.add(product(i));
+        }
+        ProductPositionIndex index = new ProductPositionIndex(products);
+        index.get(0);
+
+        Random random = new Random(7);
+        long start = System.nanoTime();
+        for (int i = 0; i < removals; i++) {
+            int position = random.nextInt(10);
+            Product removed = products.remove(position);
+            index.onRemoved(position, removed.getId());
+            Product target = products.get(random.nextInt(products.size()));
+            assertEquals(target.getId(), products.get(index.get(target.getId())).getId());
+        }
+        long elapsed = System.nanoTime() - start;
+
+        // One pass over the list per MAX_SHIFTS removals, not one per lookup
+        int rebuilds = index.getRebuildCount();
+        assertTrue("rebuilds " + rebuilds, rebuilds <= removals / ProductPositionIndex.MAX_SHIFTS + 2);
+        System.out.printf("%d removals + lookups over %d rows: %.2f us each, %d rebuilds%n",
+                removals, size, elapsed / 1000.0 / removals, rebuilds);
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.prm392pe.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class InventoryEngineTest {
+
+    private static final int PRODUCTS = 100;
+    private static final int INITIAL_STOCK = 50;
+
+    /**
+     * Run the task on each thread at once and rethrow the first failure
+     */
+    private static long runConcurrently(int threads, ThreadTask task) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> workers = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            int index = t;
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                    task.run(index);
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long elapsed = System.nanoTime() - begin;
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+        return elapsed;
+    }
+
+    private interface ThreadTask {
+        void run(int thread) throws Exception;
+    }
+
+    @Test
+    public void reservationLifecycle() {
+        InventoryEngine engine = new InventoryEngine();
+        engine.setStock(1, 3);
+        assertTrue(engine.reserve(1, 2));
+        assertFalse(engine.reserve(1, 2));
+        assertEquals(1, engine.getAvailable(1));
+        assertTrue(engine.commit(1, 1));
+        assertTrue(engine.release(1, 1));
+        assertFalse(engine.release(1, 1));
+        assertEquals(2, engine.getOnHand(1));
+        assertEquals(0, engine.getReserved(1));
+        assertTrue(engine.purchase(1, 2));
+        assertFalse(engine.purchase(1, 1));
+        assertFalse(engine.isAvailable(1));
+        assertEquals(3, engine.restock(1, 3));
+        assertFalse(engine.reserve(2, 1));
+        assertEquals(-1, engine.restock(2, 1));
+    }
+
+    /**
+     * Concurrent checkouts on a few shared products: nothing is sold twice and every unit
+     * is accounted for
+     */
+    @Test
+    public void concurrentCheckoutsNeverOversell() throws InterruptedException {
+        InventoryEngine engine = new InventoryEngine();
+        for (int id = 0; id < PRODUCTS; id++) {
+            engine.setStock(id, INITIAL_STOCK);
+        }
+        AtomicIntegerArray sold = new AtomicIntegerArray(PRODUCTS);
+        AtomicIntegerArray restocked = new AtomicIntegerArray(PRODUCTS);
+        AtomicIntegerArray availabilityBalance = new AtomicIntegerArray(PRODUCTS);
+        engine.addOnAvailabilityChangedListener((productId, available) ->
+                availabilityBalance.addAndGet(productId, available ? 1 : -1));
+
+        int threads = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+        runConcurrently(threads, thread -> {
+            Random random = new Random(thread);
+            int[] held = new int[PRODUCTS];
+            for (int i = 0; i < 100_000; i++) {
+                // Mostly the first few products, so threads contend
+                int id = random.nextInt(4) == 0 ? random.nextInt(PRODUCTS) : random.nextInt(4);
+                int amount = 1 + random.nextInt(3);
+                switch (random.nextInt(5)) {
+                    case 0:
+                        if (engine.reserve(id, amount)) held[id] += amount;
+                        break;
+                    case 1:
+                        if (held[id] > 0 && engine.commit(id, held[id])) {
+                            sold.addAndGet(id, held[id]);
+                            held[id] = 0;
+                        }
+                        break;
+                    case 2:
+                        if (held[id] > 0 && engine.release(id, held[id])) held[id] = 0;
+                        break;
+                    case 3:
+                        if (engine.purchase(id, amount)) sold.addAndGet(id, amount);
+                        break;
+                    default:
+                        if (random.nextInt(10) == 0) {
+                            engine.restock(id, amount);
+                            restocked.addAndGet(id, amount);
+                        }
+                        break;
+                }
+                assertTrue(engine.getOnHand(id) >= engine.getReserved(id));
+            }
+            for (int id = 0; id < PRODUCTS; id++) {
+                if (held[id] > 0) {
+                    assertTrue(engine.release(id, held[id]));
+                }
+            }
+        });
+
+        for (int id = 0; id < PRODUCTS; id++) {
+            int supplied = INITIAL_STOCK + restocked.get(id);
+            assertTrue("oversold " + id, sold.get(id) <= supplied);
+            assertEquals("stock of " + id, supplied - sold.get(id), engine.getOnHand(id));
+            assertEquals(0, engine.getReserved(id));
+            // Starts available, so every flip to unavailable is matched unless it is sold out
+            assertEquals(engine.isAvailable(id) ? 0 : -1, availabilityBalance.get(id));
+        }
+    }
+
+    /**
+     * Threads working on different products do not contend, so throughput grows with cores
+     */
+    @Test
+    public void disjointCheckoutsScaleWithCores() throws InterruptedException {
+        int cores = Runtime.getRuntime().availableProcessors();
+        int operations = 2_000_000;
+        long single = measureDisjoint(1, operations);
+        long parallel = measureDisjoint(cores, operations);
+        double speedup = (double) single / parallel;
+        System.out.printf("%d ops: 1 thread %.1f ms, %d threads %.1f ms, speedup %.2fx%n",
+                operations, single / 1e6, cores, parallel / 1e6, speedup);
+
+        Assume.assumeTrue("needs more than one core", cores > 1);
+        assertTrue("speedup " + speedup, speedup > 1.2);
+    }
+
+    private static long measureDisjoint(int threads, int operations) throws InterruptedException {
+        InventoryEngine engine = new InventoryEngine();
+        for (int id = 0; id < threads; id++) {
+            engine.setStock(id, Integer.MAX_VALUE / 2);
+        }
+        // Warm up, then time
+        runConcurrently(threads, thread -> checkoutLoop(engine, thread, 50_000));
+        return runConcurrently(threads, thread -> checkoutLoop(engine, thread, operations / threads / 2));
+    }
+
+    private static void checkoutLoop(InventoryEngine engine, int productId, int checkouts) {
+        for (int i = 0; i < checkouts; i++) {
+            assertTrue(engine.reserve(productId, 1));
+            assertTrue(engine.commit(productId, 1));
+        }
+    }
+}
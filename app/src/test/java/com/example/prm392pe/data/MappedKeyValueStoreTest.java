@@ -0,0 +1,262 @@
+package com.example.prm392pe.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class MappedKeyValueStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static Map<String, Object> allTypes() {
+        Map<String, Object> values = new HashMap<>();
+        values.put("string", "value");
+        values.put("empty", "");
+        values.put("unicode ключ 商品", "😀 \u0000 end");
+        values.put("int", Integer.MIN_VALUE);
+        values.put("long", Long.MAX_VALUE);
+        values.put("float", -1.5f);
+        values.put("nan", Float.NaN);
+        values.put("true", true);
+        values.put("false", false);
+        values.put("set", new HashSet<>(Arrays.asList("a", "", "ü")));
+        values.put("empty set", new HashSet<String>());
+        return values;
+    }
+
+    @Test
+    public void roundTripsEveryValueType() throws IOException {
+        File file = folder.newFile();
+        Map<String, Object> values = allTypes();
+        try (MappedKeyValueStore store = MappedKeyValueStore.open(file)) {
+            for (Map.Entry<String, Object> entry : values.entrySet()) {
+                store.put(entry.getKey(), entry.getValue());
+            }
+            store.put("removed", 1);
+            store.remove("removed");
+            store.put("nulled", "x");
+            store.put("nulled", null);
+            assertEquals(values, store.getAll());
+        }
+        try (MappedKeyValueStore store = MappedKeyValueStore.open(file)) {
+            assertEquals(values, store.getAll());
+            assertFalse(store.contains("removed"));
+            assertNull(store.get("nulled"));
+
+            store.clear();
+            assertEquals(0, store.size());
+        }
+        try (MappedKeyValueStore store = MappedKeyValueStore.open(file)) {
+            assertEquals(0, store.size());
+        }
+    }
+
+    @Test
+    public void unsupportedValueInApplyWritesNothing() throws IOException {
+        File file = folder.newFile();
+        try (MappedKeyValueStore store = MappedKeyValueStore.open(file)) {
+            store.put("kept", 1);
+            long size = store.getLogSize();
+            Map<String, Object> changes = new HashMap<>();
+            changes.put("a", "fine");
+            changes.put("b", new Object());
+            try {
+                store.apply(changes, true);
+                fail("accepted an Object value");
+            } catch (IllegalArgumentException expected) {
+            }
+            assertEquals(size, store.getLogSize());
+            assertEquals(1, store.get("kept"));
+        }
+    }
+
+    private static byte[] truncated(byte[] bytes, int length) {
+        return Arrays.copyOf(bytes, length);
+    }
+
+    private File write(byte[] bytes) throws IOException {
+        File file = folder.newFile();
+        Files.write(file.toPath(), bytes);
+        return file;
+    }
+
+    /**
+     * Every truncation and every flipped byte reopens to the state after some whole number
+     * of writes, and a group is never seen in part
+     */
+    @Test
+    public void replayStopsAtTornOrCorruptTail() throws IOException {
+        File file = folder.newFile();
+        // State and log size after each write
+        List<Map<String, Object>> states = new ArrayList<>();
+        List<Long> boundaries = new ArrayList<>();
+        try (MappedKeyValueStore store = MappedKeyValueStore.open(file)) {
+            states.add(store.getAll());
+            boundaries.add(store.getLogSize());
+            for (int i = 0; i < 12; i++) {
+                if (i % 4 == 3) {
+                    Map<String, Object> changes = new HashMap<>();
+                    changes.put("group a " + i, i);
+                    changes.put("group b " + i, "value " + i);
+                    changes.put("key 0", null);
+                    store.apply(changes, i == 11);
+                } else {
+                    store.put("key " + i, "value " + i);
+                }
+                states.add(store.getAll());
+                boundaries.add(store.getLogSize());
+            }
+        }
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        long logSize = boundaries.get(boundaries.size() - 1);
+
+        for (int length = 8; length <= logSize; length++) {
+            // The mapping reads missing bytes as zeros, so zeros cut off are not lost
+            int intact = length;
+            while (intact < bytes.length && bytes[intact] == 0) {
+                intact++;
+            }
+            int whole = 0;
+            while (whole + 1 < boundaries.size() && boundaries.get(whole + 1) <= intact) {
+                whole++;
+            }
+            try (MappedKeyValueStore store = MappedKeyValueStore.open(write(truncated(bytes, length)))) {
+                assertEquals("truncated to " + length, states.get(whole), store.getAll());
+                assertEquals((long) boundaries.get(whole), store.getLogSize());
+            }
+        }
+
+        for (int position = 8; position < logSize; position++) {
+            byte[] corrupt = bytes.clone();
+            corrupt[position] ^= 0x5A;
+            int whole = 0;
+            while (whole + 1 < boundaries.size() && boundaries.get(whole + 1) <= position) {
+                whole++;
+            }
+            File corruptFile = write(corrupt);
+            try (MappedKeyValueStore store = MappedKeyValueStore.open(corruptFile)) {
+                assertEquals("byte " + position + " flipped", states.get(whole), store.getAll());
+                // Writes after the corrupt record are replayed on the next open
+                store.put("after", position);
+            }
+            try (MappedKeyValueStore store = MappedKeyValueStore.open(corruptFile)) {
+                assertEquals(position, store.get("after"));
+                assertEquals(states.get(whole).size() + 1, store.size());
+            }
+        }
+    }
+
+    /**
+     * Overwrites trigger background compaction while the same thread keeps writing, then
+     * the store is reopened from the compacted file
+     */
+    @Test
+    public void compactsWhileWritesContinue() throws Exception {
+        File file = folder.newFile();
+        Map<String, Object> model = new HashMap<>();
+        Random random = new Random(7);
+        char[] filler = new char[200];
+        Arrays.fill(filler, 'x');
+        String padding = new String(filler);
+        try (MappedKeyValueStore store = MappedKeyValueStore.open(file)) {
+            for (int i = 0; i < 100_000 || (store.getCompactionCount() < 3 && i < 1_000_000); i++) {
+                String key = "key " + random.nextInt(100);
+                int op = random.nextInt(20);
+                if (op == 0) {
+                    store.remove(key);
+                    model.remove(key);
+                } else if (op == 1) {
+                    Map<String, Object> changes = new HashMap<>();
+                    for (int j = 0; j < 5; j++) {
+                        changes.put("key " + random.nextInt(100), j == 0 ? null : padding + i + j);
+                    }
+                    store.apply(changes, false);
+                    for (Map.Entry<String, Object> change : changes.entrySet()) {
+                        if (change.getValue() == null) {
+                            model.remove(change.getKey());
+                        } else {
+                            model.put(change.getKey(), change.getValue());
+                        }
+                    }
+                } else {
+                    Object value = random.nextBoolean() ? padding + i : (Object) (long) i;
+                    store.put(key, value);
+                    model.put(key, value);
+                }
+                if (i % 1_000 == 0) {
+                    assertEquals(model, store.getAll());
+                }
+            }
+            assertEquals(model, store.getAll());
+            assertTrue(store.getCompactionCount() >= 3);
+        }
+
+        try (MappedKeyValueStore store = MappedKeyValueStore.open(file)) {
+            assertEquals(model, store.getAll());
+            store.compact();
+            assertEquals(model, store.getAll());
+            assertEquals(0, store.getDeadBytes());
+            store.put("after compact", 1);
+        }
+        try (MappedKeyValueStore store = MappedKeyValueStore.open(file)) {
+            model.put("after compact", 1);
+            assertEquals(model, store.getAll());
+        }
+    }
+
+    /**
+     * A compacted file whose size leaves less than four bytes of mapping for the terminator
+     */
+    @Test
+    public void compactsToAnySize() throws IOException {
+        for (int valueLength = 64 * 1024 - 60; valueLength < 64 * 1024 - 20; valueLength++) {
+            File file = folder.newFile();
+            char[] chars = new char[valueLength];
+            Arrays.fill(chars, 'v');
+            String value = new String(chars);
+            try (MappedKeyValueStore store = MappedKeyValueStore.open(file)) {
+                store.put("k", value);
+                store.put("k", value);
+                store.compact();
+                store.put("small", 1);
+            }
+            try (MappedKeyValueStore store = MappedKeyValueStore.open(file)) {
+                assertEquals(value, store.get("k"));
+                assertEquals(1, store.get("small"));
+            }
+        }
+    }
+
+    @Test
+    public void rejectsForeignFile() throws IOException {
+        File file = folder.newFile();
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            out.writeInt(0x12345678);
+            out.writeInt(0);
+        }
+        try {
+            MappedKeyValueStore.open(file).close();
+            fail("opened a foreign file");
+        } catch (IOException expected) {
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.prm392pe.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.example.prm392pe.models.Product;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class ProductAggregatorTest {
+
+    private static Product product(int id, Random random, int categories) {
+        // Few distinct prices and quantities, so removals often hit a min or max
+        return new Product(id, "Product " + id, null, random.nextInt(20) + 0.5, null,
+                "Category " + random.nextInt(categories), random.nextInt(10), random.nextBoolean());
+    }
+
+    private static void assertSameStats(ProductAggregates.Stats expected, ProductAggregates.Stats actual) {
+        assertEquals(expected.getCount(), actual.getCount());
+        assertEquals(expected.getAvailableCount(), actual.getAvailableCount());
+        assertEquals(expected.getPriceSum(), actual.getPriceSum(), 1e-6);
+        assertEquals(expected.getPriceMin(), actual.getPriceMin(), 0);
+        assertEquals(expected.getPriceMax(), actual.getPriceMax(), 0);
+        assertEquals(expected.getQuantitySum(), actual.getQuantitySum());
+        assertEquals(expected.getQuantityMin(), actual.getQuantityMin());
+        assertEquals(expected.getQuantityMax(), actual.getQuantityMax());
+        assertEquals(expected.getStockValue(), actual.getStockValue(), 1e-6);
+    }
+
+    @Test
+    public void matchesFullRecomputation() {
+        ProductAggregator<String> aggregator = new ProductAggregator<>(ProductAggregates.BY_CATEGORY);
+        Map<Integer, Product> model = new HashMap<>();
+        Random random = new Random(5);
+
+        List<Product> initial = new ArrayList<>();
+        for (int id = 0; id < 500; id++) {
+            initial.add(product(id, random, 8));
+        }
+        // A duplicate id keeps only the last product
+        initial.add(product(0, random, 8));
+        aggregator.setAll(initial);
+        for (Product product : initial) {
+            model.put(product.getId(), product);
+        }
+
+        for (int step = 0; step < 50_000; step++) {
+            int id = random.nextInt(1_000);
+            if (random.nextInt(3) == 0) {
+                aggregator.remove(id);
+                model.remove(id);
+            } else {
+                Product product = product(id, random, 8);
+                aggregator.update(product);
+                model.put(id, product);
+            }
+
+            if (step % 10 == 0) {
+                List<Product> products = new ArrayList<>(model.values());
+                String key = "Category " + random.nextInt(8);
+                ProductAggregates.Stats expected = ProductAggregates.groupBy(products, ProductAggregates.BY_CATEGORY).get(key);
+                ProductAggregates.Stats actual = aggregator.getStats(key);
+                if (expected == null) {
+                    assertNull(actual);
+                } else {
+                    assertSameStats(expected, actual);
+                }
+                if (step % 100 == 0) {
+                    assertSameStats(ProductAggregates.total(products), aggregator.getTotal());
+                    Map<String, ProductAggregates.Stats> groups = aggregator.getGroups();
+                    assertEquals(ProductAggregates.groupBy(products, ProductAggregates.BY_CATEGORY).keySet(), groups.keySet());
+                }
+            }
+        }
+        assertEquals(model.size(), aggregator.size());
+    }
+
+    /**
+     * Removing the min of a small group and reading it back rebuilds only that group
+     */
+    @Test
+    public void staleGroupRebuildCostsGroupSize() {
+        int count = 200_000;
+        Random random = new Random(9);
+        List<Product> products = new ArrayList<>(count);
+        for (int id = 0; id < count; id++) {
+            products.add(product(id, random, 1_000));
+        }
+        ProductAggregator<String> aggregator = new ProductAggregator<>(ProductAggregates.BY_CATEGORY);
+        aggregator.setAll(products);
+
+        int rounds = 5_000;
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            Product product = products.get(random.nextInt(count));
+            aggregator.remove(product);
+            aggregator.getStats(product.getCategory());
+            aggregator.getTotal();
+            aggregator.add(product);
+        }
+        long elapsed = System.nanoTime() - start;
+        assertSameStats(ProductAggregates.total(products), aggregator.getTotal());
+
+        double micros = elapsed / 1e3 / rounds;
+        System.out.printf("%d products in 1000 groups: remove + group read + total read %.1f us%n", count, micros);
+        // A scan of every entry per read would take milliseconds at this size
+        assertTrue("took " + micros + " us", micros < 1_000);
+    }
+}
@@ -0,0 +1,235 @@
+package com.example.prm392pe.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.example.prm392pe.models.Product;
+import com.example.prm392pe.utils.StringDictionary;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+public class ProductJsonTest {
+
+    private static final String[] TRICKY = {
+            "", "plain", "quote \" and backslash \\", "slash / tab \t newline \n",
+            "control \u0001\u001f", "accents éàü", "CJK 商品", "astral 😀𝄞", "\u2028\u2029"
+    };
+
+    private static Product product(int i, Random random) {
+        double price;
+        switch (i % 4) {
+            case 0: price = i + 0.99; break;
+            case 1: price = random.nextDouble() * 1e6; break;
+            case 2: price = -random.nextDouble(); break;
+            default: price = i; break;
+        }
+        return new Product(random.nextInt(), i % 10 == 0 ? null : TRICKY[i % TRICKY.length] + i,
+                TRICKY[random.nextInt(TRICKY.length)], price, i % 3 == 0 ? null : "https://example.com/" + i + ".png",
+                "Category " + (i % 20), random.nextInt(), random.nextBoolean());
+    }
+
+    private static List<Product> products(int count) {
+        Random random = new Random(count);
+        List<Product> products = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            products.add(product(i, random));
+        }
+        return products;
+    }
+
+    private static byte[] write(List<Product> products) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ProductJsonWriter writer = new ProductJsonWriter(bytes)) {
+            writer.writeAll(products);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static List<Product> read(byte[] json) throws IOException {
+        List<Product> products = new ArrayList<>();
+        try (ProductJsonReader reader = new ProductJsonReader(new ByteArrayInputStream(json))) {
+            reader.readAll(products::add);
+        }
+        return products;
+    }
+
+    private static List<Product> read(String json) throws IOException {
+        return read(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Product.equals() only compares ids
+    private static void assertSameProduct(Product expected, Product actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getDescription(), actual.getDescription());
+        assertEquals(Double.doubleToLongBits(expected.getPrice()), Double.doubleToLongBits(actual.getPrice()));
+        assertEquals(expected.getImageUrl(), actual.getImageUrl());
+        assertEquals(expected.getCategory(), actual.getCategory());
+        assertEquals(expected.getQuantity(), actual.getQuantity());
+        assertEquals(expected.isAvailable(), actual.isAvailable());
+    }
+
+    @Test
+    public void roundTripKeepsEveryField() throws IOException {
+        List<Product> products = products(20_000);
+        List<Product> decoded = read(write(products));
+        assertEquals(products.size(), decoded.size());
+        for (int i = 0; i < products.size(); i++) {
+            assertSameProduct(products.get(i), decoded.get(i));
+        }
+        // The reader shares one instance per category
+        Set<String> categories = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Product product : decoded) {
+            categories.add(product.getCategory());
+        }
+        assertEquals(20, categories.size());
+    }
+
+    @Test
+    public void sharesRepeatedImageUrlsAndReportsSavings() throws IOException {
+        List<Product> products = products(1_000);
+        for (int i = 0; i < products.size(); i++) {
+            // Placeholders repeat, real images are unique
+            products.get(i).setImageUrl(i % 2 == 0 ? "https://example.com/placeholder" + (i % 3) + ".png"
+                    : "https://example.com/" + i + ".png");
+        }
+        List<Product> decoded = new ArrayList<>();
+        try (ProductJsonReader reader = new ProductJsonReader(new ByteArrayInputStream(write(products)))) {
+            reader.readAll(decoded::add);
+
+            StringDictionary categories = reader.getCategoryDictionary();
+            assertEquals(20, categories.size());
+            assertEquals(1_000 - 20, categories.getHitCount());
+            assertTrue(categories.getSavedBytes() > 0);
+
+            StringDictionary imageUrls = reader.getImageUrlDictionary();
+            assertEquals(3 + 500, imageUrls.size());
+            assertEquals(500 - 3, imageUrls.getHitCount());
+        }
+        Set<String> urls = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int i = 0; i < decoded.size(); i += 2) {
+            urls.add(decoded.get(i).getImageUrl());
+        }
+        assertEquals(3, urls.size());
+    }
+
+    @Test
+    public void readsHandWrittenJson() throws IOException {
+        List<Product> products = read(" [ {\"id\": 7, \"name\": \"Caf\\u00e9 \\ud83d\\ude00\", \"price\": 1.5e2,"
+                + " \"tags\": [1, {\"nested\": [true, null]}], \"available\": true, \"quantity\": -3},"
+                + "\n{\"category\": null, \"id\": 8} ] ");
+        assertEquals(2, products.size());
+        assertEquals(7, products.get(0).getId());
+        assertEquals("Café 😀", products.get(0).getName());
+        assertEquals(150.0, products.get(0).getPrice(), 0);
+        assertTrue(products.get(0).isAvailable());
+        assertEquals(-3, products.get(0).getQuantity());
+        assertEquals(8, products.get(1).getId());
+        assertNull(products.get(1).getCategory());
+        assertTrue(read("[]").isEmpty());
+    }
+
+    @Test
+    public void readsBatchesAndIntoReusedProduct() throws IOException {
+        byte[] json = write(products(1_000));
+        List<Integer> sizes = new ArrayList<>();
+        try (ProductJsonReader reader = new ProductJsonReader(new ByteArrayInputStream(json))) {
+            assertEquals(1_000, reader.readBatches(300, batch -> sizes.add(batch.size())));
+        }
+        assertEquals(Arrays.asList(300, 300, 300, 100), sizes);
+
+        Product scratch = new Product();
+        int count = 0;
+        try (ProductJsonReader reader = new ProductJsonReader(new ByteArrayInputStream(json))) {
+            while (reader.next(scratch)) {
+                count++;
+            }
+            assertEquals(json.length, reader.getBytesRead());
+        }
+        assertEquals(1_000, count);
+    }
+
+    @Test
+    public void malformedInputThrows() throws IOException {
+        String[] inputs = {
+                "",
+                "{}",
+                "[",
+                "[{\"id\": 1}",
+                "[{\"id\": 1} {\"id\": 2}]",
+                "[{\"id\" 1}]",
+                "[{\"id\": }]",
+                "[{\"id\": 1,]",
+                "[{\"name\": \"unterminated}]",
+                "[{\"name\": \"bad escape \\x\"}]",
+                "[{\"id\": tru}]",
+                "[1]",
+        };
+        for (String input : inputs) {
+            try {
+                read(input);
+                fail("accepted " + input);
+            } catch (IOException expected) {
+            }
+        }
+
+        // Every truncation of a valid catalog before its closing bracket is rejected
+        byte[] json = write(products(3));
+        int end = json.length - 1;
+        while (json[end] != ']') {
+            end--;
+        }
+        for (int length = 0; length <= end; length++) {
+            byte[] truncated = new byte[length];
+            System.arraycopy(json, 0, truncated, 0, length);
+            try {
+                read(truncated);
+                fail("accepted " + length + " of " + json.length + " bytes");
+            } catch (IOException expected) {
+            }
+        }
+    }
+
+    /**
+     * Write and parse a catalog in memory and report the throughput
+     */
+    @Test
+    public void throughput() throws IOException {
+        List<Product> products = products(200_000);
+        write(products);
+        read(write(products));
+
+        long start = System.nanoTime();
+        byte[] json = write(products);
+        long writeNanos = System.nanoTime() - start;
+
+        int count = 0;
+        start = System.nanoTime();
+        try (ProductJsonReader reader = new ProductJsonReader(new ByteArrayInputStream(json))) {
+            Product scratch = new Product();
+            while (reader.next(scratch)) {
+                count++;
+            }
+        }
+        long readNanos = System.nanoTime() - start;
+        assertEquals(products.size(), count);
+
+        double megabytes = json.length / 1e6;
+        System.out.printf("%d products, %.1f MB: write %.0f MB/s, read %.0f MB/s%n",
+                products.size(), megabytes, megabytes / (writeNanos / 1e9), megabytes / (readNanos / 1e9));
+    }
+}
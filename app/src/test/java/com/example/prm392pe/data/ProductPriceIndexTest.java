@@ -0,0 +1,177 @@
+package com.example.prm392pe.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.example.prm392pe.models.Product;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class ProductPriceIndexTest {
+
+    private static final double[] SPECIAL_PRICES = {Double.NaN, -0.0, 0.0, 9.99, 1e9};
+
+    private static double randomPrice(Random random) {
+        if (random.nextInt(50) == 0) {
+            return SPECIAL_PRICES[random.nextInt(SPECIAL_PRICES.length)];
+        }
+        // Mostly repeated cents, sometimes a price never seen before
+        return random.nextInt(4) == 0 ? random.nextDouble() * 1000 : random.nextInt(1000) / 100.0 * 10;
+    }
+
+    private static boolean matches(Product product, double min, double max, int availability) {
+        double price = product.getPrice();
+        if (!(price >= min && price <= max)) {
+            return false;
+        }
+        return availability == ProductPriceIndex.ANY
+                || product.isAvailable() == (availability == ProductPriceIndex.AVAILABLE_ONLY);
+    }
+
+    private static int naiveCount(Map<Integer, Product> products, double min, double max, int availability) {
+        int count = 0;
+        for (Product product : products.values()) {
+            if (matches(product, min, max, availability)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Test
+    public void matchesNaiveScan() {
+        ProductPriceIndex index = new ProductPriceIndex();
+        Map<Integer, Product> model = new HashMap<>();
+        Random random = new Random(17);
+
+        List<Product> initial = new ArrayList<>();
+        for (int id = 0; id < 1_000; id++) {
+            initial.add(new Product(id, "Product " + id, null, randomPrice(random), null, null, 1, random.nextBoolean()));
+        }
+        index.setAll(initial);
+        for (Product product : initial) {
+            model.put(product.getId(), product);
+        }
+
+        for (int step = 0; step < 100_000; step++) {
+            int id = random.nextInt(2_000);
+            Product existing = model.get(id);
+            switch (random.nextInt(5)) {
+                case 0: {
+                    Product product = new Product(id, "Product " + id, null, randomPrice(random), null, null, 1, random.nextBoolean());
+                    index.add(product);
+                    model.put(id, product);
+                    break;
+                }
+                case 1: {
+                    double price = randomPrice(random);
+                    assertEquals(existing != null, index.setPrice(id, price));
+                    if (existing != null) existing.setPrice(price);
+                    break;
+                }
+                case 2: {
+                    boolean available = random.nextBoolean();
+                    assertEquals(existing != null, index.setAvailable(id, available));
+                    if (existing != null) existing.setAvailable(available);
+                    break;
+                }
+                case 3:
+                    assertEquals(model.remove(id) != null, index.remove(id));
+                    break;
+                default: {
+                    double a = randomPrice(random);
+                    double b = randomPrice(random);
+                    double min = Math.min(a, b);
+                    double max = Math.max(a, b);
+                    int availability = random.nextInt(3);
+                    assertEquals("step " + step, naiveCount(model, min, max, availability), index.count(min, max, availability));
+                    if (step % 20 == 0) {
+                        assertFindIds(model, index, min, max, availability);
+                    }
+                    break;
+                }
+            }
+            assertEquals(model.size(), index.size());
+        }
+    }
+
+    private static void assertFindIds(Map<Integer, Product> model, ProductPriceIndex index,
+                                      double min, double max, int availability) {
+        int[] ids = index.findIds(min, max, availability);
+        List<Integer> expected = new ArrayList<>();
+        for (Product product : model.values()) {
+            if (matches(product, min, max, availability)) {
+                expected.add(product.getId());
+            }
+        }
+        assertEquals(expected.size(), ids.length);
+        double previous = Double.NEGATIVE_INFINITY;
+        for (int id : ids) {
+            assertTrue(expected.contains(id));
+            double price = model.get(id).getPrice();
+            assertTrue("cheapest first", price >= previous);
+            previous = price;
+        }
+    }
+
+    /**
+     * Range counts, updates and id lookups against a scan of the product list
+     */
+    @Test
+    public void queriesAtCatalogScale() {
+        int count = 200_000;
+        Random random = new Random(23);
+        List<Product> products = new ArrayList<>(count);
+        for (int id = 0; id < count; id++) {
+            products.add(new Product(id, "Product " + id, null, random.nextInt(100_000) / 100.0, null, null, 1, random.nextBoolean()));
+        }
+        ProductPriceIndex index = new ProductPriceIndex();
+        index.setAll(products);
+
+        int queries = 20_000;
+        long start = System.nanoTime();
+        long total = 0;
+        for (int i = 0; i < queries; i++) {
+            total += index.count(50, 300, ProductPriceIndex.AVAILABLE_ONLY);
+        }
+        long indexNanos = System.nanoTime() - start;
+
+        int scans = 20;
+        start = System.nanoTime();
+        long scanned = 0;
+        for (int i = 0; i < scans; i++) {
+            for (Product product : products) {
+                if (product.isAvailable() && product.getPrice() >= 50 && product.getPrice() <= 300) {
+                    scanned++;
+                }
+            }
+        }
+        long scanNanos = System.nanoTime() - start;
+        assertEquals(total / queries, scanned / scans);
+
+        int updates = 100_000;
+        start = System.nanoTime();
+        for (int i = 0; i < updates; i++) {
+            int id = random.nextInt(count);
+            // Half the new prices are not in the index yet
+            index.setPrice(id, random.nextBoolean() ? random.nextInt(100_000) / 100.0 : random.nextDouble() * 1000);
+            index.setAvailable(id, random.nextBoolean());
+        }
+        long updateNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        int[] ids = index.findIds(100, 200, ProductPriceIndex.ANY);
+        long findNanos = System.nanoTime() - start;
+        assertEquals(index.count(100, 200, ProductPriceIndex.ANY), ids.length);
+
+        System.out.printf("%d products: count %.2f us vs scan %.2f ms, price + availability update %.2f us, findIds of %d in %.2f ms%n",
+                count, indexNanos / 1e3 / queries, scanNanos / 1e6 / scans, updateNanos / 1e3 / updates,
+                ids.length, findNanos / 1e6);
+    }
+}
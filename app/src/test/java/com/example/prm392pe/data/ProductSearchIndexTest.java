@@ -0,0 +1,197 @@
+package com.example.prm392pe.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.example.prm392pe.models.Product;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+public class ProductSearchIndexTest {
+
+    private static final String[] WORDS = {
+            "smart", "smartphone", "phone", "wireless", "wired", "headphones", "head", "laptop",
+            "watch", "water", "coffee", "maker", "camera", "case", "screen", "speaker", "sport"
+    };
+    private static final String[] CATEGORIES = {"Electronics", "Audio", "Kitchen", "Wearables", "Sports"};
+
+    private static Product product(int id, Random random) {
+        StringBuilder name = new StringBuilder();
+        for (int i = 0, words = 1 + random.nextInt(3); i < words; i++) {
+            name.append(WORDS[random.nextInt(WORDS.length)]).append(i == 0 ? "-" : " ");
+        }
+        name.append('#').append(id);
+        return new Product(id, name.toString(), random.nextInt(4) == 0 ? null : "Item " + WORDS[random.nextInt(WORDS.length)],
+                1, null, CATEGORIES[random.nextInt(CATEGORIES.length)], 1, true);
+    }
+
+    private static List<String> tokens(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text != null) {
+            for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{Nd}]+")) {
+                if (!token.isEmpty()) {
+                    tokens.add(token);
+                }
+            }
+        }
+        return tokens;
+    }
+
+    private static boolean matches(Product product, List<String> terms) {
+        List<String> tokens = tokens(product.getName());
+        tokens.addAll(tokens(product.getDescription()));
+        tokens.addAll(tokens(product.getCategory()));
+        for (String term : terms) {
+            boolean found = false;
+            for (String token : tokens) {
+                found |= token.startsWith(term);
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Insertion order of the map is catalog order: a replaced product keeps its place
+    private static List<Integer> naiveSearch(Map<Integer, Product> catalog, String query) {
+        List<String> terms = tokens(query);
+        List<Integer> ids = new ArrayList<>();
+        for (Product product : catalog.values()) {
+            if (matches(product, terms)) {
+                ids.add(product.getId());
+            }
+        }
+        return ids;
+    }
+
+    private static List<Integer> ids(List<Product> products) {
+        List<Integer> ids = new ArrayList<>(products.size());
+        for (Product product : products) {
+            ids.add(product.getId());
+        }
+        return ids;
+    }
+
+    @Test
+    public void matchesPrefixesOfEveryTerm() {
+        ProductSearchIndex index = new ProductSearchIndex();
+        index.setAll(Arrays.asList(
+                new Product(1, "Wireless noise-cancelling headphones", "Over-ear", 1, null, "Audio", 1, true),
+                new Product(2, "Wired headset", null, 1, null, "Audio", 1, true),
+                new Product(3, "Smartphone X", "Phone with a smart camera", 1, null, "Electronics", 1, true),
+                new Product(4, "Café crème", null, 1, null, "Kitchen", 1, true)));
+
+        assertEquals(Arrays.asList(1, 2), ids(index.search("wire head")));
+        assertEquals(Arrays.asList(1), ids(index.search("wirel head")));
+        assertEquals(Arrays.asList(1, 2), ids(index.search("WIRE")));
+        assertEquals(Arrays.asList(1, 2), ids(index.search("  head,   au ")));
+        assertEquals(Arrays.asList(3), ids(index.search("smart ph cam")));
+        assertEquals(Arrays.asList(4), ids(index.search("CAFÉ")));
+        assertEquals(Arrays.asList(1, 2, 3, 4), ids(index.search(" ")));
+        assertTrue(index.search("wire phone").isEmpty());
+        assertTrue(index.search("zzz").isEmpty());
+    }
+
+    @Test
+    public void updatesAndRemovalsAreSearchable() {
+        ProductSearchIndex index = new ProductSearchIndex();
+        index.add(new Product(1, "Laptop", null, 1, null, null, 1, true));
+        index.add(new Product(2, "Tablet", null, 1, null, null, 1, true));
+        index.update(new Product(1, "Notebook", null, 1, null, null, 1, true));
+        assertTrue(index.search("lap").isEmpty());
+        assertEquals(Arrays.asList(1), ids(index.search("note")));
+
+        // A renamed product keeps its place, a re-added one goes last
+        index.update(new Product(2, "Notebook stand", null, 1, null, null, 1, true));
+        assertEquals(Arrays.asList(1, 2), ids(index.search("notebook")));
+        index.remove(1);
+        assertEquals(Arrays.asList(2), ids(index.search("notebook")));
+        index.add(new Product(1, "Notebook", null, 1, null, null, 1, true));
+        assertEquals(Arrays.asList(2, 1), ids(index.search("notebook")));
+        assertEquals(2, index.size());
+
+        index.clear();
+        assertEquals(0, index.size());
+        assertTrue(index.search("notebook").isEmpty());
+    }
+
+    @Test
+    public void matchesNaiveScanUnderRandomChanges() {
+        ProductSearchIndex index = new ProductSearchIndex();
+        Map<Integer, Product> catalog = new LinkedHashMap<>();
+        Random random = new Random(13);
+        String[] queries = {"s", "sma", "smart ph", "head", "w", "wi he", "case sport", "elec", "item wat", "#"};
+
+        for (int step = 0; step < 30_000; step++) {
+            int id = random.nextInt(3_000);
+            int op = random.nextInt(10);
+            if (op < 5) {
+                Product product = product(id, random);
+                index.add(product);
+                catalog.put(id, product);
+            } else if (op < 7) {
+                Product product = product(id, random);
+                index.update(product);
+                catalog.put(id, product);
+            } else {
+                index.remove(id);
+                catalog.remove(id);
+            }
+
+            assertEquals(catalog.size(), index.size());
+            if (step % 200 == 0) {
+                String query = queries[random.nextInt(queries.length)];
+                assertEquals("step " + step + ", " + query, naiveSearch(catalog, query), ids(index.search(query)));
+                assertEquals(new ArrayList<>(catalog.keySet()), ids(index.getAll()));
+            }
+        }
+    }
+
+    /**
+     * Short, unselective prefixes and two-term queries over 100k products
+     */
+    @Test
+    public void queriesOn100kProducts() {
+        int count = 100_000;
+        List<Product> products = new StubProductPageLoader(count).loadPage(0, count);
+        Random random = new Random(29);
+        for (int i = 0; i < count; i += 2) {
+            products.set(i, product(i + 1, random));
+        }
+        ProductSearchIndex index = new ProductSearchIndex();
+        long start = System.nanoTime();
+        index.setAll(products);
+        long buildNanos = System.nanoTime() - start;
+
+        String[] queries = {"w", "s", "smart ph", "head", "catalog item", "1", "electronics"};
+        for (int i = 0; i < 5; i++) {
+            for (String query : queries) {
+                index.search(query);
+            }
+        }
+        int rounds = 20;
+        StringBuilder report = new StringBuilder();
+        double worst = 0;
+        for (String query : queries) {
+            int results = 0;
+            start = System.nanoTime();
+            for (int i = 0; i < rounds; i++) {
+                results = index.search(query).size();
+            }
+            double millis = (System.nanoTime() - start) / 1e6 / rounds;
+            worst = Math.max(worst, millis);
+            report.append(String.format(Locale.ROOT, " \"%s\" %d in %.2f ms,", query, results, millis));
+        }
+        System.out.printf("%d products, built in %.0f ms:%s%n", count, buildNanos / 1e6, report);
+        assertTrue("slowest query " + worst + " ms", worst < 10);
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.prm392pe.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.example.prm392pe.models.User;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+public class UserDirectoryTest {
+
+    private static final String[] FIRST_NAMES = {"Anna", "anton", "Bao", "Binh", "Chi", "Đức", "Emma", "Lan", "linh", "Minh"};
+
+    private static User user(int id, Random random) {
+        String name = random.nextInt(50) == 0 ? null
+                : FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " " + Integer.toString(random.nextInt(100_000), 36);
+        return new User(id, name, "User" + id + "@Example.com");
+    }
+
+    private static String nameKey(User user) {
+        return user.getName() != null ? user.getName() : "";
+    }
+
+    private static List<User> naiveSearch(Map<Integer, User> users, String prefix) {
+        List<User> matches = new ArrayList<>();
+        for (User user : users.values()) {
+            if (nameKey(user).regionMatches(true, 0, prefix, 0, prefix.length())) {
+                matches.add(user);
+            }
+        }
+        matches.sort((a, b) -> String.CASE_INSENSITIVE_ORDER.compare(nameKey(a), nameKey(b)));
+        return matches;
+    }
+
+    private static void assertSameResults(List<User> expected, List<User> actual) {
+        assertEquals(expected.size(), actual.size());
+        Set<Integer> expectedIds = new HashSet<>();
+        for (int i = 0; i < expected.size(); i++) {
+            // Equal names may come in any order, so compare the names position by position
+            assertEquals(0, String.CASE_INSENSITIVE_ORDER.compare(nameKey(expected.get(i)), nameKey(actual.get(i))));
+            expectedIds.add(expected.get(i).getId());
+        }
+        for (User user : actual) {
+            assertTrue(expectedIds.remove(user.getId()));
+        }
+    }
+
+    @Test
+    public void matchesNaiveModelUnderRandomChanges() {
+        UserDirectory directory = new UserDirectory();
+        Map<Integer, User> model = new HashMap<>();
+        Random random = new Random(3);
+        String[] prefixes = {"", "a", "AN", "b", "đ", "lin", "minh ", "zzz"};
+
+        for (int step = 0; step < 20_000; step++) {
+            int id = random.nextInt(2_000);
+            int op = random.nextInt(10);
+            if (op < 6) {
+                User user = user(id, random);
+                if (random.nextBoolean()) {
+                    user.setEmail(user.getEmail().toUpperCase());
+                }
+                directory.put(user);
+                model.put(id, user);
+            } else if (op < 9) {
+                assertEquals(model.remove(id) != null, directory.remove(id));
+            } else {
+                List<User> batch = new ArrayList<>();
+                for (int i = 0; i < 50; i++) {
+                    User user = user(random.nextInt(2_000), random);
+                    batch.add(user);
+                    model.put(user.getId(), user);
+                }
+                directory.putAll(batch);
+            }
+
+            assertEquals(model.size(), directory.size());
+            assertSame(model.get(id), directory.getById(id));
+            String email = ("user" + id + "@example.COM");
+            assertSame(model.get(id), directory.getByEmail(email));
+            if (step % 100 == 0) {
+                String prefix = prefixes[random.nextInt(prefixes.length)];
+                assertSameResults(naiveSearch(model, prefix), directory.searchByName(prefix, Integer.MAX_VALUE));
+            }
+        }
+
+        directory.clear();
+        assertEquals(0, directory.size());
+        assertNull(directory.getByEmail("user1@example.com"));
+        assertTrue(directory.searchByName("", 10).isEmpty());
+    }
+
+    @Test
+    public void searchRespectsLimitAndOrder() {
+        UserDirectory directory = new UserDirectory();
+        directory.put(new User(1, "bob", "b@example.com"));
+        directory.put(new User(2, "Alice", "a@example.com"));
+        directory.put(new User(3, "ALBERT", "al@example.com"));
+        directory.put(new User(4, "Carol", "c@example.com"));
+
+        List<User> results = directory.searchByName("al", 10);
+        assertEquals(2, results.size());
+        assertEquals(3, results.get(0).getId());
+        assertEquals(2, results.get(1).getId());
+        assertEquals(2, directory.searchByName("", 2).size());
+
+        // Renaming moves the user in the order
+        directory.put(new User(1, "Aaron", "b@example.com"));
+        assertEquals(1, directory.searchByName("a", 1).get(0).getId());
+        assertTrue(directory.searchByName("bob", 10).isEmpty());
+    }
+
+    /**
+     * Bulk load, lookups and type-ahead searches over a large directory
+     */
+    @Test
+    public void largeDirectoryLookups() {
+        int count = 500_000;
+        Random random = new Random(11);
+        List<User> users = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            users.add(user(i, random));
+        }
+
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long before = runtime.totalMemory() - runtime.freeMemory();
+        long start = System.nanoTime();
+        UserDirectory directory = new UserDirectory(count);
+        directory.putAll(users);
+        long loadNanos = System.nanoTime() - start;
+        System.gc();
+        long indexBytes = runtime.totalMemory() - runtime.freeMemory() - before;
+        assertEquals(count, directory.size());
+
+        int lookups = 200_000;
+        start = System.nanoTime();
+        for (int i = 0; i < lookups; i++) {
+            int id = random.nextInt(count);
+            assertEquals(id, directory.getByEmail("USER" + id + "@example.com").getId());
+        }
+        long emailNanos = System.nanoTime() - start;
+
+        int searches = 20_000;
+        start = System.nanoTime();
+        for (int i = 0; i < searches; i++) {
+            String prefix = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)].substring(0, 1 + random.nextInt(3));
+            assertEquals(20, directory.searchByName(prefix, 20).size());
+        }
+        long searchNanos = System.nanoTime() - start;
+
+        // Updates between searches go to the pending run
+        for (int i = 0; i < 1_000; i++) {
+            directory.put(user(random.nextInt(count), random));
+            directory.searchByName("Li", 20);
+        }
+
+        System.out.printf("%d users: load %.0f ms, ~%d bytes/user of index, email lookup %.2f us, prefix search %.2f us%n",
+                count, loadNanos / 1e6, indexBytes / count, emailNanos / 1e3 / lookups, searchNanos / 1e3 / searches);
+    }
+}
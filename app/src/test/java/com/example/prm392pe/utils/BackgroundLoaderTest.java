@@ -0,0 +1,124 @@
+package com.example.prm392pe.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class BackgroundLoaderTest {
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @After
+    public void shutDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void readAfterPreloadFinishedDoesNotWait() throws Exception {
+        BackgroundLoader<String> loader = new BackgroundLoader<>(() -> {
+            loads.incrementAndGet();
+            return "value";
+        });
+        loader.start(executor).get();
+
+        assertEquals("value", loader.get());
+        assertEquals(0, loader.getWaitCount());
+        assertEquals(0, loader.getWaitNanos());
+        // Starting again does not load again
+        loader.start(executor).get();
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void readDuringPreloadWaitsForItAndCountsTheWait() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread[] loadThread = new Thread[1];
+        BackgroundLoader<String> loader = new BackgroundLoader<>(() -> {
+            loadThread[0] = Thread.currentThread();
+            loads.incrementAndGet();
+            started.countDown();
+            release.await();
+            return "value";
+        });
+        loader.start(executor);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException ignored) {
+            }
+            release.countDown();
+        }).start();
+        assertEquals("value", loader.get());
+
+        // The read waited for the preload rather than loading a second time
+        assertEquals(1, loads.get());
+        assertNotSame(Thread.currentThread(), loadThread[0]);
+        assertEquals(1, loader.getWaitCount());
+        assertTrue("waited " + loader.getWaitNanos() + " ns", loader.getWaitNanos() >= TimeUnit.MILLISECONDS.toNanos(25));
+    }
+
+    @Test
+    public void readBeforeQueuedPreloadRunsLoadsOnCallingThread() {
+        Queue<Runnable> queued = new ArrayDeque<>();
+        Thread[] loadThread = new Thread[1];
+        BackgroundLoader<String> loader = new BackgroundLoader<>(() -> {
+            loadThread[0] = Thread.currentThread();
+            loads.incrementAndGet();
+            return "value";
+        });
+        // Queued behind other work, so the read comes first
+        loader.start(queued::add);
+        assertEquals("value", loader.get());
+        assertSame(Thread.currentThread(), loadThread[0]);
+        assertEquals(1, loader.getWaitCount());
+
+        // The queued preload finds the load done
+        queued.poll().run();
+        assertEquals(1, loads.get());
+        assertEquals("value", loader.get());
+        assertEquals(1, loader.getWaitCount());
+    }
+
+    @Test
+    public void backgroundReadIsNotCounted() {
+        BackgroundLoader<String> loader = new BackgroundLoader<>(() -> "value");
+        assertEquals("value", loader.getInBackground());
+        assertTrue(loader.isDone());
+        assertEquals(0, loader.getWaitCount());
+    }
+
+    @Test
+    public void failedLoadThrowsOnEveryRead() {
+        BackgroundLoader<String> loader = new BackgroundLoader<>(() -> {
+            loads.incrementAndGet();
+            throw new IOException("unreadable");
+        });
+        for (int i = 0; i < 2; i++) {
+            try {
+                loader.get();
+                fail("read a failed load");
+            } catch (IllegalStateException expected) {
+                assertTrue(expected.getCause().getCause() instanceof IOException);
+            }
+        }
+        assertEquals(1, loads.get());
+    }
+}
@@ -0,0 +1,254 @@
+package com.example.prm392pe.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.example.prm392pe.models.Product;
+import com.example.prm392pe.models.User;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class ModelCodecTest {
+
+    private static final String[] CATEGORIES = {"Electronics", "Books", "Clothing", "Home", "Toys"};
+
+    private static Product product(int i) {
+        return new Product(i, "Product " + i, "Description of product number " + i,
+                i % 3 == 0 ? i * 1.25 : i + 0.99, "https://example.com/images/" + i + ".png",
+                CATEGORIES[i % CATEGORIES.length], i % 50, i % 7 != 0);
+    }
+
+    private static ArrayList<Product> products(int count) {
+        ArrayList<Product> products = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            products.add(product(i));
+        }
+        return products;
+    }
+
+    // Product.equals() only compares ids
+    private static void assertSameProduct(Product expected, Product actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getDescription(), actual.getDescription());
+        assertEquals(Double.doubleToLongBits(expected.getPrice()), Double.doubleToLongBits(actual.getPrice()));
+        assertEquals(expected.getImageUrl(), actual.getImageUrl());
+        assertEquals(expected.getCategory(), actual.getCategory());
+        assertEquals(expected.getQuantity(), actual.getQuantity());
+        assertEquals(expected.isAvailable(), actual.isAvailable());
+    }
+
+    private static void assertSameUser(User expected, User actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getEmail(), actual.getEmail());
+        assertEquals(expected.getPhone(), actual.getPhone());
+        assertEquals(expected.getProfileImage(), actual.getProfileImage());
+        assertEquals(expected.isActive(), actual.isActive());
+    }
+
+    private static byte[] serialize(Object value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(value);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Object deserialize(byte[] data) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data))) {
+            return in.readObject();
+        }
+    }
+
+    @Test
+    public void productRoundTrip() throws IOException {
+        List<Product> cases = Arrays.asList(
+                product(42),
+                new Product(-7, null, null, 0.1 + 0.2, null, null, -3, false),
+                new Product(Integer.MAX_VALUE, "", "é中😀", -0.0, "", "", Integer.MIN_VALUE, true),
+                new Product(1, "NaN", null, Double.NaN, null, null, 0, true),
+                new Product(2, "Huge", null, 1e300, null, null, 0, true));
+        for (Product product : cases) {
+            byte[] data = ModelCodec.encode(product);
+            assertTrue(ModelCodec.isEncoded(data));
+            assertSameProduct(product, (Product) ModelCodec.decode(data));
+        }
+    }
+
+    @Test
+    public void userRoundTrip() throws IOException {
+        List<User> cases = Arrays.asList(
+                new User(1, "Alice", "alice@example.com", "+1 555 0100", "https://example.com/a.png", true),
+                new User(-2, null, null, null, null, false),
+                new User(3, "Åsa", "", "", "", true));
+        for (User user : cases) {
+            assertSameUser(user, (User) ModelCodec.decode(ModelCodec.encode(user)));
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void listRoundTripKeepsNullElements() throws IOException {
+        ArrayList<Product> products = products(100);
+        products.set(10, null);
+        List<Product> decodedProducts = (List<Product>) ModelCodec.decode(ModelCodec.encode(products));
+        assertEquals(products.size(), decodedProducts.size());
+        for (int i = 0; i < products.size(); i++) {
+            if (products.get(i) == null) {
+                assertNull(decodedProducts.get(i));
+            } else {
+                assertSameProduct(products.get(i), decodedProducts.get(i));
+            }
+        }
+
+        ArrayList<User> users = new ArrayList<>();
+        users.add(new User(1, "Bob", "bob@example.com"));
+        users.add(null);
+        List<User> decodedUsers = (List<User>) ModelCodec.decode(ModelCodec.encode(users));
+        assertSameUser(users.get(0), decodedUsers.get(0));
+        assertNull(decodedUsers.get(1));
+
+        assertTrue(((List<?>) ModelCodec.decode(ModelCodec.encode(new ArrayList<Product>()))).isEmpty());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void copyIsDeepAndMuchCheaperThanDecode() throws IOException {
+        Product product = product(5);
+        Product productCopy = (Product) ModelCodec.copy(product);
+        assertNotSame(product, productCopy);
+        assertSameProduct(product, productCopy);
+        productCopy.setName("Changed");
+        assertEquals("Product 5", product.getName());
+
+        User user = new User(1, "Alice", "alice@example.com", "+1 555 0100", null, true);
+        assertSameUser(user, (User) ModelCodec.copy(user));
+
+        ArrayList<Product> products = products(1000);
+        products.set(3, null);
+        List<Product> listCopy = (List<Product>) ModelCodec.copy(products);
+        assertEquals(ArrayList.class, listCopy.getClass());
+        assertNull(listCopy.get(3));
+        for (int i = 0; i < products.size(); i++) {
+            if (products.get(i) != null) {
+                assertNotSame(products.get(i), listCopy.get(i));
+                assertSameProduct(products.get(i), listCopy.get(i));
+            }
+        }
+        try {
+            ModelCodec.copy("text");
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+
+        // What a getObject() cache hit costs against decoding the stored bytes again
+        byte[] encoded = ModelCodec.encode(products);
+        int rounds = 200;
+        long copyNanos = 0, decodeNanos = 0;
+        for (int round = 0; round < rounds * 2; round++) {
+            long start = System.nanoTime();
+            ModelCodec.copy(products);
+            long copied = System.nanoTime();
+            ModelCodec.decode(encoded);
+            long decoded = System.nanoTime();
+            if (round >= rounds) {
+                copyNanos += copied - start;
+                decodeNanos += decoded - copied;
+            }
+        }
+        assertTrue("copy " + copyNanos + " ns vs decode " + decodeNanos + " ns", copyNanos < decodeNanos);
+        System.out.printf("1000 products: copy %.3f ms vs decode %.3f ms%n",
+                copyNanos / 1e6 / rounds, decodeNanos / 1e6 / rounds);
+    }
+
+    @Test
+    public void rejectsUnsupportedValues() {
+        assertFalse(ModelCodec.supports("text"));
+        assertFalse(ModelCodec.supports(Arrays.asList(product(1))));
+        ArrayList<Object> mixed = new ArrayList<>();
+        mixed.add(product(1));
+        mixed.add(new User(1, "Carol", "carol@example.com"));
+        assertFalse(ModelCodec.supports(mixed));
+        try {
+            ModelCodec.encode("text");
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void truncatedOrForeignDataThrows() throws IOException {
+        byte[] data = ModelCodec.encode(products(20));
+        for (int length = 0; length < data.length; length++) {
+            try {
+                ModelCodec.decode(Arrays.copyOf(data, length));
+                fail("decoded " + length + " of " + data.length + " bytes");
+            } catch (IOException expected) {
+            }
+        }
+
+        byte[] newer = data.clone();
+        newer[1] = (byte) (ModelCodec.VERSION + 1);
+        try {
+            ModelCodec.decode(newer);
+            fail();
+        } catch (IOException expected) {
+        }
+
+        // Values stored before the codec existed start with the serialization magic
+        assertFalse(ModelCodec.isEncoded(serialize(product(1))));
+    }
+
+    /**
+     * Size and speed against Java serialization, which the codec replaced
+     */
+    @Test
+    public void smallerAndFasterThanSerialization() throws Exception {
+        ArrayList<Product> products = products(1000);
+        byte[] encoded = ModelCodec.encode(products);
+        byte[] serialized = serialize(products);
+        assertTrue(encoded.length < serialized.length);
+        assertTrue(ModelCodec.encode(product(1)).length * 2 < serialize(product(1)).length);
+
+        int rounds = 200;
+        long encodeNanos = 0, serializeNanos = 0, decodeNanos = 0, deserializeNanos = 0;
+        // The first half warms up the JIT
+        for (int round = 0; round < rounds * 2; round++) {
+            boolean measure = round >= rounds;
+            long start = System.nanoTime();
+            ModelCodec.encode(products);
+            long encoded1 = System.nanoTime();
+            serialize(products);
+            long serialized1 = System.nanoTime();
+            ModelCodec.decode(encoded);
+            long decoded1 = System.nanoTime();
+            deserialize(serialized);
+            long deserialized1 = System.nanoTime();
+            if (measure) {
+                encodeNanos += encoded1 - start;
+                serializeNanos += serialized1 - encoded1;
+                decodeNanos += decoded1 - serialized1;
+                deserializeNanos += deserialized1 - decoded1;
+            }
+        }
+        assertTrue("decode " + decodeNanos + " ns vs " + deserializeNanos + " ns", decodeNanos < deserializeNanos);
+        System.out.printf("1000 products: codec %d B, serialization %d B%n", encoded.length, serialized.length);
+        System.out.printf("encode %.3f ms vs %.3f ms, decode %.3f ms vs %.3f ms%n",
+                encodeNanos / 1e6 / rounds, serializeNanos / 1e6 / rounds,
+                decodeNanos / 1e6 / rounds, deserializeNanos / 1e6 / rounds);
+    }
+}
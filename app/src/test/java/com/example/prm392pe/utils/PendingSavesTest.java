@@ -0,0 +1,150 @@
+package com.example.prm392pe.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+public class PendingSavesTest {
+
+    /**
+     * Records writes, with a scheduler that runs queued flushes only when asked to, like
+     * the main thread finishing its current message
+     */
+    private static class Recorder {
+        final Queue<Runnable> scheduled = new ArrayDeque<>();
+        final List<Map<String, Object>> writes = new ArrayList<>();
+        final List<Boolean> clears = new ArrayList<>();
+        final PendingSaves saves = new PendingSaves(scheduled::add, (changes, clear) -> {
+            writes.add(new HashMap<>(changes));
+            clears.add(clear);
+        });
+
+        void endOfMessage() {
+            while (!scheduled.isEmpty()) {
+                scheduled.poll().run();
+            }
+        }
+    }
+
+    @Test
+    public void burstOfPutsIsWrittenOnceWithNewestValues() {
+        Recorder recorder = new Recorder();
+        PendingSaves saves = recorder.saves;
+        for (int i = 0; i < 1_000; i++) {
+            saves.put("key " + i % 10, i);
+        }
+        saves.put("gone", "x");
+        saves.put("gone", null);
+
+        assertEquals(1, recorder.scheduled.size());
+        assertTrue(recorder.writes.isEmpty());
+        // Visible before anything is written
+        assertEquals(999, saves.get("key 9"));
+        assertSame(PendingSaves.REMOVED, saves.get("gone"));
+        assertSame(PendingSaves.NOT_PENDING, saves.get("other"));
+
+        recorder.endOfMessage();
+        assertEquals(1, recorder.writes.size());
+        Map<String, Object> written = recorder.writes.get(0);
+        assertEquals(11, written.size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(990 + i, written.get("key " + i));
+        }
+        assertSame(PendingSaves.REMOVED, written.get("gone"));
+        assertEquals(false, recorder.clears.get(0));
+        assertSame(PendingSaves.NOT_PENDING, saves.get("key 9"));
+
+        // The next burst schedules a flush of its own
+        saves.put("key 0", -1);
+        assertEquals(1, recorder.scheduled.size());
+        recorder.endOfMessage();
+        assertEquals(2, saves.getWriteCount());
+    }
+
+    @Test
+    public void nestedBatchWritesOnceWhenOutermostCommits() {
+        Recorder recorder = new Recorder();
+        PendingSaves saves = recorder.saves;
+        saves.beginBatch();
+        saves.put("a", 1);
+        saves.beginBatch();
+        saves.put("b", 2);
+        saves.commitBatch();
+        assertTrue(recorder.scheduled.isEmpty());
+        assertTrue(recorder.writes.isEmpty());
+
+        saves.put("a", 3);
+        saves.commitBatch();
+        assertEquals(1, recorder.writes.size());
+        Map<String, Object> batched = new HashMap<>();
+        batched.put("a", 3);
+        batched.put("b", 2);
+        assertEquals(batched, recorder.writes.get(0));
+        recorder.endOfMessage();
+        assertEquals(1, saves.getWriteCount());
+
+        try {
+            saves.commitBatch();
+            fail("committed a batch that was not begun");
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    @Test
+    public void scheduledFlushWaitsForOpenBatch() {
+        Recorder recorder = new Recorder();
+        PendingSaves saves = recorder.saves;
+        saves.put("a", 1);
+        saves.beginBatch();
+        saves.put("b", 2);
+        // The flush queued before the batch began runs while it is open
+        recorder.endOfMessage();
+        assertTrue(recorder.writes.isEmpty());
+        saves.commitBatch();
+        assertEquals(1, recorder.writes.size());
+        assertEquals(2, recorder.writes.get(0).size());
+    }
+
+    @Test
+    public void flushWritesNowAndLeavesNothingForTheScheduledFlush() {
+        Recorder recorder = new Recorder();
+        PendingSaves saves = recorder.saves;
+        saves.put("a", 1);
+        saves.flush();
+        assertEquals(1, recorder.writes.size());
+        recorder.endOfMessage();
+        assertEquals(1, saves.getWriteCount());
+
+        // Nothing pending, nothing written
+        saves.flush();
+        assertEquals(1, saves.getWriteCount());
+    }
+
+    @Test
+    public void clearDropsPendingSavesAndHidesStoredValues() {
+        Recorder recorder = new Recorder();
+        PendingSaves saves = recorder.saves;
+        saves.put("a", 1);
+        saves.clear();
+        saves.put("b", 2);
+        assertSame(PendingSaves.REMOVED, saves.get("a"));
+        assertSame(PendingSaves.REMOVED, saves.get("stored"));
+        assertEquals(2, saves.get("b"));
+
+        recorder.endOfMessage();
+        assertEquals(1, recorder.writes.size());
+        assertEquals(true, recorder.clears.get(0));
+        assertEquals(1, recorder.writes.get(0).size());
+        assertSame(PendingSaves.NOT_PENDING, saves.get("stored"));
+    }
+}
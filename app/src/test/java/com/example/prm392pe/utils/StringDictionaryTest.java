@@ -0,0 +1,105 @@
+package com.example.prm392pe.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.example.prm392pe.models.Product;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+public class StringDictionaryTest {
+
+    @Test
+    public void internsAndEncodes() {
+        StringDictionary dictionary = new StringDictionary();
+        String first = new String("Electronics");
+        String second = new String("Electronics");
+        assertSame(first, dictionary.intern(first));
+        assertSame(first, dictionary.intern(second));
+        assertNull(dictionary.intern(null));
+
+        assertEquals(0, dictionary.encode("Electronics"));
+        assertEquals(1, dictionary.encode("Books"));
+        assertEquals("Books", dictionary.decode(1));
+        assertNull(dictionary.decode(StringDictionary.NO_CODE));
+        assertEquals(StringDictionary.NO_CODE, dictionary.codeOf("Toys"));
+        assertEquals(2, dictionary.size());
+        assertEquals(4, dictionary.getLookupCount());
+        assertEquals(2, dictionary.getHitCount());
+        assertTrue(dictionary.getSavedBytes() > 0);
+
+        dictionary.clear();
+        assertEquals(0, dictionary.size());
+        assertEquals(0, dictionary.getLookupCount());
+    }
+
+    @Test
+    public void fullDictionaryReturnsValuesUnchanged() {
+        StringDictionary dictionary = new StringDictionary(2);
+        dictionary.intern("a");
+        dictionary.intern("b");
+        assertTrue(dictionary.isFull());
+        String unique = new String("c");
+        assertSame(unique, dictionary.intern(unique));
+        assertEquals(StringDictionary.NO_CODE, dictionary.encode("c"));
+        assertEquals(2, dictionary.size());
+    }
+
+    private static ArrayList<Product> catalog(int count, int categories) {
+        ArrayList<Product> products = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            // A fresh String per product, as a parser would produce
+            products.add(new Product(i, "Product " + i, null, i, null,
+                    new String("Category number " + (i % categories)), i % 10, true));
+        }
+        return products;
+    }
+
+    private static int distinctCategoryInstances(List<?> products) {
+        Set<String> instances = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Object product : products) {
+            instances.add(((Product) product).getCategory());
+        }
+        return instances.size();
+    }
+
+    /**
+     * A decoded list shares one String per category, and products built elsewhere do not
+     * go through any global dictionary
+     */
+    @Test
+    public void codecSharesCategoriesWithinList() throws IOException {
+        int count = 200_000;
+        ArrayList<Product> products = catalog(count, 50);
+        assertEquals(count, distinctCategoryInstances(products));
+
+        List<?> decoded = (List<?>) ModelCodec.decode(ModelCodec.encode(products));
+        assertEquals(50, distinctCategoryInstances(decoded));
+
+        // The same decode with dictionaries passed in, to read their statistics
+        StringDictionary dictionary = new StringDictionary();
+        StringDictionary imageUrls = new StringDictionary();
+        ModelCodec.decode(ModelCodec.encode(products), dictionary, imageUrls);
+        assertEquals(50, dictionary.size());
+        assertEquals(count - 50, dictionary.getHitCount());
+        // The catalog has no image URLs, and nulls are never looked up
+        assertEquals(0, imageUrls.getLookupCount());
+
+        // Single values have no list to share with and no global dictionary is involved
+        Product single = (Product) ModelCodec.decode(ModelCodec.encode(products.get(0)));
+        assertNotSame(((Product) decoded.get(0)).getCategory(), single.getCategory());
+
+        System.out.printf("%d products, 50 categories: ~%.1f MB of duplicate strings avoided, dictionary ~%d bytes%n",
+                count, dictionary.getSavedBytes() / 1e6, dictionary.getDictionaryBytes());
+    }
+}